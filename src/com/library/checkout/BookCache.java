@@ -0,0 +1,69 @@
+package com.library.checkout;
+
+import com.library.checkout.book.Book;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * BookCache: bounded LRU cache of recently looked-up books, keyed by serial number.
+ *
+ * Used in Librarian's lazy catalog mode, where books live in the book store's mapped file and are only
+ * turned into Book objects on demand; the hot ones are kept here so repeated lookups don't re-read and
+ * re-decode them. Librarian drops a serial's entry whenever that book is added, replaced or removed.
+ *
+ * Every method is synchronized (lookups share Librarian's catalog read lock, and a lookup reorders the
+ * LRU list). Its counters are reported, in the same form as the search cache's, by
+ * Librarian.hotBookCacheStats().
+ */
+class BookCache {
+
+    private final int capacity;
+    private final LinkedHashMap<Integer, Book> entries;
+
+    private long hits;
+    private long misses;
+    private long evictions;
+    private long invalidations;
+
+    BookCache(int capacity) {
+        this.capacity = capacity;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, Book> eldest) {
+                if (size() <= BookCache.this.capacity) return false;
+                evictions++;
+                return true;
+            }
+        };
+    }
+
+    /** The cached book, or null on a miss. */
+    synchronized Book get(int serial) {
+        Book b = entries.get(serial);
+        if (b == null) misses++;
+        else hits++;
+        return b;
+    }
+
+    synchronized void put(Book b) {
+        entries.put(b.get_serial_number(), b);
+    }
+
+    synchronized void remove(int serial) {
+        if (entries.remove(serial) != null) invalidations++;
+    }
+
+    synchronized int size() {
+        return entries.size();
+    }
+
+    synchronized SearchCache.Stats stats() {
+        return new SearchCache.Stats(hits, misses, evictions, invalidations, entries.size(), capacity);
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "BookCache[size=" + entries.size() + "/" + capacity + ", hits=" + hits + ", misses=" + misses + "]";
+    }
+}
@@ -0,0 +1,125 @@
+package com.library.checkout;
+
+import com.library.checkout.util.IntHashSet;
+
+import java.util.Arrays;
+
+/**
+ * DueDateIndex: the serial numbers of one stripe's loans, bucketed by due date (epoch day) and ordered by it.
+ *
+ * The distinct due days are kept in a sorted int[] with a parallel array of IntHashSet buckets. Loans
+ * cluster on a few hundred days at most (most are due defaultLoanDays after today), so finding a day is a
+ * binary search over a short array, adding a new day shifts a short array, and a range of days is a
+ * contiguous run of buckets: a query over [from, to] costs O(log days + buckets in range + matches).
+ * Days are ints, so nothing is boxed; the most recently used day is remembered because runs of
+ * checkouts all share the same due date.
+ *
+ * Not thread-safe; LoanTable owns one and keeps it in step with its loans.
+ */
+final class DueDateIndex {
+
+    /**
+     * Receives one day's serials from {@link #forEachBucket(int, int, BucketVisitor)}.
+     */
+    interface BucketVisitor {
+        void visit(int day, IntHashSet serials);
+    }
+
+    private int[] days = new int[4];
+    private IntHashSet[] buckets = new IntHashSet[4];
+    private int dayCount;
+    private int lastIndex = -1; // index of the last day touched, checked before searching
+
+    DueDateIndex() {
+    }
+
+    private DueDateIndex(DueDateIndex other) {
+        this.days = other.days.clone();
+        this.buckets = new IntHashSet[other.buckets.length];
+        for (int i = 0; i < other.dayCount; i++) {
+            this.buckets[i] = other.buckets[i].copy();
+        }
+        this.dayCount = other.dayCount;
+    }
+
+    void add(int day, int serial) {
+        int i = indexOf(day);
+        if (i < 0) {
+            i = -i - 1;
+            insertDay(i, day);
+        }
+        buckets[i].add(serial);
+        lastIndex = i;
+    }
+
+    void remove(int day, int serial) {
+        int i = indexOf(day);
+        if (i < 0 || !buckets[i].remove(serial)) return;
+        if (buckets[i].isEmpty()) removeDay(i);
+        else lastIndex = i;
+    }
+
+    /** Loans due on a day in [fromDay, toDay]. */
+    int countBetween(int fromDay, int toDay) {
+        int n = 0;
+        for (int i = lowerBound(fromDay); i < dayCount && days[i] <= toDay; i++) {
+            n += buckets[i].size();
+        }
+        return n;
+    }
+
+    /** Visits the buckets for the days in [fromDay, toDay], earliest first. */
+    void forEachBucket(int fromDay, int toDay, BucketVisitor visitor) {
+        for (int i = lowerBound(fromDay); i < dayCount && days[i] <= toDay; i++) {
+            visitor.visit(days[i], buckets[i]);
+        }
+    }
+
+    DueDateIndex copy() {
+        return new DueDateIndex(this);
+    }
+
+    /** Approximate heap footprint in bytes. */
+    long memoryBytes() {
+        long n = 32 + 16 + 4L * days.length + 16 + 4L * buckets.length;
+        for (int i = 0; i < dayCount; i++) {
+            n += buckets[i].memoryBytes();
+        }
+        return n;
+    }
+
+    // -------------------------
+    // Internals
+    // -------------------------
+
+    // index of day, or -(insertion point) - 1
+    private int indexOf(int day) {
+        if (lastIndex >= 0 && lastIndex < dayCount && days[lastIndex] == day) return lastIndex;
+        return Arrays.binarySearch(days, 0, dayCount, day);
+    }
+
+    // first index whose day is >= day
+    private int lowerBound(int day) {
+        int i = Arrays.binarySearch(days, 0, dayCount, day);
+        return i >= 0 ? i : -i - 1;
+    }
+
+    private void insertDay(int at, int day) {
+        if (dayCount == days.length) {
+            days = Arrays.copyOf(days, dayCount * 2);
+            buckets = Arrays.copyOf(buckets, dayCount * 2);
+        }
+        System.arraycopy(days, at, days, at + 1, dayCount - at);
+        System.arraycopy(buckets, at, buckets, at + 1, dayCount - at);
+        days[at] = day;
+        buckets[at] = new IntHashSet(4);
+        dayCount++;
+    }
+
+    private void removeDay(int at) {
+        System.arraycopy(days, at + 1, days, at, dayCount - at - 1);
+        System.arraycopy(buckets, at + 1, buckets, at, dayCount - at - 1);
+        buckets[--dayCount] = null;
+        lastIndex = -1;
+    }
+}
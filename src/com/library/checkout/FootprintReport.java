@@ -0,0 +1,115 @@
+package com.library.checkout;
+
+/**
+ * FootprintReport: approximate heap used by a Librarian's catalog, broken down by structure, with the
+ * cost per book. Returned by {@link Librarian#footprint()}; compare reports taken as the catalog grows to
+ * see which structure grows with it.
+ *
+ * Sizes are estimates for a 64-bit JVM with compressed references (see util.HeapSizes), computed from
+ * the structures' shapes, not measured. Strings are counted once however many structures share them.
+ * In lazy catalog mode the books themselves live in the store's mapped file, so the per-book lines are
+ * the store's serial index and the hot-book cache instead.
+ *
+ * Usage example:
+ *   FootprintReport r = librarian.footprint();
+ *   System.out.println(r.bytesPerBook() + " bytes/book");
+ *   System.out.println(r);
+ */
+public final class FootprintReport {
+
+    private final int books;
+    private final int distinctAuthors;
+    private final long bookObjectBytes;
+    private final long titleBytes;
+    private final long authorBytes;
+    private final long catalogMapBytes;
+    private final long sortedOrderBytes;
+    private final long searchIndexBytes;
+    private final long loanBytes;
+
+    FootprintReport(int books, int distinctAuthors, long bookObjectBytes, long titleBytes, long authorBytes,
+                    long catalogMapBytes, long sortedOrderBytes, long searchIndexBytes, long loanBytes) {
+        this.books = books;
+        this.distinctAuthors = distinctAuthors;
+        this.bookObjectBytes = bookObjectBytes;
+        this.titleBytes = titleBytes;
+        this.authorBytes = authorBytes;
+        this.catalogMapBytes = catalogMapBytes;
+        this.sortedOrderBytes = sortedOrderBytes;
+        this.searchIndexBytes = searchIndexBytes;
+        this.loanBytes = loanBytes;
+    }
+
+    public int books() {
+        return books;
+    }
+
+    public int distinctAuthors() {
+        return distinctAuthors;
+    }
+
+    /** The Book objects themselves (headers and fields, not the strings they point to). */
+    public long bookObjectBytes() {
+        return bookObjectBytes;
+    }
+
+    /** Title strings, as stored in the books. */
+    public long titleBytes() {
+        return titleBytes;
+    }
+
+    /** The author dictionary: one string (plus its lower-cased form) per distinct author. */
+    public long authorBytes() {
+        return authorBytes;
+    }
+
+    /** The serial-keyed inventory map (in lazy mode: the store's serial index and the hot-book cache). */
+    public long catalogMapBytes() {
+        return catalogMapBytes;
+    }
+
+    /** The title, author and serial orders kept for sorted views and pagination. */
+    public long sortedOrderBytes() {
+        return sortedOrderBytes;
+    }
+
+    /** Trigram and prefix indexes, including the normalized titles they keep. */
+    public long searchIndexBytes() {
+        return searchIndexBytes;
+    }
+
+    /** Open loans: the loan tables and their due-date indexes. */
+    public long loanBytes() {
+        return loanBytes;
+    }
+
+    public long totalBytes() {
+        return bookObjectBytes + titleBytes + authorBytes + catalogMapBytes + sortedOrderBytes
+                + searchIndexBytes + loanBytes;
+    }
+
+    /** Total bytes divided by the number of books, or 0 for an empty catalog. */
+    public double bytesPerBook() {
+        return books == 0 ? 0 : (double) totalBytes() / books;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(books).append(" books, ").append(distinctAuthors).append(" distinct authors\n");
+        line(sb, "book objects", bookObjectBytes);
+        line(sb, "titles", titleBytes);
+        line(sb, "authors", authorBytes);
+        line(sb, "catalog map", catalogMapBytes);
+        line(sb, "sorted orders", sortedOrderBytes);
+        line(sb, "search indexes", searchIndexBytes);
+        line(sb, "loans", loanBytes);
+        line(sb, "total", totalBytes());
+        return sb.toString();
+    }
+
+    private void line(StringBuilder sb, String label, long bytes) {
+        sb.append(String.format("  %-15s %,14d bytes  %8.1f /book%n", label, bytes,
+                books == 0 ? 0.0 : (double) bytes / books));
+    }
+}
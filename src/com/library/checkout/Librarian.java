@@ -1,13 +1,37 @@
 package com.library.checkout;
 
+import com.library.checkout.book.AuthorDictionary;
 import com.library.checkout.book.Book;
+import com.library.checkout.book.BookStore;
+import com.library.checkout.book.CatalogSnapshot;
+import com.library.checkout.book.OffHeapCatalog;
+import com.library.checkout.book.ParallelBookLoader;
+import com.library.checkout.book.PrefixIndex;
+import com.library.checkout.book.SortedCatalog;
+import com.library.checkout.book.SortedView;
+import com.library.checkout.book.TrigramIndex;
+import com.library.checkout.csv.CsvCodec;
+import com.library.checkout.fine.Fine;
+import com.library.checkout.fine.FineAssessor;
+import com.library.checkout.fine.FinePolicy;
+import com.library.checkout.fine.StandardFinePolicy;
 import com.library.checkout.user.User;
 import com.library.checkout.user.UserService;
+import com.library.checkout.util.HeapSizes;
+import com.library.checkout.util.PersistentIntMap;
 
 import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
 import java.time.LocalDate;
-import java.time.temporal.ChronoUnit;
+import java.time.format.DateTimeParseException;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
 
 /**
  * Librarian: manages inventory of Book objects (loaded/saved from a simple CSV-like file),
@@ -15,8 +39,61 @@ import java.util.*;
  *
  * Integration notes for this repository:
  * - Uses com.library.checkout.book.Book (expects Book(String whole_line) constructor that parses "author,title,number").
+ * - All text files are read and written through com.library.checkout.csv.CsvCodec, so authors and titles
+ *   containing commas or quotes round-trip.
  * - Uses com.library.checkout.user.UserService for user lookup.
- * - Persists books to a plain text file where each line is: author,title,serial_number
+ * - Persists books in a BookStore (fixed-width record file) at booksFilePath + ".dat"; adding or removing
+ *   a book writes only that book's record. The first time a store is created it is seeded from the
+ *   file at booksFilePath, if that exists: plain text (one author,title,serial_number per line), a
+ *   binary book.CatalogSnapshot, or a saved book.OffHeapCatalog, told apart by their magic numbers.
+ *   exportBooks, exportSnapshot and exportOffHeap write the three formats back out on request;
+ *   importCatalog accepts any of them.
+ * - searchByTitle/searchByAuthor are answered from trigram indexes over the lower-cased fields, and
+ *   completeTitle/completeAuthor (type-ahead) from radix-tree prefix indexes; all four are kept up to
+ *   date by every inventory change. Search results are cached (LRU, SEARCH_CACHE_SIZE queries); a catalog
+ *   change only invalidates the cached queries whose fragment occurs in the changed book.
+ * - The inventory is also kept sorted by title, author and serial number (book.SortedCatalog, published
+ *   with each inventory version), so sortedBooks hands out sorted views without sorting.
+ * - listBooks and the paged searchByTitle/searchByAuthor overloads return one Page at a time with an
+ *   opaque keyset continuation token, so a UI showing 50 rows never materializes the whole result.
+ * - Lazy catalog mode (the three-argument constructor) keeps no Book objects on the heap: the book
+ *   store's primitive serial index is the inventory, books are read from its mapped file on demand, and
+ *   the HOT_BOOKS most recently looked-up books are cached (BookCache). Lookups, adds, removes,
+ *   checkouts and returns work as usual; searchByTitle/searchByAuthor scan the store; the features
+ *   served by in-memory indexes (sorted views, pagination, type-ahead) are unavailable.
+ * - Open loans are snapshotted to booksFilePath + ".loans" (serial,userId,dueDate).
+ * - Open loans are indexed by due date, so listOverdue / countDueBetween / loansByDueDate cost
+ *   O(log n + k) instead of a walk over every loan.
+ * - Open loans are also indexed by renter (UserLoanIndex), so listLoansForUser costs O(k) for a user
+ *   with k books out, and checkoutBook can enforce a per-user loan limit (see setLoanLimit).
+ * - Every checkout/return is appended to booksFilePath + ".journal" first; on startup the journal is
+ *   replayed on top of the loans snapshot. Once the journal holds COMPACT_THRESHOLD records it is
+ *   rotated aside and folded into a fresh snapshot, so replay time stays bounded. (Journals written before
+ *   the BookStore existed may also hold add/remove records; those are replayed into the store.)
+ * - Authors are interned through a book.AuthorDictionary, so every book by one author (and the author
+ *   indexes) share one String; loan state lives only in the loan stripes, not in Book. The inventory
+ *   keeps its own copies of the books it is given, so the caller's Book objects are never modified.
+ *   {@link #footprint()} reports the heap this costs, per structure and per book.
+ * - startAsync returns before anything is loaded and loads in the background, in two steps: ready()
+ *   completes once the inventory, the loans and the journal are in, indexesReady() once the search
+ *   indexes and sorted orders are built over them (loadNanos/indexNanos time each). Meanwhile getBook
+ *   answers for the books loaded so far, and every other call waits for the step it needs.
+ *
+ * Concurrency: there is no object-wide lock. Loan state is split into LOAN_STRIPES stripes by serial
+ * number, each with its own lock, so checkouts and returns of different books only meet at the journal
+ * append. The catalog (indexes, search cache, book store) sits behind a read/write lock: searches share
+ * it, adds and removes take it exclusively. Checkouts never take the catalog lock; the inventory is a
+ * persistent map published through a volatile field, and removeBook holds the book's stripe while it
+ * checks for a loan, so a book can't be removed while a checkout of it is in flight.
+ * Lock order is compactGuard, catalog, then stripes (in index order), then the journal's own lock.
+ *
+ * Snapshots: {@link #snapshot()} returns a versioned, immutable view of the inventory and the open loans
+ * as of one moment. It locks the stripes only long enough to collect their tables (O(LOAN_STRIPES), no
+ * copying); a stripe copies its table before the next write after a snapshot. listAllBooks, listRenters
+ * and compaction all read from a snapshot, so long reports and snapshot writes never hold up checkouts.
+ * The due-date queries (listOverdue, countDueBetween, loansByDueDate, assessFines) don't take one: they
+ * read each stripe under its own lock, copying out only the loans they return, so they never make a
+ * stripe copy its table. Their results are consistent per stripe rather than as of one moment.
  *
  * Usage example:
  *   UserService users = new UserService("users.txt");
@@ -24,27 +101,235 @@ import java.util.*;
  *   lib.addBook(new Book("Tolkien","The Hobbit", 1001));
  *   lib.checkoutBook(1001, 0); // user id 0
  */
-public class Librarian {
+public class Librarian implements Closeable {
+
+    // journal records accumulated before they are folded into the snapshot files
+    static final int COMPACT_THRESHOLD = 10_000;
+
+    // books parsed per lock acquisition when streaming a catalog file in
+    static final int IMPORT_BATCH = 50_000;
+
+    // distinct (type, fragment) search results kept in the LRU cache
+    static final int SEARCH_CACHE_SIZE = 1024;
+
+    // independent locks over the loan state; a power of two
+    static final int LOAN_STRIPES = 64;
+
+    // books kept decoded in lazy catalog mode
+    static final int HOT_BOOKS = 4096;
 
     private final UserService userService;
     private final String booksFilePath;
+    private final String loansFilePath;
+    // opened by the startup load (see ready()), so only touched once it is done
+    private BookStore store;
+    private LibraryJournal journal;
+
+    // completed once the inventory, the loans and the journal are loaded, and once the search indexes and
+    // sorted orders are built over them; both at construction unless started with startAsync
+    private final CompletableFuture<Void> ready = new CompletableFuture<>();
+    private final CompletableFuture<Void> indexesReady = new CompletableFuture<>();
+
+    // whether the startup load has built the indexes yet; until then putBook/dropBook only change the
+    // inventory map (the build indexes whatever it holds by then). Guarded by the catalog lock
+    private boolean indexed;
+
+    // books live only in the store, read on demand (see the class comment)
+    private final boolean lazyCatalog;
+
+    // recently read books in lazy catalog mode; null otherwise
+    private final BookCache hotBooks;
+
+    // inventory keyed by serial number; replaced as a whole (under the catalog write lock) on every change.
+    // Stays empty in lazy catalog mode, where only its version moves
+    private volatile Catalog catalog = new Catalog(PersistentIntMap.empty(), SortedCatalog.empty(), 0);
+
+    // guards the indexes, the search cache, the book store and changes to the catalog
+    private final ReentrantReadWriteLock catalogLock = new ReentrantReadWriteLock();
+
+    // substring search indexes over normalized title / author
+    private final TrigramIndex titleIndex = new TrigramIndex();
+    private final TrigramIndex authorIndex = new TrigramIndex();
 
-    // inventory keyed by serial number
-    private final Map<Integer, Book> inventory = new HashMap<>();
+    private final SearchCache searchCache = new SearchCache(SEARCH_CACHE_SIZE);
 
-    // rentals: serial_number -> userId
-    private final Map<Integer, Integer> rentals = new HashMap<>();
+    // type-ahead indexes over normalized title / author
+    private final PrefixIndex titlePrefixes = new PrefixIndex();
+    private final PrefixIndex authorPrefixes = new PrefixIndex();
 
-    // due dates for rented books: serial_number -> due date
-    private final Map<Integer, LocalDate> dueDates = new HashMap<>();
+    // one shared String per distinct author across the inventory and the author indexes
+    private final AuthorDictionary authors = new AuthorDictionary();
+
+    // loan state, striped by serial number
+    private final LoanStripe[] stripes = new LoanStripe[LOAN_STRIPES];
+
+    // the same loans keyed by renter: user id -> serials, changed together with the stripes
+    private final UserLoanIndex loansByUser = new UserLoanIndex();
+
+    // one compaction at a time
+    private final Object compactGuard = new Object();
+
+    // duration of the two startup steps (see loadNanos / indexNanos); -1 until done
+    private volatile long loadNanos = -1;
+    private volatile long indexNanos = -1;
+
+    // counts and timing from the last text-file load, if any
+    private volatile ParallelBookLoader.Result lastTextLoad;
 
     // Defaults (configurable via constructor overload if desired)
     private final int defaultLoanDays = 14;
 
+    // most books one user may have out at once; no limit unless set
+    private volatile int loanLimit = Integer.MAX_VALUE;
+
+    // decides fines both at return and in batch assessment
+    private volatile FinePolicy finePolicy = StandardFinePolicy.perDay(0.50);
+
     public Librarian(String booksFilePath, UserService userService) {
+        this(booksFilePath, userService, false);
+    }
+
+    /**
+     * @param lazyCatalog if true, keep the inventory in the book store only, reading books on demand, so
+     *                    the catalog can be far larger than the heap (see the class comment for what
+     *                    this mode leaves out)
+     */
+    public Librarian(String booksFilePath, UserService userService, boolean lazyCatalog) {
+        this(booksFilePath, userService, lazyCatalog, false);
+    }
+
+    /**
+     * Starts a Librarian that loads in the background and returns at once, so startup time doesn't grow
+     * with the catalog. Books become visible to {@link #getBook(int)} in batches of IMPORT_BATCH as they
+     * are loaded (in lazy catalog mode, once the store is open); every other call waits until what it
+     * needs is loaded: loan operations for {@link #ready()}, searches, sorted views and inventory changes
+     * for {@link #indexesReady()}. If loading fails, both futures complete exceptionally and those calls
+     * throw IllegalStateException.
+     *
+     * Usage example:
+     *   Librarian lib = Librarian.startAsync("books.txt", users, false);
+     *   lib.getBook(1001);          // answered if book 1001 is loaded already
+     *   lib.ready().join();         // loans and journal loaded: checkouts won't wait
+     *   lib.indexesReady().join();  // search indexes built too
+     */
+    public static Librarian startAsync(String booksFilePath, UserService userService, boolean lazyCatalog) {
+        return new Librarian(booksFilePath, userService, lazyCatalog, true);
+    }
+
+    private Librarian(String booksFilePath, UserService userService, boolean lazyCatalog, boolean async) {
         this.booksFilePath = Objects.requireNonNull(booksFilePath);
         this.userService = Objects.requireNonNull(userService);
-        loadBooks();
+        this.loansFilePath = booksFilePath + ".loans";
+        this.lazyCatalog = lazyCatalog;
+        this.hotBooks = lazyCatalog ? new BookCache(HOT_BOOKS) : null;
+        for (int i = 0; i < stripes.length; i++) {
+            stripes[i] = new LoanStripe();
+        }
+        if (!async) {
+            load();
+            return;
+        }
+        Thread loader = new Thread(() -> {
+            try {
+                load();
+            } catch (RuntimeException | Error e) {
+                System.err.println("Failed to load library " + booksFilePath + ": " + e);
+            }
+        }, "librarian-load " + booksFilePath);
+        loader.setDaemon(true);
+        loader.start();
+    }
+
+    // the startup load, in two steps; completes ready and then indexesReady, or fails both and rethrows
+    private void load() {
+        try {
+            long start = System.nanoTime();
+            this.store = openStore(booksFilePath + ".dat");
+            loadLoans();
+            this.journal = openJournal(booksFilePath + ".journal");
+            userService.ready().join(); // checkouts look users up
+            loadNanos = System.nanoTime() - start;
+            ready.complete(null);
+
+            start = System.nanoTime();
+            buildIndexes();
+            indexNanos = System.nanoTime() - start;
+            indexesReady.complete(null);
+        } catch (RuntimeException | Error e) {
+            Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+            ready.completeExceptionally(cause);
+            indexesReady.completeExceptionally(cause);
+            throw e;
+        }
+    }
+
+    // interns the authors and builds the search indexes and sorted orders over the loaded inventory
+    private void buildIndexes() {
+        catalogLock.writeLock().lock();
+        try {
+            if (!lazyCatalog) {
+                // the loaded Books may already be in readers' hands (getBook during startAsync), so the
+                // interned ones are new copies rather than the same objects changed in place
+                Catalog cat = catalog;
+                PersistentIntMap.Builder<Book> books = PersistentIntMap.<Book>empty().builder();
+                for (Book b : cat.books.values()) {
+                    Book copy = internedCopy(b);
+                    books.put(copy.get_serial_number(), copy);
+                    indexBook(copy);
+                }
+                PersistentIntMap<Book> interned = books.build();
+                catalog = new Catalog(interned, SortedCatalog.of(interned.values()), cat.version);
+            }
+            indexed = true;
+        } finally {
+            catalogLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Completes once the inventory, the open loans and the journal are loaded (and the UserService is
+     * ready): from then on loan operations don't wait. Already complete unless started with
+     * {@link #startAsync}.
+     */
+    public CompletableFuture<Void> ready() {
+        return ready.copy();
+    }
+
+    /**
+     * Completes once the search indexes and sorted orders are built as well, after {@link #ready()}:
+     * from then on nothing waits. Already complete unless started with {@link #startAsync}.
+     */
+    public CompletableFuture<Void> indexesReady() {
+        return indexesReady.copy();
+    }
+
+    /**
+     * How long the two steps of the startup load took, in nanoseconds: loading (inventory, loans,
+     * journal) and building the indexes. -1 for a step that hasn't finished.
+     */
+    public long loadNanos() {
+        return loadNanos;
+    }
+
+    public long indexNanos() {
+        return indexNanos;
+    }
+
+    private void awaitReady() {
+        await(ready);
+    }
+
+    private void awaitIndexes() {
+        await(indexesReady);
+    }
+
+    private void await(CompletableFuture<Void> step) {
+        if (step.isDone() && !step.isCompletedExceptionally()) return;
+        try {
+            step.join();
+        } catch (CompletionException e) {
+            throw new IllegalStateException("Failed to load library " + booksFilePath, e.getCause());
+        }
     }
 
     // -------------------------
@@ -52,206 +337,1386 @@ public class Librarian {
     // -------------------------
 
     /**
-     * Adds a book to the inventory and persists.
+     * Adds a book to the inventory (replacing any book with the same serial number) and persists it.
+     * The inventory keeps a copy; {@code b} itself is not modified, so any Book (an OffHeapBook view too)
+     * can be passed.
+     *
+     * @throws IllegalArgumentException if the author or title is too long for the book store; nothing is
+     *                                  written
+     * @throws UncheckedIOException if the book store can't be written; the inventory is left unchanged
      */
-    public synchronized void addBook(Book b) {
+    public void addBook(Book b) {
         if (b == null) throw new IllegalArgumentException("book cannot be null");
+        if (!BookStore.fits(b)) {
+            throw new IllegalArgumentException("author/title too long for book store (max " + BookStore.AUTHOR_MAX_BYTES
+                    + "/" + BookStore.TITLE_MAX_BYTES + " bytes): serial=" + b.get_serial_number());
+        }
+        awaitIndexes();
+        try {
+            saveBook(b);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to save book " + b.get_serial_number() + " to " + store.path(), e);
+        }
+    }
+
+    // addBook without the checks and the wait (journal replay at startup uses it directly). The store is
+    // written first and the book published only if that worked, so the live inventory never shows a book
+    // the store doesn't have
+    private void saveBook(Book b) throws IOException {
+        catalogLock.writeLock().lock();
+        try {
+            store.put(b);
+            CatalogEdit edit = new CatalogEdit(catalog);
+            putBook(edit, b, true);
+            publish(edit);
+        } finally {
+            catalogLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Adds many books under a single lock acquisition and persists once at the end.
+     * Books whose serial number already exists in the inventory replace it. Null books, books that don't
+     * fit the book store, and repeats of a serial number earlier in the same batch are rejected.
+     */
+    public ImportResult addBooks(Collection<Book> books) {
+        if (books == null) throw new IllegalArgumentException("books cannot be null");
+        awaitIndexes();
+        ImportResult result = new ImportResult();
+        catalogLock.writeLock().lock();
+        try {
+            applyBatch(books, new HashSet<>(), result);
+            store.sync();
+        } finally {
+            catalogLock.writeLock().unlock();
+        }
+        return result;
+    }
+
+    /**
+     * Streams a vendor catalog in the text books format (author,title,serial_number per line) into the
+     * inventory. Lines are applied in batches of IMPORT_BATCH, one lock acquisition per batch, and the
+     * store is persisted once at the end. Same replace/reject rules as {@link #addBooks(Collection)};
+     * malformed lines count as rejected. A binary CatalogSnapshot or a saved OffHeapCatalog is accepted too
+     * (read whole, then applied in the same batches).
+     */
+    public ImportResult importCatalog(Path catalog) throws IOException {
+        awaitIndexes();
+        ImportResult result = new ImportResult();
+        Set<Integer> seen = new HashSet<>();
+        List<Book> books = CatalogSnapshot.isSnapshot(catalog) ? CatalogSnapshot.read(catalog)
+                : OffHeapCatalog.isOffHeapCatalog(catalog) ? offHeapBooks(catalog) : null;
+        if (books != null) {
+            for (int from = 0; from < books.size(); from += IMPORT_BATCH) {
+                catalogLock.writeLock().lock();
+                try {
+                    applyBatch(books.subList(from, Math.min(books.size(), from + IMPORT_BATCH)), seen, result);
+                } finally {
+                    catalogLock.writeLock().unlock();
+                }
+            }
+            catalogLock.writeLock().lock();
+            try {
+                store.sync();
+            } finally {
+                catalogLock.writeLock().unlock();
+            }
+            return result;
+        }
+        List<Book> batch = new ArrayList<>(IMPORT_BATCH);
+        CsvCodec.Record rec = new CsvCodec.Record();
+        try (BufferedReader br = Files.newBufferedReader(catalog)) {
+            String line;
+            while ((line = br.readLine()) != null) {
+                line = line.trim();
+                if (line.isEmpty()) continue;
+                Book b = CsvCodec.parse(line, rec) ? Book.from_csv_record(rec) : null;
+                if (b == null) {
+                    result.rejected++;
+                    continue;
+                }
+                batch.add(b);
+                if (batch.size() == IMPORT_BATCH) {
+                    catalogLock.writeLock().lock();
+                    try {
+                        applyBatch(batch, seen, result);
+                    } finally {
+                        catalogLock.writeLock().unlock();
+                    }
+                    batch.clear();
+                }
+            }
+        }
+        catalogLock.writeLock().lock();
+        try {
+            applyBatch(batch, seen, result);
+            store.sync();
+        } finally {
+            catalogLock.writeLock().unlock();
+        }
+        return result;
+    }
+
+    // caller holds the catalog write lock; seen tracks serials already taken by this import.
+    // The whole batch is published as one catalog change.
+    private void applyBatch(Collection<Book> batch, Set<Integer> seen, ImportResult result) {
+        // per-book invalidation costs O(cache) each; past the cache's size, dropping it once is cheaper
+        boolean bulk = batch.size() > SEARCH_CACHE_SIZE;
+        if (bulk) searchCache.clear();
+        CatalogEdit edit = new CatalogEdit(catalog);
+        for (Book b : batch) {
+            if (b == null || !BookStore.fits(b) || !seen.add(b.get_serial_number())) {
+                result.rejected++;
+                continue;
+            }
+            // in lazy mode the store is the only place to ask whether this replaces a book
+            boolean stored = lazyCatalog && store.contains(b.get_serial_number());
+            try {
+                store.put(b);
+            } catch (IOException e) {
+                System.err.println("Failed to save book " + b.get_serial_number() + " to " + store.path() + ": " + e.getMessage());
+                result.rejected++;
+                continue;
+            }
+            if (putBook(edit, b, !bulk) == null && !stored) {
+                result.inserted++;
+            } else {
+                result.replaced++;
+            }
+        }
+        publish(edit);
+    }
+
+    // inventory + index maintenance; every in-memory catalog change goes through these two, followed by
+    // publish(). Caller holds the catalog write lock. In lazy mode there is nothing in memory but the
+    // cached copy to drop (and putBook can't tell what it replaced)
+    private Book putBook(CatalogEdit edit, Book b, boolean invalidateCache) {
+        if (lazyCatalog) {
+            hotBooks.remove(b.get_serial_number());
+            return null;
+        }
+        if (!indexed) return edit.books.put(b.get_serial_number(), b);
+        Book copy = internedCopy(b);
+        Book old = edit.books.put(copy.get_serial_number(), copy);
+        edit.sorted.replace(old, copy);
+        if (old != null) unindexBook(old);
+        indexBook(copy);
+        if (old != null) authors.release(old.get_author());
+        if (invalidateCache) {
+            if (old != null) searchCache.invalidate(old.get_title(), old.get_author());
+            searchCache.invalidate(copy.get_title(), copy.get_author());
+        }
+        return old;
+    }
+
+    // the inventory's own copy of b, holding the dictionary's author string. The caller's Book is never
+    // changed: it may be read-only (an OffHeapBook) or still in use elsewhere. Null fields become "", as
+    // the book store keeps them, so the copy matches what a restart would load
+    private Book internedCopy(Book b) {
+        String author = b.get_author();
+        String title = b.get_title();
+        return new Book(authors.acquire(author == null ? "" : author), title == null ? "" : title,
+                b.get_serial_number());
+    }
+
+    private void dropBook(CatalogEdit edit, int serial) {
+        if (lazyCatalog) {
+            hotBooks.remove(serial);
+            return;
+        }
+        if (!indexed) {
+            edit.books.remove(serial);
+            return;
+        }
+        Book old = edit.books.remove(serial);
+        if (old != null) {
+            edit.sorted.replace(old, null);
+            unindexBook(old);
+            authors.release(old.get_author());
+            searchCache.invalidate(old.get_title(), old.get_author());
+        }
+    }
+
+    private void publish(CatalogEdit edit) {
+        catalog = new Catalog(edit.books.build(), edit.sorted.build(), catalog.version + 1);
+    }
+
+    // the indexes keep the normalized strings they are given, so normalize once and share: the title
+    // between its two indexes, the author through the dictionary
+    private void indexBook(Book b) {
+        int serial = b.get_serial_number();
+        String title = TrigramIndex.normalize(b.get_title());
+        String author = authors.normalized(b.get_author());
+        titleIndex.put(serial, title);
+        authorIndex.put(serial, author);
+        titlePrefixes.add(title, serial);
+        authorPrefixes.add(author, serial);
+    }
+
+    private void unindexBook(Book b) {
         int serial = b.get_serial_number();
-        inventory.put(serial, b);
-        saveBooks();
+        titleIndex.remove(serial);
+        authorIndex.remove(serial);
+        titlePrefixes.remove(b.get_title(), serial);
+        authorPrefixes.remove(b.get_author(), serial);
     }
 
     /**
      * Removes a book from inventory if it exists and is not currently rented.
      * Returns true if removed.
      */
-    public synchronized boolean removeBook(int serialNumber) {
-        if (!inventory.containsKey(serialNumber)) return false;
-        if (rentals.containsKey(serialNumber)) return false; // can't remove rented book
-        inventory.remove(serialNumber);
-        saveBooks();
-        return true;
+    public boolean removeBook(int serialNumber) {
+        awaitIndexes();
+        catalogLock.writeLock().lock();
+        try {
+            LoanStripe stripe = stripeFor(serialNumber);
+            // holding the stripe keeps a concurrent checkout from renting the book while we drop it
+            synchronized (stripe) {
+                if (!hasBook(serialNumber)) return false;
+                if (stripe.loans.contains(serialNumber)) return false; // can't remove rented book
+                // the store first, as in saveBook: the catalog never shows a change the store doesn't have
+                store.delete(serialNumber);
+                CatalogEdit edit = new CatalogEdit(catalog);
+                dropBook(edit, serialNumber);
+                publish(edit);
+            }
+            return true;
+        } finally {
+            catalogLock.writeLock().unlock();
+        }
     }
 
     /**
-     * Returns an unmodifiable list of all books in inventory.
+     * Returns an unmodifiable list of all books in inventory, as of one moment; doesn't block any writer.
+     * Use {@link #snapshot()} to also get the version it reflects, or
+     * {@link #listBooks(SortedCatalog.Order, int, String)} to page through it instead of copying it all.
      */
-    public synchronized List<Book> listAllBooks() {
-        return Collections.unmodifiableList(new ArrayList<>(inventory.values()));
+    public List<Book> listAllBooks() {
+        awaitReady();
+        return Collections.unmodifiableList(new ArrayList<>(allBooks()));
+    }
+
+    /**
+     * The book with this serial number, if it is in inventory. In lazy catalog mode this reads it from
+     * the book store (unless it is among the HOT_BOOKS cached ones).
+     */
+    public Optional<Book> getBook(int serialNumber) {
+        if (!lazyCatalog) return Optional.ofNullable(catalog.books.get(serialNumber));
+        awaitReady();
+        Book b = hotBooks.get(serialNumber);
+        if (b != null) return Optional.of(b);
+        catalogLock.readLock().lock();
+        try {
+            b = store.get(serialNumber);
+            // cached under the read lock, so a writer can't change the book between the read and the put
+            if (b != null) hotBooks.put(b);
+            return Optional.ofNullable(b);
+        } finally {
+            catalogLock.readLock().unlock();
+        }
     }
 
     /**
-     * Search books by title fragment (case-insensitive substring).
+     * True if this Librarian runs in lazy catalog mode.
      */
-    public synchronized List<Book> searchByTitle(String fragment) {
-        if (fragment == null) fragment = "";
-        String f = fragment.toLowerCase(Locale.ROOT);
+    public boolean isLazyCatalog() {
+        return lazyCatalog;
+    }
+
+    // every book: the catalog's values, or in lazy mode a copy read from the store
+    private Collection<Book> allBooks() {
+        if (!lazyCatalog) return catalog.books.values();
+        catalogLock.readLock().lock();
+        try {
+            List<Book> out = new ArrayList<>(store.size());
+            store.forEach(out::add);
+            return out;
+        } finally {
+            catalogLock.readLock().unlock();
+        }
+    }
+
+    // whether serial is in inventory. In lazy mode the caller must hold the catalog lock (the store
+    // isn't safe to read while it is written)
+    private boolean hasBook(int serial) {
+        return lazyCatalog ? store.contains(serial) : catalog.books.containsKey(serial);
+    }
+
+    // checkouts and returns look the book up under its stripe. In lazy mode that lookup reads the store,
+    // so they also share the catalog read lock, taken first as the lock order requires; otherwise the
+    // volatile catalog needs no lock
+    private void lockForLookup() {
+        if (lazyCatalog) catalogLock.readLock().lock();
+    }
+
+    private void unlockForLookup() {
+        if (lazyCatalog) catalogLock.readLock().unlock();
+    }
+
+    private void requireInMemoryCatalog(String feature) {
+        if (lazyCatalog) throw new UnsupportedOperationException(feature + " is not available in lazy catalog mode");
+    }
+
+    /**
+     * Every book in inventory in {@code order}, as of one moment; doesn't block any writer and copies
+     * nothing. The orders are kept up to date as books are added and removed, so paging through the view
+     * costs O(log n + page size) per page rather than a sort.
+     */
+    public SortedView sortedBooks(SortedCatalog.Order order) {
+        awaitIndexes();
+        requireInMemoryCatalog("sortedBooks");
+        return catalog.sorted.view(Objects.requireNonNull(order));
+    }
+
+    /**
+     * All of the inventory's maintained orderings as of one moment (immutable), e.g. for
+     * BookSorter.sortedView.
+     */
+    public SortedCatalog sortedCatalog() {
+        awaitIndexes();
+        requireInMemoryCatalog("sortedCatalog");
+        return catalog.sorted;
+    }
+
+    /**
+     * Search books by title fragment (case-insensitive substring). Results are in serial number order.
+     */
+    public List<Book> searchByTitle(String fragment) {
+        awaitIndexes();
+        if (lazyCatalog) return scanStore(SearchCache.Type.TITLE, fragment);
+        catalogLock.readLock().lock();
+        try {
+            int[] serials = searchCache.get(SearchCache.Type.TITLE, fragment);
+            if (serials == null) {
+                serials = titleIndex.search(fragment);
+                searchCache.put(SearchCache.Type.TITLE, fragment, serials);
+            }
+            return booksFor(serials);
+        } finally {
+            catalogLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Search books by author fragment (case-insensitive substring). Results are in serial number order.
+     */
+    public List<Book> searchByAuthor(String fragment) {
+        awaitIndexes();
+        if (lazyCatalog) return scanStore(SearchCache.Type.AUTHOR, fragment);
+        catalogLock.readLock().lock();
+        try {
+            int[] serials = searchCache.get(SearchCache.Type.AUTHOR, fragment);
+            if (serials == null) {
+                serials = authorIndex.search(fragment);
+                searchCache.put(SearchCache.Type.AUTHOR, fragment, serials);
+            }
+            return booksFor(serials);
+        } finally {
+            catalogLock.readLock().unlock();
+        }
+    }
+
+    // lazy mode's search: a sequential pass over the store's mapped file, O(n) per query and uncached
+    // (the indexes and the cache would put the whole catalog back on the heap)
+    private List<Book> scanStore(SearchCache.Type type, String fragment) {
+        String query = TrigramIndex.normalize(fragment);
         List<Book> out = new ArrayList<>();
-        for (Book b : inventory.values()) {
-            if (b.get_title().toLowerCase(Locale.ROOT).contains(f)) out.add(b);
+        catalogLock.readLock().lock();
+        try {
+            store.forEach(b -> {
+                String field = type == SearchCache.Type.TITLE ? b.get_title() : b.get_author();
+                if (TrigramIndex.normalize(field).contains(query)) out.add(b);
+            });
+        } finally {
+            catalogLock.readLock().unlock();
         }
+        out.sort(Comparator.comparingInt(Book::get_serial_number));
         return out;
     }
 
+    // -------------------------
+    // Pagination
+    // -------------------------
+
     /**
-     * Search books by author fragment (case-insensitive substring).
+     * One page of the inventory in {@code order}: pass a null token for the first page, then each page's
+     * nextToken for the next. Served from the maintained sorted orders without locking; a page costs
+     * O(log n + pageSize) time and O(pageSize) allocation however far into the listing it is.
+     *
+     * @throws IllegalArgumentException if pageSize is less than 1, or the token is malformed or was issued
+     *                                  for a different order
      */
-    public synchronized List<Book> searchByAuthor(String fragment) {
-        if (fragment == null) fragment = "";
-        String f = fragment.toLowerCase(Locale.ROOT);
-        List<Book> out = new ArrayList<>();
-        for (Book b : inventory.values()) {
-            if (b.get_author().toLowerCase(Locale.ROOT).contains(f)) out.add(b);
+    public Page<Book> listBooks(SortedCatalog.Order order, int pageSize, String token) {
+        awaitIndexes();
+        requireInMemoryCatalog("listBooks");
+        checkPageSize(pageSize);
+        SortedView view = catalog.sorted.view(Objects.requireNonNull(order));
+        Iterator<Book> it = token == null
+                ? view.iterator()
+                : view.iteratorAfter(PageToken.decode(token, PageToken.Source.LIST, "", order));
+        List<Book> items = new ArrayList<>(Math.min(pageSize, view.size()));
+        while (items.size() < pageSize && it.hasNext()) {
+            items.add(it.next());
+        }
+        String next = it.hasNext() ? PageToken.encode(PageToken.Source.LIST, "", order, items.get(items.size() - 1)) : null;
+        return new Page<>(items, next);
+    }
+
+    /**
+     * One page of {@link #searchByTitle(String)} results in {@code order}; tokens work as in
+     * {@link #listBooks(SortedCatalog.Order, int, String)}. The matches for a fragment are found once and
+     * cached (in each order asked for), so later pages cost O(log m + pageSize) for m matches and
+     * allocate O(pageSize).
+     */
+    public Page<Book> searchByTitle(String fragment, SortedCatalog.Order order, int pageSize, String token) {
+        return searchPage(SearchCache.Type.TITLE, PageToken.Source.TITLE_SEARCH, fragment, order, pageSize, token);
+    }
+
+    /**
+     * One page of {@link #searchByAuthor(String)} results in {@code order}; see
+     * {@link #searchByTitle(String, SortedCatalog.Order, int, String)}.
+     */
+    public Page<Book> searchByAuthor(String fragment, SortedCatalog.Order order, int pageSize, String token) {
+        return searchPage(SearchCache.Type.AUTHOR, PageToken.Source.AUTHOR_SEARCH, fragment, order, pageSize, token);
+    }
+
+    private Page<Book> searchPage(SearchCache.Type type, PageToken.Source source, String fragment,
+                                  SortedCatalog.Order order, int pageSize, String token) {
+        awaitIndexes();
+        requireInMemoryCatalog("Paged search");
+        checkPageSize(pageSize);
+        Objects.requireNonNull(order);
+        String query = TrigramIndex.normalize(fragment);
+        Book after = token == null ? null : PageToken.decode(token, source, query, order);
+        catalogLock.readLock().lock();
+        try {
+            int[] serials = matchesInOrder(type, fragment, order);
+            PersistentIntMap<Book> books = catalog.books;
+            int from = after == null ? 0 : firstAfter(serials, after, order, books);
+            int end = (int) Math.min(serials.length, (long) from + pageSize);
+            List<Book> items = new ArrayList<>(end - from);
+            for (int i = from; i < end; i++) {
+                items.add(books.get(serials[i]));
+            }
+            String next = end < serials.length ? PageToken.encode(source, query, order, items.get(items.size() - 1)) : null;
+            return new Page<>(items, next);
+        } finally {
+            catalogLock.readLock().unlock();
+        }
+    }
+
+    // caller holds the catalog read lock. The serial-ordered matches are the plain search's cache entry;
+    // other orders are sorted from those once and cached alongside.
+    private int[] matchesInOrder(SearchCache.Type type, String fragment, SortedCatalog.Order order) {
+        int[] serials = searchCache.get(type, fragment, order);
+        if (serials != null) return serials;
+        int[] bySerial = order == SortedCatalog.Order.SERIAL ? null : searchCache.get(type, fragment);
+        if (bySerial == null) {
+            bySerial = (type == SearchCache.Type.TITLE ? titleIndex : authorIndex).search(fragment);
+            searchCache.put(type, fragment, bySerial);
+        }
+        if (order == SortedCatalog.Order.SERIAL) return bySerial;
+        Book[] sorted = order.ordering().sortedArray(booksFor(bySerial));
+        serials = new int[sorted.length];
+        for (int i = 0; i < sorted.length; i++) {
+            serials[i] = sorted[i].get_serial_number();
+        }
+        searchCache.put(type, fragment, order, serials);
+        return serials;
+    }
+
+    // index of the first match that sorts after the token's book
+    private static int firstAfter(int[] serials, Book after, SortedCatalog.Order order, PersistentIntMap<Book> books) {
+        if (order == SortedCatalog.Order.SERIAL) {
+            int i = Arrays.binarySearch(serials, after.get_serial_number());
+            return i >= 0 ? i + 1 : -i - 1;
+        }
+        Comparator<Book> cmp = order.comparator();
+        int lo = 0;
+        int hi = serials.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (cmp.compare(books.get(serials[mid]), after) <= 0) lo = mid + 1;
+            else hi = mid;
+        }
+        return lo;
+    }
+
+    private static void checkPageSize(int pageSize) {
+        if (pageSize < 1) throw new IllegalArgumentException("pageSize must be at least 1");
+    }
+
+    /**
+     * Hit/miss/eviction/invalidation counters for the search result cache.
+     */
+    public SearchCache.Stats searchCacheStats() {
+        return searchCache.stats();
+    }
+
+    /**
+     * The same counters for the hot-book cache that serves getBook in lazy catalog mode (invalidations
+     * are books dropped because they were replaced or removed); empty in eager mode, which has no cache.
+     */
+    public Optional<SearchCache.Stats> hotBookCacheStats() {
+        return lazyCatalog ? Optional.of(hotBooks.stats()) : Optional.empty();
+    }
+
+    /**
+     * Type-ahead: up to {@code k} books whose title starts with {@code prefix} (case-insensitive),
+     * in title order.
+     */
+    public List<Book> completeTitle(String prefix, int k) {
+        awaitIndexes();
+        requireInMemoryCatalog("completeTitle");
+        catalogLock.readLock().lock();
+        try {
+            return booksFor(titlePrefixes.complete(prefix, k));
+        } finally {
+            catalogLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Type-ahead: up to {@code k} distinct author names starting with {@code prefix} (case-insensitive),
+     * in order.
+     */
+    public List<String> completeAuthor(String prefix, int k) {
+        awaitIndexes();
+        requireInMemoryCatalog("completeAuthor");
+        catalogLock.readLock().lock();
+        try {
+            int[] serials = authorPrefixes.completeDistinct(prefix, k);
+            PersistentIntMap<Book> books = catalog.books;
+            List<String> out = new ArrayList<>(serials.length);
+            for (int serial : serials) {
+                out.add(books.get(serial).get_author());
+            }
+            return out;
+        } finally {
+            catalogLock.readLock().unlock();
+        }
+    }
+
+    // caller holds the catalog read lock, so the indexes and the catalog agree
+    private List<Book> booksFor(int[] serials) {
+        PersistentIntMap<Book> books = catalog.books;
+        List<Book> out = new ArrayList<>(serials.length);
+        for (int serial : serials) {
+            out.add(books.get(serial));
         }
         return out;
     }
+
+    // -------------------------
+    // Loans
+    // -------------------------
+
     /**
      * Checkout a book by serial number to a user id. Returns the due date.
      *
      * @throws BookNotFoundException if book does not exist
      * @throws BookAlreadyRentedException if book is already rented
      * @throws UserNotFoundException if user id doesn't exist in UserService
+     * @throws LoanLimitExceededException if the user already has the maximum number of books out
      */
-    public synchronized LocalDate checkoutBook(int serialNumber, int userId)
-            throws BookNotFoundException, BookAlreadyRentedException, UserNotFoundException {
+    public LocalDate checkoutBook(int serialNumber, int userId)
+            throws BookNotFoundException, BookAlreadyRentedException, UserNotFoundException,
+            LoanLimitExceededException {
+        awaitReady();
 
-        Book book = inventory.get(serialNumber);
-        if (book == null) throw new BookNotFoundException(serialNumber);
-        if (rentals.containsKey(serialNumber)) throw new BookAlreadyRentedException(serialNumber);
+        LocalDate due;
+        LoanStripe stripe = stripeFor(serialNumber);
+        lockForLookup();
+        try {
+            synchronized (stripe) {
+                if (!hasBook(serialNumber)) throw new BookNotFoundException(serialNumber);
+                if (stripe.loans.contains(serialNumber)) throw new BookAlreadyRentedException(serialNumber);
 
-        Optional<User> userOpt = userService.getUserById(userId);
-        if (userOpt.isEmpty()) throw new UserNotFoundException(userId);
+                Optional<User> userOpt = userService.getUserById(userId);
+                if (userOpt.isEmpty()) throw new UserNotFoundException(userId);
 
-        LocalDate due = LocalDate.now().plusDays(defaultLoanDays);
-        rentals.put(serialNumber, userId);
-        dueDates.put(serialNumber, due);
+                int limit = loanLimit;
+                if (!loansByUser.tryAdd(userId, serialNumber, limit)) throw new LoanLimitExceededException(userId, limit);
+
+                due = LocalDate.now().plusDays(defaultLoanDays);
+                stripe.forWrite().put(serialNumber, userId, (int) due.toEpochDay());
+                // journaled under the stripe so records for one book are in the same order as the changes
+                try {
+                    journal.checkout(serialNumber, userId, due.toEpochDay());
+                } catch (IOException e) {
+                    System.err.println("Failed to journal checkout of book " + serialNumber + ": " + e.getMessage());
+                }
+            }
+        } finally {
+            unlockForLookup();
+        }
+        maybeCompact();
         return due;
     }
 
     /**
-     * Return a book. If the book is overdue, returns the fine amount (in currency units).
-     * Returns 0.0 if no fine.
+     * Return a book. If the book is overdue, returns the fine amount (in currency units) as decided by
+     * the current {@link FinePolicy}. Returns 0.0 if no fine.
      *
      * @throws BookNotFoundException if book does not exist
      * @throws NotRentedException if book is not currently rented
      * @throws NotRentedByUserException if the provided userId is not the renter
      */
-    public synchronized double returnBook(int serialNumber, int userId)
+    public double returnBook(int serialNumber, int userId)
             throws BookNotFoundException, NotRentedException, NotRentedByUserException {
+        awaitReady();
 
-        Book book = inventory.get(serialNumber);
-        if (book == null) throw new BookNotFoundException(serialNumber);
+        int dueDay;
+        LoanStripe stripe = stripeFor(serialNumber);
+        lockForLookup();
+        try {
+            synchronized (stripe) {
+                if (!hasBook(serialNumber)) throw new BookNotFoundException(serialNumber);
 
-        if (!rentals.containsKey(serialNumber)) throw new NotRentedException(serialNumber);
+                int slot = stripe.loans.find(serialNumber);
+                if (slot < 0) throw new NotRentedException(serialNumber);
+                int renterId = stripe.loans.renterAt(slot);
+                if (renterId != userId) throw new NotRentedByUserException(serialNumber, renterId, userId);
 
-        int renterId = rentals.get(serialNumber);
-        if (renterId != userId) throw new NotRentedByUserException(serialNumber, renterId, userId);
+                dueDay = stripe.loans.dueEpochDayAt(slot);
+                stripe.forWrite().remove(serialNumber);
+                loansByUser.remove(renterId, serialNumber);
+                try {
+                    journal.returned(serialNumber);
+                } catch (IOException e) {
+                    System.err.println("Failed to journal return of book " + serialNumber + ": " + e.getMessage());
+                }
+            }
+        } finally {
+            unlockForLookup();
+        }
 
-        LocalDate due = dueDates.get(serialNumber);
+        LocalDate due = LocalDate.ofEpochDay(dueDay);
         LocalDate now = LocalDate.now();
         double fine = 0.0;
-        if (due != null && now.isAfter(due)) {
-            long daysOver = ChronoUnit.DAYS.between(due, now);
-            final double finePerDay = 0.50; // fixed policy; adjust if desired
-            fine = daysOver * finePerDay;
+        if (now.isAfter(due)) {
+            fine = finePolicy.fine(due, now, userService.getUserById(userId).orElse(null));
         }
-
-        rentals.remove(serialNumber);
-        dueDates.remove(serialNumber);
+        maybeCompact();
         return fine;
     }
 
+    /**
+     * The open loans of {@code userId}, earliest due date first (then by serial). Answered from the
+     * per-user index, so it costs O(k log k) for k loans, not a walk over every loan.
+     */
+    public List<Loan> listLoansForUser(int userId) {
+        awaitReady();
+        int[] serials = loansByUser.serialsOf(userId);
+        List<Loan> out = new ArrayList<>(serials.length);
+        for (int serial : serials) {
+            LoanStripe stripe = stripeFor(serial);
+            synchronized (stripe) {
+                int slot = stripe.loans.find(serial);
+                // returned (or re-rented) since the index was read
+                if (slot < 0 || stripe.loans.renterAt(slot) != userId) continue;
+                out.add(new Loan(serial, userId, LocalDate.ofEpochDay(stripe.loans.dueEpochDayAt(slot))));
+            }
+        }
+        out.sort(Comparator.comparing(Loan::dueDate).thenComparingInt(Loan::serial));
+        return out;
+    }
+
+    /**
+     * Number of books {@code userId} has out.
+     */
+    public int countLoansForUser(int userId) {
+        awaitReady();
+        return loansByUser.count(userId);
+    }
+
+    /**
+     * Sets the most books one user may have out at once; checkoutBook refuses any more. Loans already
+     * over a lowered limit are kept. Default: no limit.
+     *
+     * @throws IllegalArgumentException if limit is negative
+     */
+    public void setLoanLimit(int limit) {
+        if (limit < 0) throw new IllegalArgumentException("loan limit must not be negative: " + limit);
+        this.loanLimit = limit;
+    }
+
+    public int getLoanLimit() {
+        return loanLimit;
+    }
+
+    /**
+     * Fines accrued on every open loan as of {@code asOf}, computed in parallel by the current fine policy
+     * (the same one returnBook uses). Loans owing nothing are left out; the stream is lazy and unordered:
+     * it splits by stripe, and a stripe's overdue loans are copied out under its lock only when the
+     * stream reaches that stripe.
+     */
+    public Stream<Fine> assessFines(LocalDate asOf) {
+        awaitReady();
+        int day = LibrarySnapshot.toDay(asOf);
+        Stream<Loan> overdue = day == Integer.MIN_VALUE ? Stream.empty()
+                : Arrays.stream(stripes).parallel()
+                        .flatMap(stripe -> loansIn(stripe, Integer.MIN_VALUE, day - 1).stream());
+        return new FineAssessor(finePolicy, userService).assess(overdue, asOf);
+    }
+
+    /**
+     * Replaces the fine policy used by returnBook and assessFines. Default: 0.50 per day, no grace, no cap.
+     */
+    public void setFinePolicy(FinePolicy policy) {
+        this.finePolicy = Objects.requireNonNull(policy);
+    }
+
+    public FinePolicy getFinePolicy() {
+        return finePolicy;
+    }
+
     /**
      * Returns true if the book is currently rented.
      */
-    public synchronized boolean isRented(int serialNumber) {
-        return rentals.containsKey(serialNumber);
+    public boolean isRented(int serialNumber) {
+        awaitReady();
+        LoanStripe stripe = stripeFor(serialNumber);
+        synchronized (stripe) {
+            return stripe.loans.contains(serialNumber);
+        }
     }
 
     /**
      * Returns the user id who has rented the book, or Optional.empty() if not rented.
      */
-    public synchronized Optional<Integer> getRenter(int serialNumber) {
-        return Optional.ofNullable(rentals.get(serialNumber));
+    public Optional<Integer> getRenter(int serialNumber) {
+        awaitReady();
+        LoanStripe stripe = stripeFor(serialNumber);
+        synchronized (stripe) {
+            int slot = stripe.loans.find(serialNumber);
+            return slot < 0 ? Optional.empty() : Optional.of(stripe.loans.renterAt(slot));
+        }
     }
 
     /**
      * Returns the due date for a rented book, or Optional.empty() if not rented / no due date.
      */
-    public synchronized Optional<LocalDate> getDueDate(int serialNumber) {
-        return Optional.ofNullable(dueDates.get(serialNumber));
+    public Optional<LocalDate> getDueDate(int serialNumber) {
+        awaitReady();
+        LoanStripe stripe = stripeFor(serialNumber);
+        synchronized (stripe) {
+            int slot = stripe.loans.find(serialNumber);
+            return slot < 0 ? Optional.empty() : Optional.of(LocalDate.ofEpochDay(stripe.loans.dueEpochDayAt(slot)));
+        }
     }
 
     /**
      * Returns a human-readable list of current rentals: one entry per rented book with book info,
      * renter id and renter name (if available), and due date.
+     * Built from a fresh snapshot, so no lock is held while it runs.
+     */
+    public List<String> listRenters() {
+        return listRenters(snapshot());
+    }
+
+    /**
+     * Like {@link #listRenters()}, for the loans in the given snapshot (whose version says which
+     * moment the list reflects).
      */
-    public synchronized List<String> listRenters() {
-        List<String> out = new ArrayList<>();
-        for (Map.Entry<Integer, Integer> entry : rentals.entrySet()) {
-            int serial = entry.getKey();
-            int userId = entry.getValue();
-            Book b = inventory.get(serial);
+    public List<String> listRenters(LibrarySnapshot snap) {
+        List<String> out = new ArrayList<>(snap.loanCount());
+        for (Loan loan : snap.loans()) {
+            int serial = loan.serial();
+            int userId = loan.userId();
+            Book b = (lazyCatalog ? getBook(serial) : snap.book(serial)).orElse(null);
             String title = (b != null) ? b.get_title() : "(unknown book)";
             Optional<User> uOpt = userService.getUserById(userId);
             String userDesc = uOpt.map(u -> u.id() + " - " + u.name()).orElse(String.valueOf(userId));
-            String due = dueDates.get(serial) != null ? dueDates.get(serial).toString() : "no due date";
+            String due = loan.dueDate() != null ? loan.dueDate().toString() : "no due date";
             out.add(String.format("%d: \"%s\" by %s — rented by %s — due %s",
                     serial, title, (b != null ? b.get_author() : "unknown"), userDesc, due));
         }
         return out;
     }
 
+    /**
+     * Open loans that are overdue as of {@code asOf} (due on an earlier day), earliest due date first.
+     * Answered from each stripe's due-date index under its lock: O(log n + k) per stripe rather than a
+     * walk over every loan, and no table is copied.
+     */
+    public List<Loan> listOverdue(LocalDate asOf) {
+        int day = LibrarySnapshot.toDay(asOf);
+        return day == Integer.MIN_VALUE ? List.of() : loansDueBetween(Integer.MIN_VALUE, day - 1);
+    }
+
+    /**
+     * Number of open loans due from {@code from} to {@code to}, both inclusive.
+     */
+    public int countDueBetween(LocalDate from, LocalDate to) {
+        awaitReady();
+        int fromDay = LibrarySnapshot.toDay(from);
+        int toDay = LibrarySnapshot.toDay(to);
+        int n = 0;
+        for (LoanStripe stripe : stripes) {
+            synchronized (stripe) {
+                n += stripe.loans.dueIndex().countBetween(fromDay, toDay);
+            }
+        }
+        return n;
+    }
+
+    /**
+     * Every open loan in due-date order (then by serial).
+     */
+    public List<Loan> loansByDueDate() {
+        return loansDueBetween(Integer.MIN_VALUE, Integer.MAX_VALUE);
+    }
+
+    // loans due from fromDay to toDay (inclusive), by due date then serial
+    private List<Loan> loansDueBetween(int fromDay, int toDay) {
+        awaitReady();
+        List<Loan> out = new ArrayList<>();
+        for (LoanStripe stripe : stripes) {
+            out.addAll(loansIn(stripe, fromDay, toDay));
+        }
+        out.sort(Comparator.comparing(Loan::dueDate).thenComparingInt(Loan::serial));
+        return Collections.unmodifiableList(out);
+    }
+
+    // one stripe's loans due from fromDay to toDay (inclusive), in no particular order, copied out under
+    // its lock; the stripe is never marked shared, so its next write doesn't copy its table
+    private static List<Loan> loansIn(LoanStripe stripe, int fromDay, int toDay) {
+        List<Loan> out = new ArrayList<>();
+        synchronized (stripe) {
+            LoanTable t = stripe.loans;
+            t.dueIndex().forEachBucket(fromDay, toDay, (day, serials) -> {
+                LocalDate due = LocalDate.ofEpochDay(day);
+                for (int serial : serials.toArray()) {
+                    out.add(new Loan(serial, t.renterAt(t.find(serial)), due));
+                }
+            });
+        }
+        return out;
+    }
+
+    /**
+     * A consistent, immutable view of the inventory and the open loans as of now, with its version.
+     * Costs O(LOAN_STRIPES): the stripes are locked just long enough to hand over their tables.
+     * In lazy catalog mode the snapshot holds the loans only (its book views are empty); look books up
+     * with {@link #getBook(int)}.
+     */
+    public LibrarySnapshot snapshot() {
+        awaitReady();
+        LoanTable[] tables = new LoanTable[stripes.length];
+        long[] version = new long[1];
+        Catalog[] cat = new Catalog[1];
+        withAllStripes(0, () -> {
+            // removeBook drops books under their stripe, so with every stripe held no rented book can vanish
+            cat[0] = catalog;
+            version[0] = cat[0].version + freezeLoans(tables);
+        });
+        return new LibrarySnapshot(version[0], cat[0].books, cat[0].sorted, tables);
+    }
+
+    /**
+     * Approximate heap used by the catalog, its indexes and the open loans, per structure and per book;
+     * see {@link FootprintReport}. Walks every index, so O(n); holds the catalog read lock meanwhile.
+     */
+    public FootprintReport footprint() {
+        awaitIndexes();
+        long loanBytes = snapshot().loanMemoryBytes();
+        catalogLock.readLock().lock();
+        try {
+            if (lazyCatalog) {
+                long cached = hotBooks.size() * (HeapSizes.hashMapEntry() + 2 * HeapSizes.REFERENCE
+                        + HeapSizes.object(2 * HeapSizes.REFERENCE + 4));
+                return new FootprintReport(store.size(), 0, 0, 0, 0, store.memoryBytes() + cached, 0, 0, loanBytes);
+            }
+            Catalog cat = catalog;
+            long titleBytes = 0;
+            for (Book b : cat.books.values()) {
+                titleBytes += HeapSizes.string(b.get_title());
+            }
+            long searchBytes = titleIndex.memoryBytes() + titleIndex.textBytes() + authorIndex.memoryBytes()
+                    + titlePrefixes.memoryBytes() + authorPrefixes.memoryBytes();
+            return new FootprintReport(cat.books.size(), authors.size(),
+                    cat.books.size() * HeapSizes.object(2 * HeapSizes.REFERENCE + 4), titleBytes,
+                    authors.memoryBytes(), cat.books.memoryBytes(), cat.sorted.memoryBytes(), searchBytes,
+                    loanBytes);
+        } finally {
+            catalogLock.readLock().unlock();
+        }
+    }
+
+    // caller holds every stripe; hands each stripe's table to the caller and returns the loan version
+    private long freezeLoans(LoanTable[] into) {
+        long version = 0;
+        for (int i = 0; i < stripes.length; i++) {
+            into[i] = stripes[i].loans;
+            stripes[i].shared = true;
+            version += stripes[i].version;
+        }
+        return version;
+    }
+
+    private LoanStripe stripeFor(int serial) {
+        return stripes[stripeIndex(serial)];
+    }
+
+    static int stripeIndex(int serial) {
+        // Fibonacci hashing, so runs of consecutive serials spread over all stripes
+        return (serial * 0x9E3779B9) >>> (32 - Integer.numberOfTrailingZeros(LOAN_STRIPES));
+    }
+
+    // runs body with every stripe locked (in index order), i.e. with all loan changes held off
+    private void withAllStripes(int from, Runnable body) {
+        if (from == stripes.length) {
+            body.run();
+            return;
+        }
+        synchronized (stripes[from]) {
+            withAllStripes(from + 1, body);
+        }
+    }
+
+    /**
+     * Loan state for the serial numbers that hash to one stripe; guarded by its own monitor.
+     */
+    private static final class LoanStripe {
+        LoanTable loans = new LoanTable();
+
+        // loans has been handed to a snapshot, so it must be copied before it changes
+        boolean shared;
+
+        // changes made to this stripe; the snapshot version adds these up
+        long version;
+
+        // the table to change, copied first if a snapshot holds it
+        LoanTable forWrite() {
+            if (shared) {
+                loans = loans.copy();
+                shared = false;
+            }
+            version++;
+            return loans;
+        }
+    }
+
+    /**
+     * One published version of the inventory.
+     */
+    private static final class Catalog {
+        final PersistentIntMap<Book> books;
+        final SortedCatalog sorted; // the same books in title, author and serial order
+        final long version; // catalog changes so far
+
+        Catalog(PersistentIntMap<Book> books, SortedCatalog sorted, long version) {
+            this.books = books;
+            this.sorted = sorted;
+            this.version = version;
+        }
+    }
+
+    /**
+     * Pending changes to the published Catalog; the inventory and its sorted orders change together.
+     */
+    private static final class CatalogEdit {
+        final PersistentIntMap.Builder<Book> books;
+        final SortedCatalog.Builder sorted;
+
+        CatalogEdit(Catalog from) {
+            this.books = from.books.builder();
+            this.sorted = from.sorted.builder();
+        }
+    }
+
     // -------------------------
     // Persistence
     // -------------------------
 
     /**
-     * Load books from the booksFilePath. If the file does not exist, inventory is left empty.
-     * Expected line format (matching Book(String whole_line)): author,title,serial_number
+     * Opens (or creates) the book store and loads the inventory from it. A newly created store is
+     * seeded from the file at booksFilePath (see seedStore). The inventory is published as it loads (see
+     * StartupLoad); the indexes and sorted orders are built afterwards, by buildIndexes.
+     */
+    private BookStore openStore(String storePath) {
+        Path path = Paths.get(storePath);
+        try {
+            StartupLoad load = lazyCatalog ? null : new StartupLoad();
+            boolean seeded = false;
+            if (!Files.exists(path)) {
+                seedStore(path, load);
+                seeded = true;
+            }
+            BookStore s = new BookStore(path);
+            if (load != null && !seeded) s.forEach(load::add);
+            if (load != null) load.publish();
+            return s;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to open book store " + storePath, e);
+        }
+    }
+
+    /**
+     * Creates the book store at {@code path} from the books file. It is written under a temp name and
+     * renamed into place only once it is complete, so a failure part way leaves no store behind (the
+     * next startup seeds again) rather than one holding only the books written before it. Books that
+     * don't fit the store are skipped and counted, as in addBooks.
      */
-    private synchronized void loadBooks() {
-        inventory.clear();
+    private void seedStore(Path path, StartupLoad load) throws IOException {
+        PersistentIntMap.Builder<Book> books = PersistentIntMap.<Book>empty().builder();
+        loadBooks(books);
+        Path tmp = Paths.get(path + ".tmp");
+        Files.deleteIfExists(tmp); // left by a seed that failed
+        int skipped = 0;
+        try (BookStore seed = new BookStore(tmp)) {
+            for (Book b : books.build().values()) {
+                if (!BookStore.fits(b)) {
+                    skipped++;
+                    continue;
+                }
+                seed.put(b);
+                if (load != null) load.add(b);
+            }
+        }
+        if (skipped > 0) {
+            System.err.println("Skipped " + skipped + " books in " + booksFilePath + " too long for the book store (max "
+                    + BookStore.AUTHOR_MAX_BYTES + "/" + BookStore.TITLE_MAX_BYTES + " bytes of author/title)");
+        }
+        try {
+            Files.move(tmp, path, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            Files.move(tmp, path);
+        }
+    }
+
+    /**
+     * Collects the books read at startup into the inventory, publishing every IMPORT_BATCH of them, so
+     * getBook answers for the ones already loaded while the rest are still coming in (see startAsync).
+     * Nothing else changes the catalog until the load is done.
+     */
+    private final class StartupLoad {
+        private PersistentIntMap.Builder<Book> books = catalog.books.builder();
+        private int pending;
+
+        void add(Book b) {
+            books.put(b.get_serial_number(), b);
+            if (++pending == IMPORT_BATCH) publish();
+        }
+
+        void publish() {
+            catalog = new Catalog(books.build(), SortedCatalog.empty(), 0);
+            books = catalog.books.builder();
+            pending = 0;
+        }
+    }
+
+    /**
+     * Load books from the file at booksFilePath. If the file does not exist, inventory is left empty.
+     * A CatalogSnapshot is read as such; otherwise the expected line format (matching
+     * Book(String whole_line)) is author,title,serial_number, parsed in parallel chunks by
+     * ParallelBookLoader; see {@link #lastTextLoad()}.
+     */
+    private void loadBooks(PersistentIntMap.Builder<Book> books) {
         File f = new File(booksFilePath);
         if (!f.exists()) return;
 
+        try {
+            if (CatalogSnapshot.isSnapshot(f.toPath())) {
+                for (Book b : CatalogSnapshot.read(f.toPath())) {
+                    books.put(b.get_serial_number(), b);
+                }
+                return;
+            }
+            if (OffHeapCatalog.isOffHeapCatalog(f.toPath())) {
+                OffHeapCatalog.map(f.toPath()).forEach(v -> books.put(v.get_serial_number(), v.toBook()));
+                return;
+            }
+            ParallelBookLoader.Result result = new ParallelBookLoader().load(f.toPath());
+            for (Book b : result.books()) {
+                books.put(b.get_serial_number(), b);
+            }
+            if (result.rejected() > 0) {
+                System.err.println("Skipped " + result.rejected() + " malformed lines in " + booksFilePath);
+            }
+            lastTextLoad = result;
+        } catch (IOException | UncheckedIOException e) {
+            // Fail quietly in library context; could be logged or rethrown as runtime in stricter apps
+            System.err.println("Failed to load books from " + booksFilePath + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Load open loans from loansFilePath. Expected line format: serial_number,userId,dueDate (ISO date).
+     */
+    private void loadLoans() {
+        File f = new File(loansFilePath);
+        if (!f.exists()) return;
+
+        CsvCodec.Record rec = new CsvCodec.Record();
         try (BufferedReader br = new BufferedReader(new FileReader(f))) {
             String line;
             while ((line = br.readLine()) != null) {
                 line = line.trim();
                 if (line.isEmpty()) continue;
-                Book b = new Book(line);
-                inventory.put(b.get_serial_number(), b);
+                long serial = CsvCodec.NOT_AN_INT;
+                long userId = CsvCodec.NOT_AN_INT;
+                LocalDate due = null;
+                if (CsvCodec.parse(line, rec) && rec.fieldCount() == 3) {
+                    serial = rec.intField(0);
+                    userId = rec.intField(1);
+                    try {
+                        due = LocalDate.parse(rec.field(2));
+                    } catch (DateTimeParseException e) {
+                        due = null;
+                    }
+                }
+                if (serial == CsvCodec.NOT_AN_INT || userId == CsvCodec.NOT_AN_INT || due == null) {
+                    System.err.println("Skipping malformed loan line in " + loansFilePath + ": " + line);
+                    continue;
+                }
+                restoreLoan((int) serial, (int) userId, Math.toIntExact(due.toEpochDay()));
             }
         } catch (IOException e) {
-            // Fail quietly in library context; could be logged or rethrown as runtime in stricter apps
-            System.err.println("Failed to load books from " + booksFilePath + ": " + e.getMessage());
+            System.err.println("Failed to load loans from " + loansFilePath + ": " + e.getMessage());
         }
     }
 
+    // startup only (loans file and journal replay): records a loan in its stripe and the per-user index,
+    // replacing any loan of the same serial
+    private void restoreLoan(int serial, int userId, int dueEpochDay) {
+        LoanTable loans = stripeFor(serial).loans;
+        int slot = loans.find(serial);
+        if (slot >= 0) loansByUser.remove(loans.renterAt(slot), serial);
+        loans.put(serial, userId, dueEpochDay);
+        loansByUser.add(userId, serial);
+    }
+
     /**
-     * Save the current inventory to booksFilePath. Each book written as: author,title,serial_number
+     * Record counts and timing of the last load from a text books file (the parallel loader's result),
+     * or Optional.empty() if this Librarian started from an existing book store or a snapshot.
      */
-    private synchronized void saveBooks() {
-        File f = new File(booksFilePath);
-        try (BufferedWriter bw = new BufferedWriter(new FileWriter(f, false))) {
-            for (Book b : inventory.values()) {
-                String line = String.format("%s,%s,%d", escapeCsv(b.get_author()), escapeCsv(b.get_title()), b.get_serial_number());
-                bw.write(line);
+    public Optional<ParallelBookLoader.Result> lastTextLoad() {
+        awaitReady();
+        return Optional.ofNullable(lastTextLoad);
+    }
+
+    /**
+     * Opens the journal and replays it on top of the state loaded from the snapshot files.
+     */
+    private LibraryJournal openJournal(String journalPath) {
+        try {
+            LibraryJournal j = new LibraryJournal(Paths.get(journalPath));
+            j.replay(new LibraryJournal.Listener() {
+                @Override
+                public void onAdd(int serial, String author, String title) {
+                    Book b = new Book(author, title, serial);
+                    if (!BookStore.fits(b)) { // written before addBook checked; the store can't hold it
+                        System.err.println("Skipping journaled book " + serial + " in " + journalPath
+                                + ": too long for the book store");
+                        return;
+                    }
+                    try {
+                        saveBook(b);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException("Failed to replay book " + serial + " into " + store.path(), e);
+                    }
+                }
+
+                @Override
+                public void onRemove(int serial) {
+                    store.delete(serial);
+                    CatalogEdit edit = new CatalogEdit(catalog);
+                    dropBook(edit, serial);
+                    publish(edit);
+                }
+
+                @Override
+                public void onCheckout(int serial, int userId, long dueEpochDay) {
+                    restoreLoan(serial, userId, Math.toIntExact(dueEpochDay));
+                }
+
+                @Override
+                public void onReturn(int serial) {
+                    LoanTable loans = stripeFor(serial).loans;
+                    int slot = loans.find(serial);
+                    if (slot < 0) return;
+                    loansByUser.remove(loans.renterAt(slot), serial);
+                    loans.remove(serial);
+                }
+            });
+            return j;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to open journal " + journalPath, e);
+        }
+    }
+
+    /**
+     * Folds the journal into a fresh loans snapshot and empties it; also forces the book store to disk.
+     * Called automatically every COMPACT_THRESHOLD checkouts/returns; may also be called directly, e.g. at shutdown.
+     * The stripes are held only while the loans are frozen and the journal is rotated aside; the snapshot
+     * file is written afterwards, while checkouts and returns carry on into the emptied journal.
+     */
+    public void compact() {
+        awaitReady();
+        synchronized (compactGuard) {
+            catalogLock.readLock().lock();
+            try {
+                store.sync();
+            } finally {
+                catalogLock.readLock().unlock();
+            }
+            LoanTable[] tables = new LoanTable[stripes.length];
+            IOException[] rotateFailure = new IOException[1];
+            withAllStripes(0, () -> {
+                freezeLoans(tables);
+                try {
+                    journal.rotate();
+                } catch (IOException e) {
+                    rotateFailure[0] = e;
+                }
+            });
+            try {
+                if (rotateFailure[0] != null) throw rotateFailure[0];
+                saveLoans(tables);
+                journal.discardRotated();
+            } catch (IOException e) {
+                // nothing is lost: the records are still in the journal or its rotated side file, both of
+                // which are replayed on startup; the next compaction tries again
+                System.err.println("Failed to compact journal for " + booksFilePath + ": " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Compacts, then closes the journal and the book store.
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            indexesReady.join(); // a background load finishes first
+        } catch (CompletionException e) {
+            // it failed: close whatever it opened
+            if (journal != null) journal.close();
+            if (store != null) store.close();
+            return;
+        }
+        synchronized (compactGuard) {
+            compact();
+            catalogLock.writeLock().lock();
+            try {
+                journal.close();
+                store.close();
+            } finally {
+                catalogLock.writeLock().unlock();
+            }
+        }
+    }
+
+    private void maybeCompact() {
+        if (journal.size() < COMPACT_THRESHOLD) return;
+        synchronized (compactGuard) {
+            // another thread may have compacted while we waited
+            if (journal.size() >= COMPACT_THRESHOLD) compact();
+        }
+    }
+
+    /**
+     * Writes the current inventory to a plain text file. Each book written as: author,title,serial_number
+     */
+    public void exportBooks(String path) throws IOException {
+        awaitReady();
+        Collection<Book> books = allBooks();
+        writeAtomically(path, bw -> {
+            for (Book b : books) {
+                CsvCodec.appendField(bw, b.get_author());
+                bw.write(',');
+                CsvCodec.appendField(bw, b.get_title());
+                bw.write(',');
+                bw.write(Integer.toString(b.get_serial_number()));
                 bw.newLine();
             }
+        });
+    }
+
+    /**
+     * Writes the current inventory to a binary CatalogSnapshot, which loads much faster than the text
+     * format (as the seed file at booksFilePath, through importCatalog, or CatalogSnapshot.read).
+     */
+    public void exportSnapshot(String path) throws IOException {
+        awaitReady();
+        CatalogSnapshot.write(Paths.get(path), allBooks());
+    }
+
+    /**
+     * Writes the current inventory as a saved OffHeapCatalog, which OffHeapCatalog.map opens without
+     * decoding any string (and which the seed file at booksFilePath and importCatalog also accept).
+     */
+    public void exportOffHeap(String path) throws IOException {
+        awaitReady();
+        OffHeapCatalog.of(allBooks()).save(Paths.get(path));
+    }
+
+    // every book of a saved OffHeapCatalog, as views; addBook-style copies are made as they are applied
+    private static List<Book> offHeapBooks(Path path) throws IOException {
+        List<Book> out = new ArrayList<>();
+        OffHeapCatalog.map(path).forEach(out::add);
+        return out;
+    }
+
+    /**
+     * Save open loans to loansFilePath. Each loan written as: serial_number,userId,dueDate
+     * The tables are frozen (see freezeLoans), so no lock is needed.
+     */
+    private void saveLoans(LoanTable[] tables) throws IOException {
+        writeAtomically(loansFilePath, bw -> {
+            for (LoanTable t : tables) {
+                for (int s = t.next(0); s >= 0; s = t.next(s + 1)) {
+                    bw.write(t.serialAt(s) + "," + t.renterAt(s) + "," + LocalDate.ofEpochDay(t.dueEpochDayAt(s)));
+                    bw.newLine();
+                }
+            }
+        });
+    }
+
+    private interface LineWriter {
+        void write(BufferedWriter bw) throws IOException;
+    }
+
+    // write to a temp file and rename over the target, so a crash never leaves a half-written snapshot
+    private void writeAtomically(String path, LineWriter body) throws IOException {
+        Path target = Paths.get(path);
+        Path tmp = Paths.get(path + ".tmp");
+        try (BufferedWriter bw = Files.newBufferedWriter(tmp)) {
+            body.write(bw);
+        }
+        try {
+            Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
         } catch (IOException e) {
-            System.err.println("Failed to save books to " + booksFilePath + ": " + e.getMessage());
+            Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING);
         }
     }
 
-    // Simple CSV escape for commas inside author/title (wrap in quotes if contains comma or quote)
-    private String escapeCsv(String s) {
-        if (s == null) return "";
-        if (s.contains(",") || s.contains("\"")) {
-            return "\"" + s.replace("\"", "\"\"") + "\"";
-        } else {
-            return s;
+    /**
+     * Counts from a bulk load: books inserted as new, books that replaced an existing serial number,
+     * and records rejected (malformed, too long, or a duplicate serial within the load).
+     */
+    public static final class ImportResult {
+        private int inserted;
+        private int replaced;
+        private int rejected;
+
+        public int inserted() {
+            return inserted;
+        }
+
+        public int replaced() {
+            return replaced;
+        }
+
+        public int rejected() {
+            return rejected;
+        }
+
+        @Override
+        public String toString() {
+            return "inserted=" + inserted + ", replaced=" + replaced + ", rejected=" + rejected;
         }
     }
 
@@ -260,30 +1725,48 @@ public class Librarian {
     // -------------------------
 
     public static class BookNotFoundException extends Exception {
+        private static final long serialVersionUID = 1L;
+
         public BookNotFoundException(int serial) {
             super("Book not found: serial=" + serial);
         }
     }
 
     public static class BookAlreadyRentedException extends Exception {
+        private static final long serialVersionUID = 1L;
+
         public BookAlreadyRentedException(int serial) {
             super("Book already rented: serial=" + serial);
         }
     }
 
     public static class NotRentedException extends Exception {
+        private static final long serialVersionUID = 1L;
+
         public NotRentedException(int serial) {
             super("Book is not rented: serial=" + serial);
         }
     }
 
     public static class NotRentedByUserException extends Exception {
+        private static final long serialVersionUID = 1L;
+
         public NotRentedByUserException(int serial, int actualRenterId, int attemptedByUserId) {
             super("Book serial=" + serial + " is rented by user " + actualRenterId + ", not by user " + attemptedByUserId);
         }
     }
 
+    public static class LoanLimitExceededException extends Exception {
+        private static final long serialVersionUID = 1L;
+
+        public LoanLimitExceededException(int userId, int limit) {
+            super("User " + userId + " already has the maximum of " + limit + " books checked out");
+        }
+    }
+
     public static class UserNotFoundException extends Exception {
+        private static final long serialVersionUID = 1L;
+
         public UserNotFoundException(int userId) {
             super("User not found: id=" + userId);
         }
@@ -0,0 +1,142 @@
+package com.library.checkout;
+
+import com.library.checkout.journal.AppendLog;
+
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * LibraryJournal: typed records for Librarian mutations on top of an {@link AppendLog}.
+ *
+ * Record layouts (first byte is the record type):
+ *   ADD      serial:int, author:utf, title:utf
+ *   REMOVE   serial:int
+ *   CHECKOUT serial:int, userId:int, dueEpochDay:long
+ *   RETURN   serial:int
+ *
+ * ADD and REMOVE are no longer written (books are persisted by BookStore) but are still replayed, so
+ * journals from older versions recover correctly.
+ *
+ * Every record is idempotent when replayed on top of a snapshot that already contains it
+ * (ADD/CHECKOUT overwrite, REMOVE/RETURN delete), so a crash between writing a snapshot and
+ * resetting the journal is harmless. Replaying records twice is harmless too, as long as their order is
+ * kept: the state of each serial is decided by the last record about it.
+ *
+ * Compaction rotates the journal: {@link #rotate()} moves its records to a side file (path + ".prev")
+ * and empties the live journal, so appends continue while the snapshot is written; once the snapshot is
+ * safe, {@link #discardRotated()} deletes the side file. On startup the side file, if still there, is
+ * replayed before the live journal.
+ */
+class LibraryJournal implements Closeable {
+
+    static final byte ADD = 'A';
+    static final byte REMOVE = 'R';
+    static final byte CHECKOUT = 'C';
+    static final byte RETURN = 'T';
+
+    /**
+     * Receives replayed records in journal order.
+     */
+    interface Listener {
+        void onAdd(int serial, String author, String title);
+        void onRemove(int serial);
+        void onCheckout(int serial, int userId, long dueEpochDay);
+        void onReturn(int serial);
+    }
+
+    private final AppendLog log;
+    private final Path rotatedPath;
+
+    LibraryJournal(Path path) throws IOException {
+        this.log = new AppendLog(path);
+        this.rotatedPath = Paths.get(path + ".prev");
+    }
+
+    /**
+     * Replays the rotated records left by an unfinished compaction (if any), then the live journal.
+     * Returns the number of records replayed.
+     */
+    long replay(Listener listener) throws IOException {
+        long n = 0;
+        if (Files.exists(rotatedPath)) {
+            try (AppendLog rotated = new AppendLog(rotatedPath)) {
+                n += replay(rotated, listener);
+            }
+        }
+        return n + replay(log, listener);
+    }
+
+    private static long replay(AppendLog log, Listener listener) throws IOException {
+        return log.replay(payload -> {
+            byte type = payload.get();
+            int serial = payload.getInt();
+            switch (type) {
+                case ADD:
+                    listener.onAdd(serial, readUtf(payload), readUtf(payload));
+                    break;
+                case REMOVE:
+                    listener.onRemove(serial);
+                    break;
+                case CHECKOUT:
+                    listener.onCheckout(serial, payload.getInt(), payload.getLong());
+                    break;
+                case RETURN:
+                    listener.onReturn(serial);
+                    break;
+                default:
+                    throw new IOException("unknown journal record type " + type + " in " + log.path());
+            }
+        });
+    }
+
+    void checkout(int serial, int userId, long dueEpochDay) throws IOException {
+        log.append(ByteBuffer.allocate(17).put(CHECKOUT).putInt(serial).putInt(userId).putLong(dueEpochDay).array());
+    }
+
+    void returned(int serial) throws IOException {
+        log.append(ByteBuffer.allocate(5).put(RETURN).putInt(serial).array());
+    }
+
+    long size() {
+        return log.recordCount();
+    }
+
+    void sync() throws IOException {
+        log.sync();
+    }
+
+    /**
+     * Moves every record to the side file (appending, if an earlier compaction left one behind).
+     */
+    void rotate() throws IOException {
+        log.drainTo(rotatedPath);
+    }
+
+    /**
+     * Deletes the side file; call once a snapshot covering the rotated records is on disk.
+     */
+    void discardRotated() throws IOException {
+        Files.deleteIfExists(rotatedPath);
+    }
+
+    @Override
+    public void close() throws IOException {
+        log.close();
+    }
+
+    // same encoding as DataOutputStream.writeUTF: unsigned short length, then modified UTF-8 bytes
+    private static String readUtf(ByteBuffer in) throws IOException {
+        int len = in.getShort() & 0xFFFF;
+        byte[] raw = new byte[len + 2];
+        raw[0] = (byte) (len >>> 8);
+        raw[1] = (byte) len;
+        in.get(raw, 2, len);
+        return new DataInputStream(new ByteArrayInputStream(raw)).readUTF();
+    }
+}
@@ -0,0 +1,241 @@
+package com.library.checkout;
+
+import com.library.checkout.book.Book;
+import com.library.checkout.book.SortedCatalog;
+import com.library.checkout.book.SortedView;
+import com.library.checkout.util.IntHashSet;
+import com.library.checkout.util.PersistentIntMap;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * LibrarySnapshot: a consistent, read-only view of the catalog and the open loans as of one moment.
+ *
+ * Taking one copies nothing. The inventory is a persistent map, so the snapshot just keeps the current
+ * version of it; each loan stripe hands over its current table and copies it before its next write.
+ * A report can therefore walk a snapshot for as long as it likes while checkouts, returns and catalog
+ * changes carry on, and every loan in it refers to a book in it.
+ *
+ * The version counts every catalog and loan change made before the snapshot, so two snapshots with the
+ * same version hold the same state and a larger version is always newer.
+ */
+public final class LibrarySnapshot {
+
+    private final long version;
+    private final PersistentIntMap<Book> books;
+    private final SortedCatalog sorted;
+    private final LoanTable[] loans; // indexed like Librarian's stripes
+    private final int loanCount;
+
+    LibrarySnapshot(long version, PersistentIntMap<Book> books, SortedCatalog sorted, LoanTable[] loans) {
+        this.version = version;
+        this.books = books;
+        this.sorted = sorted;
+        this.loans = loans;
+        int n = 0;
+        for (LoanTable t : loans) {
+            n += t.size();
+        }
+        this.loanCount = n;
+    }
+
+    public long version() {
+        return version;
+    }
+
+    public int bookCount() {
+        return books.size();
+    }
+
+    public Optional<Book> book(int serial) {
+        return Optional.ofNullable(books.get(serial));
+    }
+
+    /**
+     * Every book in the snapshot (unmodifiable, in no particular order).
+     */
+    public List<Book> books() {
+        return Collections.unmodifiableList(new ArrayList<>(books.values()));
+    }
+
+    /**
+     * The snapshot's books in {@code order}; O(1), pages cost O(log n + page size).
+     */
+    public SortedView sortedBooks(SortedCatalog.Order order) {
+        return sorted.view(order);
+    }
+
+    public int loanCount() {
+        return loanCount;
+    }
+
+    public Optional<Loan> loan(int serial) {
+        LoanTable t = loans[Librarian.stripeIndex(serial)];
+        int s = t.find(serial);
+        return s < 0 ? Optional.empty() : Optional.of(loanAt(t, s));
+    }
+
+    /**
+     * Every open loan in the snapshot (unmodifiable, in no particular order).
+     */
+    public List<Loan> loans() {
+        List<Loan> out = new ArrayList<>(loanCount);
+        for (LoanTable t : loans) {
+            for (int s = t.next(0); s >= 0; s = t.next(s + 1)) {
+                out.add(loanAt(t, s));
+            }
+        }
+        return Collections.unmodifiableList(out);
+    }
+
+    // -------------------------
+    // Due dates
+    // -------------------------
+
+    /**
+     * Loans overdue as of {@code asOf}, i.e. due on an earlier day; earliest due date first, then by serial.
+     */
+    public List<Loan> overdue(LocalDate asOf) {
+        int day = toDay(asOf);
+        return day == Integer.MIN_VALUE ? List.of() : dueBetween(Integer.MIN_VALUE, day - 1);
+    }
+
+    /**
+     * The same loans as {@link #overdue(LocalDate)}, as a stream in no particular order. Nothing is collected
+     * up front: loans are produced a stripe and a due day at a time, and the stream splits by stripe, so
+     * {@code .parallel()} spreads the stripes over the fork/join pool.
+     */
+    public Stream<Loan> streamOverdue(LocalDate asOf) {
+        int day = toDay(asOf);
+        if (day == Integer.MIN_VALUE) return Stream.empty();
+        return IntStream.range(0, loans.length).boxed()
+                .flatMap(i -> bucketsOf(loans[i], Integer.MIN_VALUE, day - 1).stream())
+                .flatMap(b -> {
+                    LocalDate due = LocalDate.ofEpochDay(b.day);
+                    return Arrays.stream(b.serials.toArray())
+                            .mapToObj(serial -> new Loan(serial, b.table.renterAt(b.table.find(serial)), due));
+                });
+    }
+
+    /**
+     * Loans due from {@code from} to {@code to} (both inclusive), earliest due date first, then by serial.
+     */
+    public List<Loan> dueBetween(LocalDate from, LocalDate to) {
+        return dueBetween(toDay(from), toDay(to));
+    }
+
+    /**
+     * Number of loans due from {@code from} to {@code to} (both inclusive). Counts whole buckets, so it
+     * costs O(stripes * log days + days in range) however many loans match.
+     */
+    public int countDueBetween(LocalDate from, LocalDate to) {
+        int fromDay = toDay(from);
+        int toDay = toDay(to);
+        int n = 0;
+        for (LoanTable t : loans) {
+            n += t.dueIndex().countBetween(fromDay, toDay);
+        }
+        return n;
+    }
+
+    /**
+     * Every open loan, earliest due date first, then by serial.
+     */
+    public List<Loan> loansByDueDate() {
+        return dueBetween(Integer.MIN_VALUE, Integer.MAX_VALUE);
+    }
+
+    private static final class Bucket {
+        final int day;
+        final LoanTable table;
+        final IntHashSet serials;
+
+        Bucket(int day, LoanTable table, IntHashSet serials) {
+            this.day = day;
+            this.table = table;
+            this.serials = serials;
+        }
+    }
+
+    // O(stripes * log days + buckets * log buckets + k log k): every stripe contributes its run of day
+    // buckets, the buckets are put in day order, and each day's serials are sorted
+    private List<Loan> dueBetween(int fromDay, int toDay) {
+        List<Bucket> found = new ArrayList<>();
+        int total = 0;
+        for (LoanTable t : loans) {
+            found.addAll(bucketsOf(t, fromDay, toDay));
+        }
+        for (Bucket b : found) {
+            total += b.serials.size();
+        }
+        found.sort((a, b) -> Integer.compare(a.day, b.day));
+
+        List<Loan> out = new ArrayList<>(total);
+        int i = 0;
+        while (i < found.size()) {
+            // all stripes' buckets for one day
+            int day = found.get(i).day;
+            int j = i;
+            int n = 0;
+            while (j < found.size() && found.get(j).day == day) {
+                n += found.get(j++).serials.size();
+            }
+            long[] keyed = new long[n]; // serial in the high half, bucket index in the low half
+            int k = 0;
+            for (int b = i; b < j; b++) {
+                for (int serial : found.get(b).serials.toArray()) {
+                    keyed[k++] = ((long) serial << 32) | b;
+                }
+            }
+            Arrays.sort(keyed);
+            LocalDate due = LocalDate.ofEpochDay(day);
+            for (long key : keyed) {
+                int serial = (int) (key >> 32);
+                LoanTable t = found.get((int) key).table;
+                out.add(new Loan(serial, t.renterAt(t.find(serial)), due));
+            }
+            i = j;
+        }
+        return Collections.unmodifiableList(out);
+    }
+
+    private static List<Bucket> bucketsOf(LoanTable t, int fromDay, int toDay) {
+        List<Bucket> out = new ArrayList<>();
+        t.dueIndex().forEachBucket(fromDay, toDay, (day, serials) -> out.add(new Bucket(day, t, serials)));
+        return out;
+    }
+
+    // clamped to the int range the due-date indexes use; Librarian's per-stripe queries share it
+    static int toDay(LocalDate d) {
+        long day = d.toEpochDay();
+        return (int) Math.max(Integer.MIN_VALUE, Math.min(Integer.MAX_VALUE, day));
+    }
+
+    /**
+     * Approximate heap used by the loan tables (including their due-date indexes), in bytes.
+     */
+    public long loanMemoryBytes() {
+        long n = 0;
+        for (LoanTable t : loans) {
+            n += t.memoryBytes();
+        }
+        return n;
+    }
+
+    // the tables store loans as primitives; Loan objects only exist for callers that ask for them
+    private static Loan loanAt(LoanTable t, int slot) {
+        return new Loan(t.serialAt(slot), t.renterAt(slot), LocalDate.ofEpochDay(t.dueEpochDayAt(slot)));
+    }
+
+    @Override
+    public String toString() {
+        return "version " + version + ": " + books.size() + " books, " + loanCount + " loans";
+    }
+}
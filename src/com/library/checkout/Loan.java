@@ -0,0 +1,36 @@
+package com.library.checkout;
+
+import java.time.LocalDate;
+
+/**
+ * Loan: one open checkout, i.e. which user has a book and when it is due back. Immutable.
+ */
+public final class Loan {
+    private final int serial;
+    private final int userId;
+    private final LocalDate dueDate;
+
+    Loan(int serial, int userId, LocalDate dueDate) {
+        this.serial = serial;
+        this.userId = userId;
+        this.dueDate = dueDate;
+    }
+
+    /** Serial number of the rented book. */
+    public int serial() {
+        return serial;
+    }
+
+    public int userId() {
+        return userId;
+    }
+
+    public LocalDate dueDate() {
+        return dueDate;
+    }
+
+    @Override
+    public String toString() {
+        return serial + "," + userId + "," + dueDate;
+    }
+}
@@ -0,0 +1,213 @@
+package com.library.checkout;
+
+/**
+ * LoanTable: the open loans of one Librarian stripe, keyed by serial number.
+ *
+ * Open addressing (linear probing) over three parallel int arrays: serial, renter id and due date as an
+ * epoch day. There are no boxed keys or values and no per-loan objects, so a loan costs 12 bytes divided
+ * by the load factor, and lookups, inserts and removals allocate nothing (short of growing the arrays).
+ * Removal uses backward-shift deletion, as in IntHashSet, so churn never leaves tombstones behind.
+ *
+ * The table also keeps a {@link DueDateIndex} of its loans in step with every put and remove, for
+ * overdue and due-date-ordered queries.
+ *
+ * Serial 0 marks an empty slot. A loan of serial 0 itself lives in one extra slot past the end of the
+ * arrays (index {@code capacity}), so slot-based access works the same for it as for every other loan.
+ *
+ * Callers look a serial up with {@link #find(int)} and read the loan through the returned slot, and walk
+ * all loans with {@link #next(int)}. Slots are only valid until the next change to the table.
+ *
+ * Not thread-safe; the owning stripe's lock guards it. A table captured by a snapshot is never written
+ * again: the stripe copies it before its next change (see Librarian).
+ */
+final class LoanTable {
+
+    private static final float LOAD_FACTOR = 0.6f;
+
+    private int[] serials;
+    private int[] renters;
+    private int[] dueDays;
+    private int mask;
+    private int size; // loans stored in the probed slots (excludes serial 0)
+    private boolean hasZero;
+    private int resizeAt;
+    private final DueDateIndex due;
+
+    LoanTable() {
+        allocate(16);
+        due = new DueDateIndex();
+    }
+
+    private LoanTable(LoanTable other) {
+        this.serials = other.serials.clone();
+        this.renters = other.renters.clone();
+        this.dueDays = other.dueDays.clone();
+        this.mask = other.mask;
+        this.size = other.size;
+        this.hasZero = other.hasZero;
+        this.resizeAt = other.resizeAt;
+        this.due = other.due.copy();
+    }
+
+    /** Slot of the loan of {@code serial}, or -1 if it isn't rented. */
+    int find(int serial) {
+        if (serial == 0) return hasZero ? zeroSlot() : -1;
+        int i = slot(serial);
+        while (serials[i] != 0) {
+            if (serials[i] == serial) return i;
+            i = (i + 1) & mask;
+        }
+        return -1;
+    }
+
+    boolean contains(int serial) {
+        return find(serial) >= 0;
+    }
+
+    int serialAt(int slot) {
+        return slot == zeroSlot() ? 0 : serials[slot];
+    }
+
+    int renterAt(int slot) {
+        return renters[slot];
+    }
+
+    int dueEpochDayAt(int slot) {
+        return dueDays[slot];
+    }
+
+    /** Records (or overwrites) the loan of {@code serial}. */
+    void put(int serial, int renter, int dueEpochDay) {
+        int i = find(serial);
+        if (i >= 0) {
+            if (dueDays[i] != dueEpochDay) {
+                due.remove(dueDays[i], serial);
+                due.add(dueEpochDay, serial);
+            }
+            renters[i] = renter;
+            dueDays[i] = dueEpochDay;
+            return;
+        }
+        due.add(dueEpochDay, serial);
+        if (serial == 0) {
+            hasZero = true;
+            renters[zeroSlot()] = renter;
+            dueDays[zeroSlot()] = dueEpochDay;
+            return;
+        }
+        i = slot(serial);
+        while (serials[i] != 0) i = (i + 1) & mask;
+        serials[i] = serial;
+        renters[i] = renter;
+        dueDays[i] = dueEpochDay;
+        if (++size >= resizeAt) rehash(capacity() << 1);
+    }
+
+    /** Returns true if {@code serial} was rented. */
+    boolean remove(int serial) {
+        int i = find(serial);
+        if (i < 0) return false;
+        due.remove(dueDays[i], serial);
+        if (serial == 0) {
+            hasZero = false;
+        } else {
+            shiftBack(i);
+            size--;
+        }
+        return true;
+    }
+
+    int size() {
+        return size + (hasZero ? 1 : 0);
+    }
+
+    /**
+     * First occupied slot at or after {@code from}, or -1 if there are no more. Walk the table with
+     * {@code for (int s = t.next(0); s >= 0; s = t.next(s + 1))}.
+     */
+    int next(int from) {
+        int cap = capacity();
+        for (int i = from; i < cap; i++) {
+            if (serials[i] != 0) return i;
+        }
+        return from <= cap && hasZero ? cap : -1;
+    }
+
+    /** The loans' serials by due date; read-only for callers. */
+    DueDateIndex dueIndex() {
+        return due;
+    }
+
+    /** Independent copy. */
+    LoanTable copy() {
+        return new LoanTable(this);
+    }
+
+    /** Approximate heap footprint in bytes (object header, the three arrays and the due-date index). */
+    long memoryBytes() {
+        return 40 + 3 * (16 + 4L * serials.length) + due.memoryBytes();
+    }
+
+    // -------------------------
+    // Internals
+    // -------------------------
+
+    private int capacity() {
+        return mask + 1;
+    }
+
+    private int zeroSlot() {
+        return mask + 1;
+    }
+
+    private int slot(int serial) {
+        int h = serial * 0x9E3779B9;
+        return (h ^ (h >>> 16)) & mask;
+    }
+
+    private void shiftBack(int hole) {
+        int i = hole;
+        while (true) {
+            i = (i + 1) & mask;
+            int k = serials[i];
+            if (k == 0) break;
+            int home = slot(k);
+            // move k into the hole if its home slot is not between the hole and its current position
+            if (((i - home) & mask) >= ((i - hole) & mask)) {
+                serials[hole] = k;
+                renters[hole] = renters[i];
+                dueDays[hole] = dueDays[i];
+                hole = i;
+            }
+        }
+        serials[hole] = 0;
+    }
+
+    private void allocate(int capacity) {
+        // one extra slot at the end for serial 0
+        serials = new int[capacity + 1];
+        renters = new int[capacity + 1];
+        dueDays = new int[capacity + 1];
+        mask = capacity - 1;
+        resizeAt = (int) (capacity * LOAD_FACTOR);
+    }
+
+    private void rehash(int capacity) {
+        int[] oldSerials = serials;
+        int[] oldRenters = renters;
+        int[] oldDue = dueDays;
+        int oldZero = zeroSlot();
+        allocate(capacity);
+        for (int j = 0; j < oldZero; j++) {
+            int k = oldSerials[j];
+            if (k == 0) continue;
+            int i = slot(k);
+            while (serials[i] != 0) i = (i + 1) & mask;
+            serials[i] = k;
+            renters[i] = oldRenters[j];
+            dueDays[i] = oldDue[j];
+        }
+        renters[zeroSlot()] = oldRenters[oldZero];
+        dueDays[zeroSlot()] = oldDue[oldZero];
+    }
+}
@@ -0,0 +1,49 @@
+package com.library.checkout;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Page: one page of a paginated listing or search, plus the token that continues it.
+ *
+ * Tokens are opaque strings; pass {@link #nextToken()} back to the same call (same query, same order)
+ * to get the following page. They record where the page ended (keyset pagination) rather than an
+ * offset, so paging stays correct while books are added and removed: nothing is skipped or repeated
+ * except books that were themselves added or removed meanwhile.
+ *
+ * Usage example:
+ *   Page<Book> page = librarian.listBooks(SortedCatalog.Order.TITLE, 50, null);
+ *   while (page.nextToken().isPresent()) {
+ *       page = librarian.listBooks(SortedCatalog.Order.TITLE, 50, page.nextToken().get());
+ *   }
+ */
+public final class Page<T> {
+
+    private final List<T> items;
+    private final String nextToken;
+
+    Page(List<T> items, String nextToken) {
+        this.items = Collections.unmodifiableList(items);
+        this.nextToken = nextToken;
+    }
+
+    /** The items on this page (unmodifiable). */
+    public List<T> items() {
+        return items;
+    }
+
+    /** Token for the next page, or empty if this is the last one. */
+    public Optional<String> nextToken() {
+        return Optional.ofNullable(nextToken);
+    }
+
+    public boolean hasMore() {
+        return nextToken != null;
+    }
+
+    @Override
+    public String toString() {
+        return items.size() + " items" + (nextToken != null ? ", more" : ", last page");
+    }
+}
@@ -0,0 +1,95 @@
+package com.library.checkout;
+
+import com.library.checkout.book.Book;
+import com.library.checkout.book.SortedCatalog;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Base64;
+
+/**
+ * PageToken: encodes and decodes the continuation tokens handed out with each {@link Page}.
+ *
+ * A token holds the query it belongs to (what is being paged, a hash of the normalized search fragment,
+ * and the order) and the sort key of the last book on the page: its serial number, plus its title and
+ * author for the title and author orders. It is written with DataOutputStream and Base64url-encoded,
+ * so it is safe to put in a URL. Decoding a token against a different query, or a damaged token, throws
+ * IllegalArgumentException.
+ */
+final class PageToken {
+
+    private static final int FORMAT = 1;
+
+    /** What a token pages through. */
+    enum Source { LIST, TITLE_SEARCH, AUTHOR_SEARCH }
+
+    private PageToken() {
+    }
+
+    /** A token that resumes after {@code last}. */
+    static String encode(Source source, String query, SortedCatalog.Order order, Book last) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(32);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(FORMAT);
+            out.writeByte(source.ordinal());
+            out.writeByte(order.ordinal());
+            out.writeInt(query.hashCode());
+            out.writeInt(last.get_serial_number());
+            if (order != SortedCatalog.Order.SERIAL) {
+                out.writeUTF(nonNull(last.get_title()));
+                out.writeUTF(nonNull(last.get_author()));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e); // in-memory stream
+        }
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes.toByteArray());
+    }
+
+    /**
+     * The last book's sort key from {@code token}, as a probe Book to seek past.
+     *
+     * @throws IllegalArgumentException if the token is damaged or belongs to a different query or order
+     */
+    static Book decode(String token, Source source, String query, SortedCatalog.Order order) {
+        byte[] raw;
+        try {
+            raw = Base64.getUrlDecoder().decode(token);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Malformed page token", e);
+        }
+        int format;
+        int sourceOrdinal;
+        int orderOrdinal;
+        int queryHash;
+        int serial;
+        String title = "";
+        String author = "";
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(raw))) {
+            format = in.readUnsignedByte();
+            sourceOrdinal = in.readUnsignedByte();
+            orderOrdinal = in.readUnsignedByte();
+            queryHash = in.readInt();
+            serial = in.readInt();
+            if (orderOrdinal != SortedCatalog.Order.SERIAL.ordinal()) {
+                title = in.readUTF();
+                author = in.readUTF();
+            }
+            if (in.read() != -1) throw new IOException("trailing bytes");
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Malformed page token", e);
+        }
+        if (format != FORMAT || sourceOrdinal != source.ordinal() || orderOrdinal != order.ordinal()
+                || queryHash != query.hashCode()) {
+            throw new IllegalArgumentException("Page token does not belong to this query");
+        }
+        return new Book(author, title, serial);
+    }
+
+    private static String nonNull(String s) {
+        return s == null ? "" : s;
+    }
+}
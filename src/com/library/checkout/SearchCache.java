@@ -0,0 +1,182 @@
+package com.library.checkout;
+
+import com.library.checkout.book.SortedCatalog;
+import com.library.checkout.book.TrigramIndex;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * SearchCache: bounded LRU cache of search results, keyed by search type and normalized fragment.
+ *
+ * Invalidation is precise: when a book is added, replaced or removed, only the cached queries whose
+ * fragment occurs in that book's (normalized) title or author are dropped, because those are the only
+ * results the change can affect. Everything else stays cached.
+ *
+ * Cached values are the serial numbers of the matches, not Book objects, so a cached entry never pins a
+ * removed book. They are ascending by default; paginated searches also cache the matches in title or
+ * author order, as separate entries for the same fragment (so they are invalidated the same way).
+ * Every method is synchronized (concurrent searches share Librarian's catalog read lock, and a lookup
+ * reorders the LRU list).
+ */
+public class SearchCache {
+
+    enum Type { TITLE, AUTHOR }
+
+    private static final class Key {
+        final Type type;
+        final String fragment;
+        final SortedCatalog.Order order;
+
+        Key(Type type, String fragment, SortedCatalog.Order order) {
+            this.type = type;
+            this.fragment = fragment;
+            this.order = order;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) return false;
+            Key k = (Key) o;
+            return type == k.type && order == k.order && fragment.equals(k.fragment);
+        }
+
+        @Override
+        public int hashCode() {
+            return (type.hashCode() * 31 + order.hashCode()) * 31 + fragment.hashCode();
+        }
+    }
+
+    private final int capacity;
+    private final LinkedHashMap<Key, int[]> entries;
+
+    private long hits;
+    private long misses;
+    private long evictions;
+    private long invalidations;
+
+    SearchCache(int capacity) {
+        this.capacity = capacity;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, int[]> eldest) {
+                if (size() > SearchCache.this.capacity) {
+                    evictions++;
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Cached serials for the query (ascending), or null on a miss.
+     */
+    int[] get(Type type, String fragment) {
+        return get(type, fragment, SortedCatalog.Order.SERIAL);
+    }
+
+    /**
+     * Cached serials for the query in {@code order}, or null on a miss.
+     */
+    synchronized int[] get(Type type, String fragment, SortedCatalog.Order order) {
+        int[] hit = entries.get(new Key(type, TrigramIndex.normalize(fragment), order));
+        if (hit != null) hits++;
+        else misses++;
+        return hit;
+    }
+
+    void put(Type type, String fragment, int[] serials) {
+        put(type, fragment, SortedCatalog.Order.SERIAL, serials);
+    }
+
+    synchronized void put(Type type, String fragment, SortedCatalog.Order order, int[] serials) {
+        if (capacity > 0) entries.put(new Key(type, TrigramIndex.normalize(fragment), order), serials);
+    }
+
+    /**
+     * Drops every cached query that a book with this title and author matches (call with both the old
+     * and the new field values when a book changes).
+     */
+    synchronized void invalidate(String title, String author) {
+        String t = TrigramIndex.normalize(title);
+        String a = TrigramIndex.normalize(author);
+        Iterator<Key> it = entries.keySet().iterator();
+        while (it.hasNext()) {
+            Key k = it.next();
+            String field = k.type == Type.TITLE ? t : a;
+            if (field.contains(k.fragment)) {
+                it.remove();
+                invalidations++;
+            }
+        }
+    }
+
+    synchronized void clear() {
+        invalidations += entries.size();
+        entries.clear();
+    }
+
+    synchronized Stats stats() {
+        return new Stats(hits, misses, evictions, invalidations, entries.size(), capacity);
+    }
+
+    /**
+     * Point-in-time cache counters (also reported for the hot-book cache, see BookCache).
+     */
+    public static final class Stats {
+        private final long hits;
+        private final long misses;
+        private final long evictions;
+        private final long invalidations;
+        private final int size;
+        private final int capacity;
+
+        Stats(long hits, long misses, long evictions, long invalidations, int size, int capacity) {
+            this.hits = hits;
+            this.misses = misses;
+            this.evictions = evictions;
+            this.invalidations = invalidations;
+            this.size = size;
+            this.capacity = capacity;
+        }
+
+        public long hits() {
+            return hits;
+        }
+
+        public long misses() {
+            return misses;
+        }
+
+        /** Entries dropped because the cache was full. */
+        public long evictions() {
+            return evictions;
+        }
+
+        /** Entries dropped because a catalog change affected their results. */
+        public long invalidations() {
+            return invalidations;
+        }
+
+        public int size() {
+            return size;
+        }
+
+        public int capacity() {
+            return capacity;
+        }
+
+        public double hitRate() {
+            long total = hits + misses;
+            return total == 0 ? 0.0 : (double) hits / total;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("hits=%d, misses=%d (%.1f%% hit), evictions=%d, invalidations=%d, size=%d/%d",
+                    hits, misses, hitRate() * 100, evictions, invalidations, size, capacity);
+        }
+    }
+}
@@ -0,0 +1,156 @@
+package com.library.checkout;
+
+import com.library.checkout.book.Book;
+import com.library.checkout.book.BookOrdering;
+import com.library.checkout.book.BookSorter;
+
+import java.text.Collator;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+// TestBookOrdering.java
+// 10/17/2026
+// BookOrdering's keyed sort against a plain comparator sort: multi-key and collated orders, ties by
+// serial number, and BookSorter's multi-key entry point. Exits with 1 if any check fails.
+public class TestBookOrdering {
+    static int failures;
+
+    public static void main(String[] args){
+        testKeyedSortMatchesComparator();
+        testCollatedOrder();
+        testTiesAndKeys();
+        testBookSorter();
+
+        finish();
+    }
+
+    // large lists take the keyed parallel path; it must agree with compare() and with a plain comparator
+    private static void testKeyedSortMatchesComparator(){
+        System.out.println("\n Keyed sort...");
+        Random random = new Random(13);
+        Comparator<Book> authorTitle = Comparator.comparing((Book b) -> text(b.get_author()),
+                String.CASE_INSENSITIVE_ORDER).thenComparing(b -> text(b.get_title()),
+                String.CASE_INSENSITIVE_ORDER).thenComparingInt(Book::get_serial_number);
+        int wrong = 0;
+        for(int round = 0; round < 20; round++){
+            List<Book> books = randomBooks(random, 10 + random.nextInt(5000));
+            List<Book> keyed = new ArrayList<>(books);
+            BookOrdering.by(BookOrdering.Key.AUTHOR, BookOrdering.Key.TITLE).sort(keyed);
+            List<Book> plain = new ArrayList<>(books);
+            plain.sort(authorTitle);
+            if(!keyed.equals(plain)) wrong++;
+        }
+        check(wrong == 0, "20 random lists sort like the comparator, " + wrong + " wrong");
+
+        List<Book> books = randomBooks(random, 2000);
+        BookOrdering byTitle = BookOrdering.by(BookOrdering.Key.TITLE);
+        List<Book> keyed = byTitle.sortedCopy(books);
+        List<Book> compared = new ArrayList<>(books);
+        compared.sort(byTitle::compare);
+        check(keyed.equals(compared), "sortedCopy agrees with compare()");
+    }
+
+    private static void testCollatedOrder(){
+        System.out.println("\n Collated order...");
+        Random random = new Random(17);
+        List<Book> books = randomBooks(random, 3000);
+        Collator collator = Collator.getInstance(Locale.FRENCH);
+        collator.setStrength(Collator.SECONDARY);
+        List<Book> expected = new ArrayList<>(books);
+        expected.sort(Comparator.comparing((Book b) -> text(b.get_title()), collator::compare)
+                .thenComparingInt(Book::get_serial_number));
+        List<Book> keyed = new ArrayList<>(books);
+        BookOrdering.collated(Locale.FRENCH, BookOrdering.Key.TITLE).sort(keyed);
+        check(keyed.equals(expected), "a collated sort matches the Collator");
+
+        List<Book> few = new ArrayList<>(List.of(new Book("x", "eclair", 1), new Book("x", "Zola", 2),
+                new Book("x", "Éclair", 3), new Book("x", "ecole", 4)));
+        BookOrdering.collated(Locale.FRENCH, BookOrdering.Key.TITLE).sort(few);
+        check(serials(few).equals(List.of(1, 3, 4, 2)), "accents sort next to their letter, not after z");
+        BookOrdering.by(BookOrdering.Key.TITLE).sort(few);
+        check(serials(few).equals(List.of(1, 4, 2, 3)), "case-folded order puts accented letters last");
+    }
+
+    private static void testTiesAndKeys(){
+        System.out.println("\n Ties and keys...");
+        BookOrdering ordering = BookOrdering.by(BookOrdering.Key.AUTHOR, BookOrdering.Key.SERIAL,
+                BookOrdering.Key.TITLE);
+        check(ordering.keys().equals(List.of(BookOrdering.Key.AUTHOR, BookOrdering.Key.SERIAL)),
+                "keys after SERIAL are dropped");
+        check(BookOrdering.by(BookOrdering.Key.TITLE).keys().equals(List.of(BookOrdering.Key.TITLE,
+                BookOrdering.Key.SERIAL)), "SERIAL is added last");
+
+        List<Book> books = new ArrayList<>();
+        for(int i = 200; i > 0; i--){
+            books.add(new Book(i % 2 == 0 ? "Same" : "SAME", "t", i));
+        }
+        BookOrdering.by(BookOrdering.Key.AUTHOR).sort(books);
+        boolean ascending = true;
+        for(int i = 0; i < books.size(); i++){
+            ascending &= books.get(i).get_serial_number() == i + 1;
+        }
+        check(ascending, "equal keys fall back to serial number");
+    }
+
+    private static void testBookSorter(){
+        System.out.println("\n BookSorter...");
+        List<Book> books = randomBooks(new Random(19), 1000);
+        List<Book> viaSorter = new ArrayList<>(books);
+        BookSorter.sortBooks(viaSorter, null, BookOrdering.Key.TITLE, BookOrdering.Key.AUTHOR);
+        check(viaSorter.equals(BookOrdering.by(BookOrdering.Key.TITLE, BookOrdering.Key.AUTHOR)
+                .sortedCopy(books)), "a null locale is the case-folded order");
+        List<Book> collated = new ArrayList<>(books);
+        BookSorter.sortBooks(collated, Locale.GERMAN, BookOrdering.Key.AUTHOR);
+        check(collated.equals(BookOrdering.collated(Locale.GERMAN, BookOrdering.Key.AUTHOR).sortedCopy(books)),
+                "a locale gives the collated order");
+    }
+
+    // -------------------------
+
+    // mixed case, accents and repeats, so folding and ties both matter; now and then a null field
+    private static List<Book> randomBooks(Random random, int n){
+        String letters = "aAbBeéÉzZ ";
+        List<Book> books = new ArrayList<>();
+        for(int i = 0; i < n; i++){
+            books.add(new Book(random.nextInt(100) == 0 ? null : randomText(random, letters, 3),
+                    random.nextInt(100) == 0 ? null : randomText(random, letters, 1 + random.nextInt(10)), i));
+        }
+        return books;
+    }
+
+    private static String randomText(Random random, String letters, int length){
+        StringBuilder s = new StringBuilder();
+        for(int i = 0; i < length; i++){
+            s.append(letters.charAt(random.nextInt(letters.length())));
+        }
+        return s.toString();
+    }
+
+    private static List<Integer> serials(List<Book> books){
+        List<Integer> out = new ArrayList<>();
+        for(Book b : books){
+            out.add(b.get_serial_number());
+        }
+        return out;
+    }
+
+    private static String text(String s){
+        return s == null ? "" : s;
+    }
+
+    static void check(boolean ok, String what){
+        System.out.println((ok ? "ok   " : "FAIL ") + what);
+        if(!ok) failures++;
+    }
+
+    static void finish(){
+        if(failures > 0){
+            System.out.println("\n" + failures + " check(s) failed");
+            System.exit(1);
+        }
+        System.out.println("\nAll checks passed");
+    }
+}
@@ -0,0 +1,135 @@
+package com.library.checkout;
+
+import com.library.checkout.book.Book;
+import com.library.checkout.book.BookStore;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+// TestBookStore.java
+// 10/17/2026
+// BookStore's slot file: round-trips, the on-disk layout, length limits and foreign files.
+// Everything is written to a temp directory; exits with 1 if any check fails.
+public class TestBookStore {
+    static int failures;
+
+    public static void main(String[] args) throws IOException {
+        Path dir = Files.createTempDirectory("test-bookstore");
+
+        testStoreRoundTrip(dir.resolve("books.dat"));
+        testStoreSlotLayout(dir.resolve("layout.dat"));
+        testStoreRejectsLongBooks(dir.resolve("long.dat"));
+        testStoreRejectsForeignFile(dir.resolve("foreign.dat"));
+
+        finish();
+    }
+
+    private static void testStoreRoundTrip(Path path) throws IOException {
+        System.out.println("\n BookStore round-trip...");
+        try(BookStore store = new BookStore(path)){
+            store.put(new Book("Toni Morrison", "Beloved", 1));
+            store.put(new Book("Zadie Smith", "White Teeth", 2));
+            store.put(new Book("Gabriel García Márquez", "Cien años de soledad", 3));
+            store.put(new Book("Zadie Smith", "On Beauty", 2)); // replaces serial 2
+            check(store.delete(1), "delete returns true for a stored book");
+            check(!store.delete(1), "delete returns false the second time");
+            store.put(new Book(null, null, 4)); // null fields are stored as ""
+        }
+        try(BookStore store = new BookStore(path)){
+            check(store.size() == 3, "3 books after reopening, got " + store.size());
+            check(store.get(1) == null, "deleted book stays deleted");
+            check(same(store.get(2), "Zadie Smith", "On Beauty", 2),
+                    "replaced book keeps its newest version");
+            check(same(store.get(3), "Gabriel García Márquez", "Cien años de soledad", 3),
+                    "non-ASCII text survives");
+            check(same(store.get(4), "", "", 4), "null author and title come back as empty strings");
+        }
+    }
+
+    // the header and the first slot, read straight from the file as the class comment describes them
+    private static void testStoreSlotLayout(Path path) throws IOException {
+        System.out.println("\n BookStore slot layout...");
+        try(BookStore store = new BookStore(path)){
+            store.put(new Book("Ann", "Title", 42));
+            store.put(new Book("Bo", "Gone", 43));
+            store.delete(43);
+        }
+        ByteBuffer file = ByteBuffer.wrap(Files.readAllBytes(path));
+        check(file.getInt(0) == 0x424B5354, "header starts with the BKST magic");
+        check(file.getInt(8) == 256, "header records 256-byte slots");
+        check(file.get(256) == 1 && file.getInt(256 + 4) == 42,
+                "slot 0 is live, holds serial 42 and starts one slot in");
+        check(file.getShort(256 + 12) == 3 && file.getShort(256 + 14) == 5,
+                "slot 0 records the author and title lengths");
+        check(new String(file.array(), 256 + 16, 3, "UTF-8").equals("Ann"),
+                "author bytes start at offset 16");
+        check(new String(file.array(), 256 + 16 + 80, 5, "UTF-8").equals("Title"),
+                "title bytes start at offset 96");
+        check(file.get(2 * 256) == 2, "slot 1 is a tombstone after its book is deleted");
+        check(file.capacity() % 256 == 0, "file is whole slots, so every slot is aligned to its size");
+
+        try(BookStore store = new BookStore(path)){
+            store.put(new Book("Cy", "Reused", 44));
+        }
+        file = ByteBuffer.wrap(Files.readAllBytes(path));
+        check(file.get(2 * 256) == 1 && file.getInt(2 * 256 + 4) == 44,
+                "the tombstoned slot is reused");
+    }
+
+    private static void testStoreRejectsLongBooks(Path path) throws IOException {
+        System.out.println("\n BookStore length limits...");
+        Book longAuthor = new Book("a".repeat(BookStore.AUTHOR_MAX_BYTES + 1), "Fine", 1);
+        // é is 2 bytes in UTF-8
+        Book longTitle = new Book("Fine", "é".repeat(BookStore.TITLE_MAX_BYTES / 2 + 1), 2);
+        Book justFits = new Book("a".repeat(BookStore.AUTHOR_MAX_BYTES),
+                "t".repeat(BookStore.TITLE_MAX_BYTES), 3);
+        check(!BookStore.fits(longAuthor) && !BookStore.fits(longTitle),
+                "fits rejects over-long author and title");
+        check(BookStore.fits(justFits), "fits accepts books exactly at the limits");
+        try(BookStore store = new BookStore(path)){
+            try{
+                store.put(longAuthor);
+                check(false, "put of an over-long book throws");
+            } catch (IllegalArgumentException e){
+                check(true, "put of an over-long book throws: " + e.getMessage());
+            }
+            check(store.size() == 0, "a rejected put stores nothing");
+            store.put(justFits);
+            check(same(store.get(3), justFits.get_author(), justFits.get_title(), 3),
+                    "a book at the limits round-trips");
+        }
+    }
+
+    private static void testStoreRejectsForeignFile(Path path) throws IOException {
+        System.out.println("\n BookStore on a foreign file...");
+        Files.writeString(path, "Toni Morrison,Beloved,1\n");
+        try{
+            new BookStore(path).close();
+            check(false, "opening a text file as a book store fails");
+        } catch (IOException e){
+            check(true, "opening a text file as a book store fails: " + e.getMessage());
+        }
+    }
+
+    // -------------------------
+
+    private static boolean same(Book b, String author, String title, int serial){
+        return b != null && author.equals(b.get_author()) && title.equals(b.get_title())
+                && b.get_serial_number() == serial;
+    }
+
+    static void check(boolean ok, String what){
+        System.out.println((ok ? "ok   " : "FAIL ") + what);
+        if(!ok) failures++;
+    }
+
+    static void finish(){
+        if(failures > 0){
+            System.out.println("\n" + failures + " check(s) failed");
+            System.exit(1);
+        }
+        System.out.println("\nAll checks passed");
+    }
+}
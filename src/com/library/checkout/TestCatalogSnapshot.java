@@ -0,0 +1,155 @@
+package com.library.checkout;
+
+import com.library.checkout.book.Book;
+import com.library.checkout.book.CatalogSnapshot;
+import com.library.checkout.user.UserService;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// TestCatalogSnapshot.java
+// 10/17/2026
+// the binary catalog snapshot: round-trips, corruption checks, and export/import through Librarian.
+// Everything is written to a temp directory; exits with 1 if any check fails.
+public class TestCatalogSnapshot {
+    static int failures;
+
+    public static void main(String[] args) throws IOException {
+        Path dir = Files.createTempDirectory("test-snapshot");
+
+        testRoundTrip(dir.resolve("books.snap"));
+        testRejectsCorruption(dir.resolve("corrupt.snap"));
+        testLibrarianExportImport(dir);
+
+        finish();
+    }
+
+    private static void testRoundTrip(Path path) throws IOException {
+        System.out.println("\n CatalogSnapshot round-trip...");
+        List<Book> books = sampleBooks(5000);
+        books.add(new Book(null, null, 99999));
+        CatalogSnapshot.write(path, books);
+        check(CatalogSnapshot.isSnapshot(path), "isSnapshot recognizes the file");
+
+        List<Book> read = CatalogSnapshot.read(path);
+        check(read.size() == books.size(), "same number of books, got " + read.size());
+        boolean allSame = true;
+        for(int i = 0; i < books.size() && i < read.size(); i++){
+            Book b = books.get(i);
+            allSame &= same(read.get(i), text(b.get_author()), text(b.get_title()),
+                    b.get_serial_number());
+        }
+        check(allSame, "every book comes back in order with the same fields");
+        check(read.get(0).get_author() == read.get(6).get_author(), "repeated authors share one String");
+
+        CatalogSnapshot.write(path, new ArrayList<>());
+        check(CatalogSnapshot.read(path).isEmpty(), "an empty catalog round-trips");
+    }
+
+    private static void testRejectsCorruption(Path path) throws IOException {
+        System.out.println("\n CatalogSnapshot corruption...");
+        CatalogSnapshot.write(path, sampleBooks(100));
+        byte[] good = Files.readAllBytes(path);
+
+        byte[] flipped = good.clone();
+        flipped[good.length / 2] ^= 0x01;
+        expectRejected(path, flipped, "a flipped bit in the middle of the file");
+
+        byte[] badTrailer = good.clone();
+        badTrailer[good.length - 1] ^= 0x01;
+        expectRejected(path, badTrailer, "a damaged checksum");
+
+        expectRejected(path, Arrays.copyOf(good, good.length - 5), "a truncated file");
+        expectRejected(path, Arrays.copyOf(good, 10), "a file shorter than the header");
+
+        byte[] wrongCount = good.clone();
+        ByteBuffer.wrap(wrongCount).putInt(8, 101); // bookCount
+        expectRejected(path, wrongCount, "a header whose counts don't match the length");
+
+        Files.writeString(path, "Toni Morrison,Beloved,1\n");
+        check(!CatalogSnapshot.isSnapshot(path), "a text books file is not a snapshot");
+        expectRejected(path, Files.readAllBytes(path), "a text books file");
+    }
+
+    private static void testLibrarianExportImport(Path dir) throws IOException {
+        System.out.println("\n Librarian export and import...");
+        Path usersFile = dir.resolve("users.txt");
+        Files.writeString(usersFile, "");
+        UserService users = new UserService(usersFile.toString());
+
+        Librarian lib = new Librarian(dir.resolve("export.txt").toString(), users);
+        lib.addBooks(sampleBooks(2000));
+        Path snap = dir.resolve("export.snap");
+        lib.exportSnapshot(snap.toString());
+        lib.close();
+
+        Librarian fromSnap = new Librarian(dir.resolve("from-snap.txt").toString(), users);
+        Librarian.ImportResult r = fromSnap.importCatalog(snap);
+        check(r.inserted() == 2000
+                && fromSnap.getBook(1999).map(Book::get_title).orElse("").equals("Title 1999"),
+                "a snapshot imports every book: " + r);
+        fromSnap.close();
+
+        byte[] damaged = Files.readAllBytes(snap);
+        damaged[damaged.length / 2] ^= 0x01;
+        Files.write(snap, damaged);
+        Librarian fromBad = new Librarian(dir.resolve("from-bad.txt").toString(), users);
+        try{
+            fromBad.importCatalog(snap);
+            check(false, "a damaged snapshot is rejected");
+        } catch (IOException e){
+            check(true, "a damaged snapshot is rejected: " + e.getMessage());
+        }
+        check(fromBad.listAllBooks().isEmpty(), "nothing is imported from a damaged snapshot");
+        fromBad.close();
+        users.close();
+    }
+
+    // -------------------------
+
+    // 7 books per author, so authors repeat
+    private static List<Book> sampleBooks(int n){
+        List<Book> books = new ArrayList<>();
+        for(int i = 0; i < n; i++){
+            books.add(new Book("Author " + i / 7, "Title " + i, i));
+        }
+        return books;
+    }
+
+    private static void expectRejected(Path path, byte[] contents, String what) throws IOException {
+        Files.write(path, contents);
+        try{
+            CatalogSnapshot.read(path);
+            check(false, "rejects " + what);
+        } catch (IOException e){
+            check(true, "rejects " + what + ": " + e.getMessage());
+        }
+    }
+
+    private static boolean same(Book b, String author, String title, int serial){
+        return b != null && author.equals(b.get_author()) && title.equals(b.get_title())
+                && b.get_serial_number() == serial;
+    }
+
+    private static String text(String s){
+        return s == null ? "" : s;
+    }
+
+    static void check(boolean ok, String what){
+        System.out.println((ok ? "ok   " : "FAIL ") + what);
+        if(!ok) failures++;
+    }
+
+    static void finish(){
+        if(failures > 0){
+            System.out.println("\n" + failures + " check(s) failed");
+            System.exit(1);
+        }
+        System.out.println("\nAll checks passed");
+    }
+}
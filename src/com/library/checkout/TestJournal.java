@@ -0,0 +1,210 @@
+package com.library.checkout;
+
+import com.library.checkout.journal.AppendLog;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+// TestJournal.java
+// 10/17/2026
+// the append-only journal: AppendLog framing and torn-tail recovery, and LibraryJournal's records and
+// rotation. Everything is written to a temp directory; exits with 1 if any check fails.
+public class TestJournal {
+    static int failures;
+
+    public static void main(String[] args) throws Exception {
+        Path dir = Files.createTempDirectory("test-journal");
+
+        testAppendLogRoundTrip(dir.resolve("log"));
+        testAppendLogTornTail(dir.resolve("torn"));
+        testAppendLogBadChecksum(dir.resolve("crc"));
+        testLibraryJournalRecords(dir.resolve("books.journal"));
+
+        finish();
+    }
+
+    private static void testAppendLogRoundTrip(Path path) throws IOException {
+        System.out.println("\n AppendLog round-trip...");
+        try(AppendLog log = new AppendLog(path)){
+            log.replay(payload -> {});
+            for(int i = 0; i < 100; i++){
+                log.append(("record " + i).getBytes("UTF-8"));
+            }
+            log.append(new byte[0]);
+            log.sync();
+            check(log.recordCount() == 101, "recordCount counts appends, got " + log.recordCount());
+        }
+        List<String> seen = replayAll(path);
+        check(seen.size() == 101, "every record replays, got " + seen.size());
+        check(seen.get(0).equals("record 0") && seen.get(99).equals("record 99")
+                && seen.get(100).isEmpty(),
+                "records replay in order with their bytes");
+        check(Files.size(path) == 101 * 8 + sumLengths(seen), "each frame is length + crc + payload");
+    }
+
+    private static void testAppendLogTornTail(Path path) throws IOException {
+        System.out.println("\n AppendLog torn tail...");
+        try(AppendLog log = new AppendLog(path)){
+            log.replay(payload -> {});
+            log.append("first".getBytes("UTF-8"));
+            log.append("second".getBytes("UTF-8"));
+        }
+        long good = Files.size(path);
+        // half a frame, as a crash mid-append leaves it
+        try(RandomAccessFile f = new RandomAccessFile(path.toFile(), "rw")){
+            f.seek(good);
+            f.writeInt(100);
+            f.writeInt(0x12345678);
+            f.write("par".getBytes("UTF-8"));
+        }
+        check(replayAll(path).size() == 2, "replay stops before a partial frame");
+        check(Files.size(path) == good, "the partial frame is truncated away");
+
+        try(AppendLog log = new AppendLog(path)){
+            log.replay(payload -> {});
+            log.append("third".getBytes("UTF-8"));
+        }
+        List<String> seen = replayAll(path);
+        check(seen.size() == 3 && seen.get(2).equals("third"),
+                "appends after recovery land on a clean boundary");
+    }
+
+    private static void testAppendLogBadChecksum(Path path) throws IOException {
+        System.out.println("\n AppendLog checksum...");
+        try(AppendLog log = new AppendLog(path)){
+            log.replay(payload -> {});
+            log.append("keep".getBytes("UTF-8"));
+            log.append("damaged".getBytes("UTF-8"));
+            log.append("lost".getBytes("UTF-8"));
+        }
+        try(RandomAccessFile f = new RandomAccessFile(path.toFile(), "rw")){
+            long damaged = 8 + 4 + 8 + 2; // a byte inside the second payload
+            f.seek(damaged);
+            f.write('X');
+        }
+        List<String> seen = replayAll(path);
+        check(seen.size() == 1 && seen.get(0).equals("keep"),
+                "replay stops at the first record that fails its crc");
+        check(Files.size(path) == 8 + 4, "the log is cut back to the last good record");
+    }
+
+    private static void testLibraryJournalRecords(Path path) throws IOException {
+        System.out.println("\n LibraryJournal records...");
+        try(AppendLog log = new AppendLog(path)){ // ADD and REMOVE are only written by older versions
+            log.replay(payload -> {});
+            log.append(addRecord(7, "Toni Morrison", "Beloved"));
+            log.append(ByteBuffer.allocate(5).put(LibraryJournal.REMOVE).putInt(8).array());
+        }
+        try(LibraryJournal journal = new LibraryJournal(path)){
+            journal.replay(new Recorder());
+            journal.checkout(7, 3, 20000L);
+            journal.rotate(); // as compaction does; later records go to the live journal
+            journal.returned(7);
+            journal.checkout(9, Integer.MAX_VALUE, -1L);
+        }
+        check(Files.exists(Paths.get(path + ".prev")), "rotate leaves the side file");
+
+        Recorder r = new Recorder();
+        try(LibraryJournal journal = new LibraryJournal(path)){
+            journal.replay(r);
+        }
+        check(r.events.equals(List.of("add 7 Toni Morrison/Beloved", "remove 8", "checkout 7 3 20000",
+                        "return 7", "checkout 9 2147483647 -1")),
+                "side file then live journal replay in order: " + r.events);
+
+        try(LibraryJournal journal = new LibraryJournal(path)){
+            journal.replay(new Recorder());
+            journal.discardRotated();
+        }
+        r = new Recorder();
+        try(LibraryJournal journal = new LibraryJournal(path)){
+            journal.replay(r);
+        }
+        check(r.events.equals(List.of("return 7", "checkout 9 2147483647 -1")),
+                "discardRotated drops only the rotated records: " + r.events);
+
+        try(AppendLog log = new AppendLog(path)){
+            log.replay(payload -> {});
+            log.append(new byte[]{'?', 0, 0, 0, 1});
+        }
+        try(LibraryJournal journal = new LibraryJournal(path)){
+            journal.replay(new Recorder());
+            check(false, "an unknown record type is an error");
+        } catch (IOException e){
+            check(true, "an unknown record type is an error: " + e.getMessage());
+        }
+    }
+
+    // -------------------------
+
+    private static final class Recorder implements LibraryJournal.Listener {
+        final List<String> events = new ArrayList<>();
+
+        public void onAdd(int serial, String author, String title){
+            events.add("add " + serial + " " + author + "/" + title);
+        }
+
+        public void onRemove(int serial){
+            events.add("remove " + serial);
+        }
+
+        public void onCheckout(int serial, int userId, long dueEpochDay){
+            events.add("checkout " + serial + " " + userId + " " + dueEpochDay);
+        }
+
+        public void onReturn(int serial){
+            events.add("return " + serial);
+        }
+    }
+
+    private static byte[] addRecord(int serial, String author, String title) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeByte(LibraryJournal.ADD);
+        out.writeInt(serial);
+        out.writeUTF(author);
+        out.writeUTF(title);
+        return bytes.toByteArray();
+    }
+
+    private static List<String> replayAll(Path path) throws IOException {
+        List<String> seen = new ArrayList<>();
+        try(AppendLog log = new AppendLog(path)){
+            log.replay(payload -> {
+                byte[] raw = new byte[payload.remaining()];
+                payload.get(raw);
+                seen.add(new String(raw, "UTF-8"));
+            });
+        }
+        return seen;
+    }
+
+    private static long sumLengths(List<String> records){
+        long n = 0;
+        for(String s : records){
+            n += s.length();
+        }
+        return n;
+    }
+
+    static void check(boolean ok, String what){
+        System.out.println((ok ? "ok   " : "FAIL ") + what);
+        if(!ok) failures++;
+    }
+
+    static void finish(){
+        if(failures > 0){
+            System.out.println("\n" + failures + " check(s) failed");
+            System.exit(1);
+        }
+        System.out.println("\nAll checks passed");
+    }
+}
@@ -0,0 +1,337 @@
+package com.library.checkout;
+
+import com.library.checkout.book.Book;
+import com.library.checkout.book.OffHeapCatalog;
+import com.library.checkout.fine.Fine;
+import com.library.checkout.journal.AppendLog;
+import com.library.checkout.user.UserService;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+// TestLibrarian.java
+// 10/17/2026
+// Librarian end to end: seeding and journal replay with bad books, addBook's validation, concurrent
+// checkouts, the loan queries, fines and loan limits, addBook's copies, and async startup.
+// Everything is written to a temp directory; exits with 1 if any check fails.
+public class TestLibrarian {
+    static int failures;
+    static Path dir;
+    static UserService users;
+
+    public static void main(String[] args) throws Exception {
+        dir = Files.createTempDirectory("test-librarian");
+        Path usersFile = dir.resolve("users.txt");
+        Files.writeString(usersFile, "0,bob,pw,user\n1,al,pw,user\n2,cy,pw,user\n3,di,pw,user\n");
+        users = new UserService(usersFile.toString());
+
+        testSeedSkipsBadBooks();
+        testAddBookValidation();
+        testConcurrentCheckouts();
+        testDueDateQueries();
+        testFines();
+        testLoanLimits();
+        testAddBookKeepsCallerBook();
+        testAsyncStart();
+
+        users.close();
+        finish();
+    }
+
+    // an over-long line in the text file and an over-long journaled ADD are skipped, not fatal, and a
+    // leftover from a failed seed is cleaned up
+    private static void testSeedSkipsBadBooks() throws IOException {
+        System.out.println("\n Seeding with bad books...");
+        Path books = dir.resolve("seed.txt");
+        Files.writeString(books, "Toni Morrison,Beloved,1\n" + "L".repeat(90) + ",Too long,2\n"
+                + "Zadie Smith,On Beauty,3\n");
+        Files.writeString(Paths.get(books + ".dat.tmp"), "left by a failed seed");
+        try(AppendLog log = new AppendLog(Paths.get(books + ".journal"))){
+            log.append(addRecord(4, "J".repeat(100), "Too long too"));
+            log.append(addRecord(5, "Octavia Butler", "Kindred"));
+        }
+
+        Librarian lib = new Librarian(books.toString(), users);
+        int loaded = lib.listAllBooks().size();
+        check(loaded == 3, "the books that fit are loaded, got " + loaded);
+        check(lib.getBook(2).isEmpty() && lib.getBook(4).isEmpty(), "the over-long books are skipped");
+        check(!Files.exists(Paths.get(books + ".dat.tmp")), "the stale seed file is gone");
+        lib.close();
+
+        lib = new Librarian(books.toString(), users);
+        check(lib.listAllBooks().size() == 3 && lib.getBook(5).isPresent(),
+                "a restart sees the same books");
+        lib.close();
+    }
+
+    private static void testAddBookValidation() throws IOException {
+        System.out.println("\n addBook validation...");
+        Path books = dir.resolve("validate.txt");
+        Librarian lib = new Librarian(books.toString(), users);
+        lib.addBook(new Book("Toni Morrison", "Beloved", 1));
+        try{
+            lib.addBook(new Book("x".repeat(81), "Too long", 2));
+            check(false, "an over-long book is rejected");
+        } catch (IllegalArgumentException e){
+            check(true, "an over-long book is rejected: " + e.getMessage());
+        }
+        check(lib.getBook(2).isEmpty(), "the rejected book isn't in memory");
+        check(lib.searchByTitle("too long").isEmpty(), "the rejected book isn't indexed");
+        lib.addBook(new Book("Zadie Smith", "On Beauty", 3));
+        lib.close();
+
+        lib = new Librarian(books.toString(), users);
+        check(lib.getBook(2).isEmpty() && lib.getBook(1).isPresent() && lib.getBook(3).isPresent(),
+                "after a restart the rejected book is still absent and the others are there");
+        lib.close();
+    }
+
+    // four users race for every book: each book goes to exactly one of them, and the loans survive a
+    // restart
+    private static void testConcurrentCheckouts() throws Exception {
+        System.out.println("\n Concurrent checkouts...");
+        Path books = dir.resolve("loans.txt");
+        Librarian lib = new Librarian(books.toString(), users);
+        int n = 5000;
+        lib.addBooks(numberedBooks(n));
+
+        AtomicInteger wins = new AtomicInteger();
+        AtomicInteger refused = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        List<Future<?>> done = new ArrayList<>();
+        for(int t = 0; t < 4; t++){
+            int user = t;
+            done.add(pool.submit(() -> {
+                for(int i = 0; i < n; i++){
+                    try{
+                        lib.checkoutBook(i, user);
+                        wins.incrementAndGet();
+                    } catch (Librarian.BookAlreadyRentedException e){
+                        refused.incrementAndGet();
+                    }
+                    if(i % 500 == 0){ // reads run alongside the checkouts
+                        lib.listRenters();
+                        lib.listAllBooks();
+                    }
+                }
+                return null;
+            }));
+        }
+        for(Future<?> f : done){
+            f.get();
+        }
+        pool.shutdown();
+        check(wins.get() == n && refused.get() == 3 * n,
+                "each book is checked out exactly once: " + wins + " wins");
+        check(lib.listRenters().size() == n, "listRenters lists every loan");
+        try{
+            lib.checkoutBook(0, 0);
+            check(false, "a rented book can't be checked out again");
+        } catch (Librarian.BookAlreadyRentedException e){
+            check(true, "a rented book can't be checked out again");
+        }
+        lib.close();
+
+        Librarian reopened = new Librarian(books.toString(), users);
+        check(reopened.listRenters().size() == n, "loans survive a restart");
+        int returned = 0;
+        for(int i = 0; i < n; i++){
+            int renter = reopened.getRenter(i).orElse(-1);
+            reopened.returnBook(i, renter);
+            returned++;
+        }
+        check(returned == n && reopened.listRenters().isEmpty(), "every book can be returned");
+        reopened.close();
+    }
+
+    // the due-date queries read stripe by stripe while checkouts run, and agree with a snapshot after
+    private static void testDueDateQueries() throws Exception {
+        System.out.println("\n Due-date queries...");
+        int n = 5000;
+        Librarian lib = new Librarian(dir.resolve("due.txt").toString(), users);
+        lib.addBooks(numberedBooks(n));
+        LocalDate later = LocalDate.now().plusYears(1);
+        Thread reader = new Thread(() -> {
+            for(int i = 0; i < 200; i++){
+                lib.listOverdue(later);
+                lib.loansByDueDate();
+            }
+        });
+        reader.start();
+        checkOutAll(lib, n);
+        reader.join();
+
+        check(lib.listOverdue(later).size() == n, "every loan is overdue a year from now");
+        check(lib.listOverdue(later).toString().equals(lib.snapshot().overdue(later).toString()),
+                "listOverdue agrees with a snapshot");
+        check(lib.loansByDueDate().toString().equals(lib.snapshot().loansByDueDate().toString()),
+                "loansByDueDate agrees with a snapshot");
+        check(lib.countDueBetween(LocalDate.MIN, LocalDate.MAX) == n,
+                "countDueBetween counts every loan");
+        check(lib.listOverdue(LocalDate.MIN).isEmpty(), "nothing is overdue at the start of time");
+        check(lib.listOverdue(LocalDate.now()).isEmpty(), "nothing is overdue on the day it's checked out");
+
+        lib.returnBook(0, 0);
+        check(lib.listOverdue(later).size() == n - 1 && lib.loansByDueDate().get(0).serial() == 1,
+                "a returned book leaves the due-date index");
+        lib.close();
+    }
+
+    private static void testFines() throws Exception {
+        System.out.println("\n Fines...");
+        int n = 3000;
+        Librarian lib = new Librarian(dir.resolve("fines.txt").toString(), users);
+        lib.addBooks(numberedBooks(n));
+        checkOutAll(lib, n);
+        LocalDate later = LocalDate.now().plusYears(1);
+
+        List<Fine> fines = lib.assessFines(later).collect(Collectors.toList());
+        check(fines.size() == n, "every overdue loan owes a fine, got " + fines.size());
+        check(fines.stream().mapToInt(f -> f.serial()).distinct().count() == n,
+                "one fine per loan");
+        check(fines.stream().allMatch(f -> f.amount() > 0), "every fine is positive");
+        check(lib.assessFines(LocalDate.now()).count() == 0, "nothing is owed before the due date");
+
+        lib.setFinePolicy((due, asOf, renter) -> asOf.isAfter(due) ? 1.0 : 0.0);
+        double total = lib.assessFines(later).mapToDouble(Fine::amount).sum();
+        check(total == n, "a custom policy is applied to every loan, total " + total);
+        lib.close();
+    }
+
+    private static void testLoanLimits() throws Exception {
+        System.out.println("\n Loan limits...");
+        int n = 400;
+        Librarian lib = new Librarian(dir.resolve("limits.txt").toString(), users);
+        lib.addBooks(numberedBooks(n + 2));
+        checkOutAll(lib, n);
+        int total = 0;
+        for(int u = 0; u < 4; u++){
+            int user = u;
+            List<Loan> loans = lib.listLoansForUser(user);
+            total += loans.size();
+            check(loans.stream().allMatch(l -> l.userId() == user),
+                    "listLoansForUser(" + user + ") lists only that user's loans");
+        }
+        check(total == n, "the per-user lists cover every loan");
+
+        lib.setLoanLimit(lib.listLoansForUser(0).size());
+        try{
+            lib.checkoutBook(n, 0);
+            check(false, "the loan limit is enforced");
+        } catch (Librarian.LoanLimitExceededException e){
+            check(true, "the loan limit is enforced: " + e.getMessage());
+        }
+        lib.returnBook(0, 0);
+        lib.checkoutBook(n, 0);
+        check(lib.listLoansForUser(0).size() == lib.getLoanLimit(), "a return makes room under the limit");
+        try{
+            lib.checkoutBook(n + 1, 99);
+            check(false, "an unknown user can't check out");
+        } catch (Librarian.UserNotFoundException e){
+            check(true, "an unknown user can't check out: " + e.getMessage());
+        }
+        lib.close();
+    }
+
+    // the inventory keeps its own copy, so neither an OffHeapBook nor the caller's Book is written to
+    private static void testAddBookKeepsCallerBook() throws IOException {
+        System.out.println("\n addBook copies...");
+        Path books = dir.resolve("copies.txt");
+        Files.writeString(books, "Au,One,1\n");
+        Librarian lib = new Librarian(books.toString(), users);
+
+        OffHeapCatalog offHeap = new OffHeapCatalog();
+        offHeap.put(new Book("Off Author", "Off Title", 50));
+        lib.addBook(offHeap.get(50)); // its setters throw
+        check(lib.getBook(50).map(Book::get_title).orElse("").equals("Off Title"),
+                "an OffHeapBook can be added");
+        check(lib.searchByAuthor("off author").size() == 1, "the added OffHeapBook is indexed");
+
+        String author = new String("Au");
+        Book mine = new Book(author, "Two", 2);
+        lib.addBook(mine);
+        check(mine.get_author() == author, "the caller's Book isn't changed");
+        check(lib.getBook(2).get().get_author() == lib.getBook(1).get().get_author(),
+                "the inventory's copies share one author String");
+        lib.close();
+    }
+
+    // reads during startAsync wait for what they need; Books handed out early are never changed later
+    private static void testAsyncStart() throws IOException {
+        System.out.println("\n Async start...");
+        Path books = dir.resolve("async.txt");
+        StringBuilder text = new StringBuilder();
+        for(int i = 0; i < 20000; i++){
+            text.append("Au").append(i % 10).append(",T").append(i).append(',').append(i).append('\n');
+        }
+        Files.writeString(books, text);
+        new Librarian(books.toString(), users).close(); // seed the store
+
+        Librarian lib = Librarian.startAsync(books.toString(), users, false);
+        Book early = null;
+        while(early == null){ // getBook doesn't wait; books appear as the load publishes them
+            early = lib.getBook(7).orElse(null);
+        }
+        String earlyAuthor = early.get_author();
+        check(lib.searchByAuthor("au7").size() == 2000, "a search during startup waits for the indexes");
+        lib.indexesReady().join();
+        check(early.get_author() == earlyAuthor, "a Book read during startup isn't rewritten");
+        check(lib.getBook(7).get().get_author() == lib.getBook(17).get().get_author(),
+                "after the index build the inventory's authors are shared");
+        check(lib.listAllBooks().size() == 20000, "every book is loaded");
+        lib.close();
+    }
+
+    // -------------------------
+
+    private static List<Book> numberedBooks(int n){
+        List<Book> books = new ArrayList<>();
+        for(int i = 0; i < n; i++){
+            books.add(new Book("A" + i, "T" + i, i));
+        }
+        return books;
+    }
+
+    // book i goes to user i % 4
+    private static void checkOutAll(Librarian lib, int n) throws Exception {
+        for(int i = 0; i < n; i++){
+            lib.checkoutBook(i, i % 4);
+        }
+    }
+
+    // a journal ADD record, as older versions wrote them
+    private static byte[] addRecord(int serial, String author, String title) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeByte(LibraryJournal.ADD);
+        out.writeInt(serial);
+        out.writeUTF(author);
+        out.writeUTF(title);
+        return bytes.toByteArray();
+    }
+
+    static void check(boolean ok, String what){
+        System.out.println((ok ? "ok   " : "FAIL ") + what);
+        if(!ok) failures++;
+    }
+
+    static void finish(){
+        if(failures > 0){
+            System.out.println("\n" + failures + " check(s) failed");
+            System.exit(1);
+        }
+        System.out.println("\nAll checks passed");
+    }
+}
@@ -0,0 +1,109 @@
+package com.library.checkout;
+
+import com.library.checkout.book.Book;
+import com.library.checkout.book.OffHeapCatalog;
+import com.library.checkout.user.UserService;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// TestOffHeapCatalog.java
+// 10/17/2026
+// the off-heap catalog: save and map round-trips, copy-on-write mappings, and export/import through
+// Librarian. Everything is written to a temp directory; exits with 1 if any check fails.
+public class TestOffHeapCatalog {
+    static int failures;
+
+    public static void main(String[] args) throws IOException {
+        Path dir = Files.createTempDirectory("test-offheap");
+
+        testRoundTrip(dir.resolve("books.offheap"));
+        testLibrarianExportImport(dir);
+
+        finish();
+    }
+
+    private static void testRoundTrip(Path path) throws IOException {
+        System.out.println("\n OffHeapCatalog round-trip...");
+        OffHeapCatalog catalog = OffHeapCatalog.of(sampleBooks(3000));
+        catalog.put(new Book("Zadie Smith", "Swing Time", 5)); // replaces serial 5
+        catalog.remove(6);
+        catalog.save(path);
+        check(OffHeapCatalog.isOffHeapCatalog(path), "isOffHeapCatalog recognizes the file");
+
+        OffHeapCatalog mapped = OffHeapCatalog.map(path);
+        check(mapped.size() == 2999, "live books only, got " + mapped.size());
+        check(mapped.get(6) == null, "removed book is gone");
+        check(same(mapped.get(5), "Zadie Smith", "Swing Time", 5),
+                "replaced book keeps its newest version");
+        check(same(mapped.get(2999), "Author " + 2999 / 7, "Title 2999", 2999), "last book reads back");
+
+        Map<Integer, String> titles = new HashMap<>();
+        mapped.forEach(b -> titles.put(b.get_serial_number(), b.get_title()));
+        check(titles.size() == 2999 && "Title 1234".equals(titles.get(1234)),
+                "forEach visits every live book");
+
+        mapped.put(new Book("New", "Copy-on-write", 7000));
+        check(OffHeapCatalog.map(path).get(7000) == null,
+                "changes to a mapped catalog don't reach the file");
+
+        Files.writeString(path, "Toni Morrison,Beloved,1\n");
+        check(!OffHeapCatalog.isOffHeapCatalog(path), "a text books file is not an off-heap catalog");
+    }
+
+    private static void testLibrarianExportImport(Path dir) throws IOException {
+        System.out.println("\n Librarian export and import...");
+        Path usersFile = dir.resolve("users.txt");
+        Files.writeString(usersFile, "");
+        UserService users = new UserService(usersFile.toString());
+
+        Librarian lib = new Librarian(dir.resolve("export.txt").toString(), users);
+        lib.addBooks(sampleBooks(2000));
+        Path offHeap = dir.resolve("export.offheap");
+        lib.exportOffHeap(offHeap.toString());
+        lib.close();
+
+        Librarian fromOffHeap = new Librarian(dir.resolve("from-offheap.txt").toString(), users);
+        Librarian.ImportResult r = fromOffHeap.importCatalog(offHeap);
+        check(r.inserted() == 2000, "an off-heap catalog imports every book: " + r);
+        check(fromOffHeap.searchByAuthor("author 285").size() == 5, "imported books are indexed");
+        check(fromOffHeap.getBook(1999).map(Book::get_title).orElse("").equals("Title 1999"),
+                "imported books read back");
+        fromOffHeap.close();
+        users.close();
+    }
+
+    // -------------------------
+
+    // 7 books per author, so authors repeat
+    private static List<Book> sampleBooks(int n){
+        List<Book> books = new ArrayList<>();
+        for(int i = 0; i < n; i++){
+            books.add(new Book("Author " + i / 7, "Title " + i, i));
+        }
+        return books;
+    }
+
+    private static boolean same(Book b, String author, String title, int serial){
+        return b != null && author.equals(b.get_author()) && title.equals(b.get_title())
+                && b.get_serial_number() == serial;
+    }
+
+    static void check(boolean ok, String what){
+        System.out.println((ok ? "ok   " : "FAIL ") + what);
+        if(!ok) failures++;
+    }
+
+    static void finish(){
+        if(failures > 0){
+            System.out.println("\n" + failures + " check(s) failed");
+            System.exit(1);
+        }
+        System.out.println("\nAll checks passed");
+    }
+}
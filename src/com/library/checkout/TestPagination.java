@@ -0,0 +1,178 @@
+package com.library.checkout;
+
+import com.library.checkout.book.Book;
+import com.library.checkout.book.SortedCatalog;
+import com.library.checkout.user.UserService;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// TestPagination.java
+// 10/17/2026
+// keyset pagination: paging through listBooks while another thread adds and removes books never repeats
+// or skips a book that stayed in the catalog, search pages add up to the full results, and tokens only
+// resume their own query.
+// Everything is written to a temp directory; exits with 1 if any check fails.
+public class TestPagination {
+    static int failures;
+    static UserService users;
+    static Path dir;
+
+    public static void main(String[] args) throws Exception {
+        dir = Files.createTempDirectory("test-pagination");
+        Path usersFile = dir.resolve("users.txt");
+        Files.writeString(usersFile, "");
+        users = new UserService(usersFile.toString());
+
+        testPagesMatchSortedView();
+        testPagingDuringInserts();
+        testSearchPages();
+        testTokens();
+
+        users.close();
+        finish();
+    }
+
+    private static void testPagesMatchSortedView() throws IOException {
+        System.out.println("\n Pages against the sorted view...");
+        Librarian lib = new Librarian(dir.resolve("pages.txt").toString(), users);
+        lib.addBooks(books(0, 1000));
+        lib.addBook(new Book(null, "No author", 1000));
+        lib.addBook(new Book("No title", null, 1001));
+        for(SortedCatalog.Order order : SortedCatalog.Order.values()){
+            List<Book> paged = pageAll(lib, order, 7);
+            check(paged.equals(lib.sortedBooks(order).page(0, Integer.MAX_VALUE)),
+                    order + " pages concatenate to the sorted view, null fields included");
+        }
+        Page<Book> last = lib.listBooks(SortedCatalog.Order.SERIAL, 1002, null);
+        check(last.items().size() == 1002 && !last.hasMore() && last.nextToken().isEmpty(),
+                "a page holding everything has no next token");
+        lib.close();
+    }
+
+    // a writer adds and removes books while a reader pages; the books present throughout are each
+    // seen exactly once, in order
+    private static void testPagingDuringInserts() throws Exception {
+        System.out.println("\n Paging during inserts...");
+        Librarian lib = new Librarian(dir.resolve("concurrent.txt").toString(), users);
+        int n = 3000;
+        lib.addBooks(books(0, n));
+        AtomicBoolean stop = new AtomicBoolean();
+        Thread writer = new Thread(() -> {
+            int serial = n;
+            while(!stop.get()){
+                lib.addBook(new Book("Author " + serial % 97, "Title " + serial % 1009, serial));
+                if(serial % 3 == 0 && serial > n) lib.removeBook(serial - 1); // only books it added
+                serial++;
+            }
+        });
+        writer.start();
+
+        int wrong = 0;
+        for(SortedCatalog.Order order : SortedCatalog.Order.values()){
+            List<Book> paged = pageAll(lib, order, 25);
+            Set<Integer> seen = new HashSet<>();
+            boolean ordered = true;
+            for(int i = 0; i < paged.size(); i++){
+                if(!seen.add(paged.get(i).get_serial_number())) wrong++;
+                if(i > 0 && order.comparator().compare(paged.get(i - 1), paged.get(i)) >= 0) ordered = false;
+            }
+            for(int serial = 0; serial < n; serial++){
+                if(!seen.contains(serial)) wrong++;
+            }
+            check(ordered, order + " pages stay in order while books are added");
+        }
+        stop.set(true);
+        writer.join();
+        check(wrong == 0, "no book is repeated and no original book is skipped, " + wrong + " wrong");
+        lib.close();
+    }
+
+    private static void testSearchPages() throws IOException {
+        System.out.println("\n Search pages...");
+        Librarian lib = new Librarian(dir.resolve("search.txt").toString(), users);
+        lib.addBooks(books(0, 2000));
+        List<Book> paged = new ArrayList<>();
+        String token = null;
+        do{
+            Page<Book> page = lib.searchByAuthor("author 1", SortedCatalog.Order.TITLE, 30, token);
+            paged.addAll(page.items());
+            token = page.nextToken().orElse(null);
+        } while(token != null);
+        List<Book> all = new ArrayList<>(lib.searchByAuthor("author 1"));
+        all.sort(SortedCatalog.Order.TITLE.comparator());
+        check(paged.equals(all), "author search pages concatenate to the full result in title order");
+        check(lib.searchByTitle("no such title", SortedCatalog.Order.SERIAL, 10, null).items().isEmpty(),
+                "a search with no matches is one empty page");
+        lib.close();
+    }
+
+    private static void testTokens() throws IOException {
+        System.out.println("\n Tokens...");
+        Librarian lib = new Librarian(dir.resolve("tokens.txt").toString(), users);
+        lib.addBooks(books(0, 100));
+        String token = lib.listBooks(SortedCatalog.Order.TITLE, 10, null).nextToken().get();
+        expectRejected(() -> lib.listBooks(SortedCatalog.Order.AUTHOR, 10, token), "a token for another order");
+        expectRejected(() -> lib.searchByTitle("title", SortedCatalog.Order.TITLE, 10, token),
+                "a listing token used for a search");
+        String searchToken = lib.searchByTitle("title", SortedCatalog.Order.TITLE, 10, null).nextToken().get();
+        expectRejected(() -> lib.searchByTitle("other", SortedCatalog.Order.TITLE, 10, searchToken),
+                "a token for another fragment");
+        expectRejected(() -> lib.listBooks(SortedCatalog.Order.TITLE, 10, "not a token!"), "a damaged token");
+        expectRejected(() -> lib.listBooks(SortedCatalog.Order.TITLE, 0, null), "a page size of 0");
+
+        lib.removeBook(lib.listBooks(SortedCatalog.Order.TITLE, 10, null).items().get(9).get_serial_number());
+        check(lib.listBooks(SortedCatalog.Order.TITLE, 10, token).items().size() == 10,
+                "a token still resumes after the book it names is removed");
+        lib.close();
+    }
+
+    // -------------------------
+
+    private static List<Book> pageAll(Librarian lib, SortedCatalog.Order order, int pageSize){
+        List<Book> out = new ArrayList<>();
+        String token = null;
+        do{
+            Page<Book> page = lib.listBooks(order, pageSize, token);
+            out.addAll(page.items());
+            token = page.nextToken().orElse(null);
+        } while(token != null);
+        return out;
+    }
+
+    private static List<Book> books(int from, int to){
+        List<Book> books = new ArrayList<>();
+        for(int i = from; i < to; i++){
+            books.add(new Book("Author " + i % 97, "Title " + i % 1009, i));
+        }
+        return books;
+    }
+
+    private static void expectRejected(Runnable call, String what){
+        try{
+            call.run();
+            check(false, "rejects " + what);
+        } catch (IllegalArgumentException e){
+            check(true, "rejects " + what + ": " + e.getMessage());
+        }
+    }
+
+    static void check(boolean ok, String what){
+        System.out.println((ok ? "ok   " : "FAIL ") + what);
+        if(!ok) failures++;
+    }
+
+    static void finish(){
+        if(failures > 0){
+            System.out.println("\n" + failures + " check(s) failed");
+            System.exit(1);
+        }
+        System.out.println("\nAll checks passed");
+    }
+}
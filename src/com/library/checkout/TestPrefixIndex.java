@@ -0,0 +1,160 @@
+package com.library.checkout;
+
+import com.library.checkout.book.Book;
+import com.library.checkout.book.PrefixIndex;
+import com.library.checkout.book.TrigramIndex;
+import com.library.checkout.user.UserService;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+// TestPrefixIndex.java
+// 10/17/2026
+// PrefixIndex type-ahead checked against a sorted list of (key, serial) entries through random adds and
+// removes, plus completeTitle/completeAuthor through Librarian. Exits with 1 if any check fails.
+public class TestPrefixIndex {
+    static int failures;
+
+    static final String LETTERS = "abAB é";
+
+    public static void main(String[] args) throws IOException {
+        testMatchesSortedList();
+        testEdgeCases();
+        testLibrarianTypeAhead();
+
+        finish();
+    }
+
+    // entries in insertion order; the expected completion is a stable sort by key, so ties keep it
+    private static void testMatchesSortedList(){
+        System.out.println("\n Completion against a sorted list...");
+        Random random = new Random(11);
+        PrefixIndex index = new PrefixIndex();
+        List<Object[]> entries = new ArrayList<>(); // {normalized key, serial}
+        int mismatches = 0;
+        for(int step = 0; step < 4000; step++){
+            if(entries.isEmpty() || random.nextInt(4) != 0){
+                String key = randomText(random, 1 + random.nextInt(6));
+                int serial = step;
+                index.add(key, serial);
+                entries.add(new Object[]{TrigramIndex.normalize(key), serial});
+            } else {
+                Object[] e = entries.remove(random.nextInt(entries.size()));
+                index.remove((String) e[0], (Integer) e[1]);
+            }
+            if(step % 10 == 0){
+                String prefix = randomText(random, random.nextInt(4));
+                int k = 1 + random.nextInt(20);
+                if(!Arrays.equals(index.complete(prefix, k), expected(entries, prefix, k, false))) mismatches++;
+                if(!Arrays.equals(index.completeDistinct(prefix, k), expected(entries, prefix, k, true))){
+                    mismatches++;
+                }
+            }
+        }
+        check(mismatches == 0, "800 random completions match, " + mismatches + " mismatches");
+        check(index.size() == entries.size(), "size counts the entries left, got " + index.size());
+        check(index.complete("", Integer.MAX_VALUE).length == entries.size(),
+                "the empty prefix completes to every entry");
+    }
+
+    private static void testEdgeCases(){
+        System.out.println("\n Edge cases...");
+        PrefixIndex index = new PrefixIndex();
+        index.add("Beloved", 1);
+        index.add("Beach Music", 2);
+        index.add("Be", 3);
+        index.add("BELOVED", 4);
+        check(Arrays.equals(index.complete("be", 10), new int[]{3, 2, 1, 4}),
+                "key order, with ties in insertion order");
+        check(Arrays.equals(index.completeDistinct("BEL", 10), new int[]{1}), "one serial per distinct key");
+        check(index.complete("bex", 10).length == 0, "a prefix nobody has completes to nothing");
+        check(index.complete("be", 0).length == 0, "k = 0 completes to nothing");
+        index.remove("beach music", 2);
+        index.remove("beach music", 2);
+        check(Arrays.equals(index.complete("b", 10), new int[]{3, 1, 4}), "a removed entry is gone");
+        index.remove("be", 3);
+        check(Arrays.equals(index.complete("be", 10), new int[]{1, 4}),
+                "removing an inner key keeps the keys below it");
+    }
+
+    private static void testLibrarianTypeAhead() throws IOException {
+        System.out.println("\n Librarian type-ahead...");
+        Path dir = Files.createTempDirectory("test-prefix");
+        Path usersFile = dir.resolve("users.txt");
+        Files.writeString(usersFile, "");
+        UserService users = new UserService(usersFile.toString());
+        Librarian lib = new Librarian(dir.resolve("books.txt").toString(), users);
+        lib.addBook(new Book("Toni Morrison", "Beloved", 1));
+        lib.addBook(new Book("Toni Morrison", "Song of Solomon", 2));
+        lib.addBook(new Book("Tove Jansson", "The Summer Book", 3));
+        lib.addBook(new Book("Octavia Butler", "Bloodchild", 4));
+
+        check(titles(lib.completeTitle("b", 10)).equals(List.of("Beloved", "Bloodchild")),
+                "completeTitle lists matching titles in order");
+        check(lib.completeAuthor("TO", 10).equals(List.of("Toni Morrison", "Tove Jansson")),
+                "completeAuthor lists each author once");
+        lib.removeBook(1);
+        lib.addBook(new Book("Toni Morrison", "Jazz", 5));
+        check(titles(lib.completeTitle("b", 10)).equals(List.of("Bloodchild")), "a removed book is gone");
+        check(titles(lib.completeTitle("j", 1)).equals(List.of("Jazz")), "an added book is found");
+        lib.close();
+        users.close();
+    }
+
+    // -------------------------
+
+    private static int[] expected(List<Object[]> entries, String prefix, int k, boolean distinct){
+        String p = TrigramIndex.normalize(prefix);
+        List<Object[]> sorted = new ArrayList<>(entries);
+        sorted.sort(Comparator.comparing(e -> (String) e[0]));
+        Map<String, Integer> firstPerKey = new LinkedHashMap<>();
+        List<Integer> out = new ArrayList<>();
+        for(Object[] e : sorted){
+            if(!((String) e[0]).startsWith(p)) continue;
+            if(distinct){
+                firstPerKey.putIfAbsent((String) e[0], (Integer) e[1]);
+            } else {
+                out.add((Integer) e[1]);
+            }
+        }
+        if(distinct) out.addAll(firstPerKey.values());
+        return out.stream().limit(k).mapToInt(Integer::intValue).toArray();
+    }
+
+    private static String randomText(Random random, int length){
+        StringBuilder s = new StringBuilder();
+        for(int i = 0; i < length; i++){
+            s.append(LETTERS.charAt(random.nextInt(LETTERS.length())));
+        }
+        return s.toString();
+    }
+
+    private static List<String> titles(List<Book> books){
+        List<String> out = new ArrayList<>();
+        for(Book b : books){
+            out.add(b.get_title());
+        }
+        return out;
+    }
+
+    static void check(boolean ok, String what){
+        System.out.println((ok ? "ok   " : "FAIL ") + what);
+        if(!ok) failures++;
+    }
+
+    static void finish(){
+        if(failures > 0){
+            System.out.println("\n" + failures + " check(s) failed");
+            System.exit(1);
+        }
+        System.out.println("\nAll checks passed");
+    }
+}
@@ -0,0 +1,150 @@
+package com.library.checkout;
+
+import com.library.checkout.book.Book;
+import com.library.checkout.user.UserService;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+// TestSearchCache.java
+// 10/17/2026
+// the search result cache: cached results stay correct through adds, replaces and removes, and only the
+// queries a change can affect are invalidated. Everything is written to a temp directory; exits with 1
+// if any check fails.
+public class TestSearchCache {
+    static int failures;
+    static UserService users;
+
+    public static void main(String[] args) throws IOException {
+        Path dir = Files.createTempDirectory("test-searchcache");
+        Path usersFile = dir.resolve("users.txt");
+        Files.writeString(usersFile, "");
+        users = new UserService(usersFile.toString());
+
+        testInvalidation(dir.resolve("books.txt"));
+        testRandomChanges(dir.resolve("random.txt"));
+        testEviction();
+
+        users.close();
+        finish();
+    }
+
+    private static void testInvalidation(Path books) throws IOException {
+        System.out.println("\n Invalidation...");
+        Librarian lib = new Librarian(books.toString(), users);
+        lib.addBook(new Book("Toni Morrison", "Beloved", 1));
+        lib.addBook(new Book("Toni Morrison", "Jazz", 2));
+
+        check(titles(lib.searchByTitle("LOVE")).equals(List.of("Beloved")), "first search finds the book");
+        lib.searchByTitle("love");
+        lib.searchByTitle("jazz");
+        SearchCache.Stats before = lib.searchCacheStats();
+        check(before.hits() == 1 && before.misses() == 2, "a repeated query is a hit: " + before);
+
+        lib.addBook(new Book("Alice Sebold", "The Lovely Bones", 3));
+        SearchCache.Stats after = lib.searchCacheStats();
+        check(after.invalidations() == before.invalidations() + 1,
+                "an add invalidates only the query it matches: " + after);
+        check(titles(lib.searchByTitle("love")).equals(List.of("Beloved", "The Lovely Bones")),
+                "the invalidated query sees the added book");
+        lib.searchByTitle("jazz");
+        check(lib.searchCacheStats().hits() == after.hits() + 1, "the unaffected query is still cached");
+
+        lib.addBook(new Book("Toni Morrison", "Sula", 1)); // replaces Beloved
+        check(titles(lib.searchByTitle("love")).equals(List.of("The Lovely Bones")),
+                "a replace drops the book from queries matching its old title");
+        check(titles(lib.searchByTitle("sula")).equals(List.of("Sula")), "and adds it to its new title's");
+        check(lib.searchByAuthor("morrison").size() == 2, "an author search sees the replaced book once");
+
+        lib.removeBook(2);
+        check(lib.searchByTitle("jazz").isEmpty(), "a removed book leaves the cached query");
+        check(lib.searchByAuthor("morrison").size() == 1, "and the cached author query");
+        lib.close();
+    }
+
+    // every search, cached or not, matches a scan of the catalog as it is at that moment
+    private static void testRandomChanges(Path books) throws IOException {
+        System.out.println("\n Random changes...");
+        Librarian lib = new Librarian(books.toString(), users);
+        Random random = new Random(3);
+        String[] words = {"red", "blue", "green", "night", "day", "sea", "river"};
+        String[] fragments = {"re", "red", "blue", "e", "night", "ay", "river", "sea"};
+        int mismatches = 0;
+        for(int step = 0; step < 3000; step++){
+            int serial = random.nextInt(200);
+            if(random.nextInt(3) == 0){
+                lib.removeBook(serial);
+            } else {
+                String title = words[random.nextInt(words.length)] + " " + words[random.nextInt(words.length)];
+                lib.addBook(new Book(words[random.nextInt(words.length)], title, serial));
+            }
+            String fragment = fragments[random.nextInt(fragments.length)];
+            if(!serials(lib.searchByTitle(fragment)).equals(scan(lib, fragment, true))) mismatches++;
+            if(!serials(lib.searchByAuthor(fragment)).equals(scan(lib, fragment, false))) mismatches++;
+        }
+        SearchCache.Stats stats = lib.searchCacheStats();
+        check(mismatches == 0, "6000 searches match a scan, " + mismatches + " mismatches");
+        check(stats.hits() > 0 && stats.invalidations() > 0, "the cache was used and invalidated: " + stats);
+        lib.close();
+    }
+
+    private static void testEviction(){
+        System.out.println("\n Eviction...");
+        SearchCache cache = new SearchCache(2);
+        cache.put(SearchCache.Type.TITLE, "a", new int[]{1});
+        cache.put(SearchCache.Type.TITLE, "b", new int[]{2});
+        cache.get(SearchCache.Type.TITLE, "a"); // now b is the eldest
+        cache.put(SearchCache.Type.TITLE, "c", new int[]{3});
+        check(cache.get(SearchCache.Type.TITLE, "b") == null && cache.get(SearchCache.Type.TITLE, "a") != null,
+                "the least recently used query is evicted");
+        check(cache.stats().evictions() == 1 && cache.stats().size() == 2, "evictions are counted");
+        check(cache.get(SearchCache.Type.AUTHOR, "a") == null, "title and author queries are separate");
+    }
+
+    // -------------------------
+
+    private static List<Integer> scan(Librarian lib, String fragment, boolean title){
+        List<Integer> out = new ArrayList<>();
+        for(Book b : lib.listAllBooks()){
+            String text = title ? b.get_title() : b.get_author();
+            if(text.toLowerCase(Locale.ROOT).contains(fragment)) out.add(b.get_serial_number());
+        }
+        out.sort(null);
+        return out;
+    }
+
+    private static List<Integer> serials(List<Book> books){
+        List<Integer> out = new ArrayList<>();
+        for(Book b : books){
+            out.add(b.get_serial_number());
+        }
+        out.sort(null);
+        return out;
+    }
+
+    private static List<String> titles(List<Book> books){
+        List<String> out = new ArrayList<>();
+        for(Book b : books){
+            out.add(b.get_title());
+        }
+        return out;
+    }
+
+    static void check(boolean ok, String what){
+        System.out.println((ok ? "ok   " : "FAIL ") + what);
+        if(!ok) failures++;
+    }
+
+    static void finish(){
+        if(failures > 0){
+            System.out.println("\n" + failures + " check(s) failed");
+            System.exit(1);
+        }
+        System.out.println("\nAll checks passed");
+    }
+}
@@ -0,0 +1,209 @@
+package com.library.checkout;
+
+import com.library.checkout.book.Book;
+import com.library.checkout.book.BookSorter;
+import com.library.checkout.book.SortedCatalog;
+import com.library.checkout.book.SortedView;
+import com.library.checkout.user.UserService;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+// TestSortedCatalog.java
+// 10/17/2026
+// SortedCatalog's maintained orders and the BookSorter views over them, checked against lists sorted
+// with a plain comparator: ties, null fields, builder changes and older versions staying as they were.
+// Exits with 1 if any check fails.
+public class TestSortedCatalog {
+    static int failures;
+
+    // case-insensitive, null as "", then the other field, then serial number
+    static final Comparator<Book> BY_TITLE = Comparator.comparing((Book b) -> text(b.get_title()),
+            String.CASE_INSENSITIVE_ORDER).thenComparing(b -> text(b.get_author()), String.CASE_INSENSITIVE_ORDER)
+            .thenComparingInt(Book::get_serial_number);
+    static final Comparator<Book> BY_AUTHOR = Comparator.comparing((Book b) -> text(b.get_author()),
+            String.CASE_INSENSITIVE_ORDER).thenComparing(b -> text(b.get_title()), String.CASE_INSENSITIVE_ORDER)
+            .thenComparingInt(Book::get_serial_number);
+    static final Comparator<Book> BY_SERIAL = Comparator.comparingInt(Book::get_serial_number);
+
+    public static void main(String[] args) throws IOException {
+        testOrders();
+        testTies();
+        testBuilder();
+        testBookSorter();
+        testLibrarianNullFields();
+
+        finish();
+    }
+
+    private static void testOrders(){
+        System.out.println("\n Orders...");
+        List<Book> books = randomBooks(new Random(5), 3000);
+        SortedCatalog catalog = SortedCatalog.of(books);
+        check(catalog.size() == books.size(), "size counts every book");
+        checkView(catalog, books, "a freshly built catalog");
+
+        SortedView byTitle = catalog.view(SortedCatalog.Order.TITLE);
+        List<Book> expected = sorted(books, BY_TITLE);
+        check(byTitle.get(1234) == expected.get(1234), "get(i) is the i-th book in order");
+        check(byTitle.page(2990, 50).equals(expected.subList(2990, 3000)), "a page past the end is cut short");
+        check(byTitle.page(3000, 50).isEmpty(), "a page starting at the end is empty");
+        try{
+            byTitle.get(3000);
+            check(false, "get past the end throws");
+        } catch (IndexOutOfBoundsException e){
+            check(true, "get past the end throws");
+        }
+    }
+
+    private static void testTies(){
+        System.out.println("\n Ties...");
+        List<Book> books = List.of(new Book("b", "Same", 3), new Book("A", "same", 2), new Book("a", "SAME", 1),
+                new Book(null, "same", 4), new Book("a", null, 5));
+        SortedCatalog catalog = SortedCatalog.of(books);
+        check(serials(catalog.view(SortedCatalog.Order.TITLE)).equals(List.of(5, 4, 1, 2, 3)),
+                "title ties fall back to author, then serial; a null title sorts first");
+        check(serials(catalog.view(SortedCatalog.Order.AUTHOR)).equals(List.of(4, 5, 1, 2, 3)),
+                "author ties fall back to title, then serial; a null author sorts first");
+        check(serials(catalog.view(SortedCatalog.Order.SERIAL)).equals(List.of(1, 2, 3, 4, 5)),
+                "serial order");
+    }
+
+    // random adds, replaces and removes through builders, small batches and large ones
+    private static void testBuilder(){
+        System.out.println("\n Builder...");
+        Random random = new Random(8);
+        Map<Integer, Book> current = new HashMap<>();
+        SortedCatalog catalog = SortedCatalog.empty();
+        SortedCatalog first = null;
+        List<Book> firstBooks = null;
+        int wrong = 0;
+        for(int round = 0; round < 40; round++){
+            SortedCatalog.Builder builder = catalog.builder();
+            int changes = round % 10 == 0 ? 500 : 1 + random.nextInt(20);
+            for(int i = 0; i < changes; i++){
+                int serial = random.nextInt(1000);
+                Book old = current.get(serial);
+                Book now = random.nextInt(4) == 0 ? null : randomBook(random, serial);
+                builder.replace(old, now);
+                if(now == null) current.remove(serial);
+                else current.put(serial, now);
+            }
+            catalog = builder.build();
+            if(!matches(catalog, new ArrayList<>(current.values()))) wrong++;
+            if(round == 5){
+                first = catalog;
+                firstBooks = new ArrayList<>(current.values());
+            }
+        }
+        check(wrong == 0, "every built catalog is in order, " + wrong + " wrong");
+        check(matches(first, firstBooks), "an older catalog is unchanged by later builds");
+        check(catalog.builder().build() == catalog, "a builder with no changes returns the same catalog");
+    }
+
+    private static void testBookSorter(){
+        System.out.println("\n BookSorter...");
+        List<Book> books = randomBooks(new Random(9), 500);
+        SortedCatalog catalog = SortedCatalog.of(books);
+        check(BookSorter.sortedView(catalog, BookSorter.BY_AUTHOR).page(0, 500).equals(sorted(books, BY_AUTHOR)),
+                "sortedView(BY_AUTHOR) is the author order");
+        List<Book> copy = new ArrayList<>(books);
+        check(BookSorter.sortBooks(copy, BookSorter.BY_TITLE) && copy.equals(sorted(books, BY_TITLE)),
+                "sortBooks sorts a plain list into the same order");
+        check(!BookSorter.sortBooks(copy, 4) && copy.equals(sorted(books, BY_TITLE)),
+                "an invalid option leaves the list alone");
+        try{
+            BookSorter.orderFor(0);
+            check(false, "orderFor rejects an invalid option");
+        } catch (IllegalArgumentException e){
+            check(true, "orderFor rejects an invalid option: " + e.getMessage());
+        }
+    }
+
+    private static void testLibrarianNullFields() throws IOException {
+        System.out.println("\n Librarian with null fields...");
+        Path dir = Files.createTempDirectory("test-sorted");
+        Path usersFile = dir.resolve("users.txt");
+        Files.writeString(usersFile, "");
+        UserService users = new UserService(usersFile.toString());
+        Librarian lib = new Librarian(dir.resolve("books.txt").toString(), users);
+        lib.addBook(new Book("Toni Morrison", "Beloved", 1));
+        lib.addBook(new Book(null, "No author", 3));
+        lib.addBook(new Book("No title", null, 4));
+        check(lib.sortedBooks(SortedCatalog.Order.TITLE).size() == 3, "null fields sort by title");
+        check(lib.sortedBooks(SortedCatalog.Order.AUTHOR).get(0).get_serial_number() == 3,
+                "a null author sorts first");
+        check(lib.removeBook(3) && lib.sortedBooks(SortedCatalog.Order.AUTHOR).size() == 2,
+                "a book with a null field can be removed");
+        lib.close();
+        users.close();
+    }
+
+    // -------------------------
+
+    private static boolean matches(SortedCatalog catalog, List<Book> books){
+        return catalog.size() == books.size()
+                && serials(catalog.view(SortedCatalog.Order.TITLE)).equals(serials(sorted(books, BY_TITLE)))
+                && serials(catalog.view(SortedCatalog.Order.AUTHOR)).equals(serials(sorted(books, BY_AUTHOR)))
+                && serials(catalog.view(SortedCatalog.Order.SERIAL)).equals(serials(sorted(books, BY_SERIAL)));
+    }
+
+    private static void checkView(SortedCatalog catalog, List<Book> books, String what){
+        check(matches(catalog, books), what + " lists every order like a sorted list");
+    }
+
+    private static List<Book> sorted(List<Book> books, Comparator<Book> order){
+        List<Book> out = new ArrayList<>(books);
+        out.sort(order);
+        return out;
+    }
+
+    private static List<Integer> serials(Iterable<Book> books){
+        List<Integer> out = new ArrayList<>();
+        for(Book b : books){
+            out.add(b.get_serial_number());
+        }
+        return out;
+    }
+
+    private static List<Book> randomBooks(Random random, int n){
+        List<Book> books = new ArrayList<>();
+        for(int i = 0; i < n; i++){
+            books.add(randomBook(random, i));
+        }
+        return books;
+    }
+
+    // few distinct words in mixed case, so ties are common; now and then a null field
+    private static Book randomBook(Random random, int serial){
+        String[] words = {"night", "Night", "NIGHT", "day", "Day", "sea", "é", "É"};
+        String author = random.nextInt(50) == 0 ? null : words[random.nextInt(words.length)];
+        String title = random.nextInt(50) == 0 ? null
+                : words[random.nextInt(words.length)] + " " + words[random.nextInt(words.length)];
+        return new Book(author, title, serial);
+    }
+
+    private static String text(String s){
+        return s == null ? "" : s;
+    }
+
+    static void check(boolean ok, String what){
+        System.out.println((ok ? "ok   " : "FAIL ") + what);
+        if(!ok) failures++;
+    }
+
+    static void finish(){
+        if(failures > 0){
+            System.out.println("\n" + failures + " check(s) failed");
+            System.exit(1);
+        }
+        System.out.println("\nAll checks passed");
+    }
+}
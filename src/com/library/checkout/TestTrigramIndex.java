@@ -0,0 +1,154 @@
+package com.library.checkout;
+
+import com.library.checkout.book.Book;
+import com.library.checkout.book.TrigramIndex;
+import com.library.checkout.user.UserService;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+
+// TestTrigramIndex.java
+// 10/17/2026
+// TrigramIndex and the title/author searches built on it, checked against a plain linear scan with
+// contains() over random texts, fragments of every length, and puts and removes.
+// Exits with 1 if any check fails.
+public class TestTrigramIndex {
+    static int failures;
+
+    // a small alphabet so fragments repeat and trigrams share posting lists
+    static final String LETTERS = "aAbBcé É-";
+
+    public static void main(String[] args) throws IOException {
+        testMatchesLinearScan();
+        testPutAndRemove();
+        testLibrarianSearch();
+
+        finish();
+    }
+
+    private static void testMatchesLinearScan(){
+        System.out.println("\n Search against a linear scan...");
+        Random random = new Random(42);
+        TrigramIndex index = new TrigramIndex();
+        Map<Integer, String> texts = new HashMap<>();
+        for(int serial = 0; serial < 2000; serial++){
+            String text = randomText(random, 1 + random.nextInt(12));
+            texts.put(serial, text);
+            index.put(serial, text);
+        }
+        texts.put(2000, null);
+        index.put(2000, null);
+
+        int mismatches = 0;
+        for(int i = 0; i < 3000; i++){
+            String fragment = randomText(random, random.nextInt(6));
+            if(!Arrays.equals(index.search(fragment), scan(texts, fragment))) mismatches++;
+        }
+        check(mismatches == 0, "3000 random fragments match the scan, " + mismatches + " mismatches");
+        check(index.search("").length == 2001, "the empty fragment matches every text, even a null one");
+        check(index.search("zzz").length == 0, "a trigram nobody has matches nothing");
+        check(Arrays.equals(index.search("ÉÉÉ"), scan(texts, "ééé")), "case folding covers non-ASCII");
+    }
+
+    private static void testPutAndRemove(){
+        System.out.println("\n Puts and removes...");
+        TrigramIndex index = new TrigramIndex();
+        index.put(1, "The Bluest Eye");
+        index.put(2, "Beloved");
+        index.put(3, "Sula");
+        check(Arrays.equals(index.search("LOVE"), new int[]{2}), "a search finds the indexed text");
+        index.put(2, "Jazz");
+        check(index.search("love").length == 0 && Arrays.equals(index.search("jaz"), new int[]{2}),
+                "a put replaces the old text's postings");
+        index.remove(1);
+        check(index.search("eye").length == 0 && index.size() == 2, "a removed text is gone");
+        index.remove(1);
+        check(index.size() == 2, "removing twice is harmless");
+        check(Arrays.equals(index.search("u"), new int[]{3}), "short fragments see the same texts");
+    }
+
+    private static void testLibrarianSearch() throws IOException {
+        System.out.println("\n Librarian searches...");
+        Path dir = Files.createTempDirectory("test-trigram");
+        Path usersFile = dir.resolve("users.txt");
+        Files.writeString(usersFile, "");
+        UserService users = new UserService(usersFile.toString());
+        Librarian lib = new Librarian(dir.resolve("books.txt").toString(), users);
+
+        Random random = new Random(7);
+        List<Book> books = new ArrayList<>();
+        for(int i = 0; i < 1000; i++){
+            books.add(new Book(randomText(random, 8), randomText(random, 10), i));
+        }
+        lib.addBooks(books);
+        lib.removeBook(10);
+
+        int mismatches = 0;
+        for(int i = 0; i < 500; i++){
+            String fragment = randomText(random, random.nextInt(5));
+            if(!serials(lib.searchByTitle(fragment)).equals(scanBooks(lib, fragment, true))) mismatches++;
+            if(!serials(lib.searchByAuthor(fragment)).equals(scanBooks(lib, fragment, false))) mismatches++;
+        }
+        check(mismatches == 0, "searchByTitle and searchByAuthor match a scan, " + mismatches + " mismatches");
+        lib.close();
+        users.close();
+    }
+
+    // -------------------------
+
+    private static String randomText(Random random, int length){
+        StringBuilder s = new StringBuilder();
+        for(int i = 0; i < length; i++){
+            s.append(LETTERS.charAt(random.nextInt(LETTERS.length())));
+        }
+        return s.toString();
+    }
+
+    private static int[] scan(Map<Integer, String> texts, String fragment){
+        String f = fragment.toLowerCase(Locale.ROOT);
+        return texts.entrySet().stream()
+                .filter(e -> (e.getValue() == null ? "" : e.getValue()).toLowerCase(Locale.ROOT).contains(f))
+                .mapToInt(Map.Entry::getKey).sorted().toArray();
+    }
+
+    private static List<Integer> scanBooks(Librarian lib, String fragment, boolean title){
+        String f = fragment.toLowerCase(Locale.ROOT);
+        List<Integer> out = new ArrayList<>();
+        for(Book b : lib.listAllBooks()){
+            String text = title ? b.get_title() : b.get_author();
+            if(text.toLowerCase(Locale.ROOT).contains(f)) out.add(b.get_serial_number());
+        }
+        out.sort(null);
+        return out;
+    }
+
+    private static List<Integer> serials(List<Book> books){
+        List<Integer> out = new ArrayList<>();
+        for(Book b : books){
+            out.add(b.get_serial_number());
+        }
+        out.sort(null);
+        return out;
+    }
+
+    static void check(boolean ok, String what){
+        System.out.println((ok ? "ok   " : "FAIL ") + what);
+        if(!ok) failures++;
+    }
+
+    static void finish(){
+        if(failures > 0){
+            System.out.println("\n" + failures + " check(s) failed");
+            System.exit(1);
+        }
+        System.out.println("\nAll checks passed");
+    }
+}
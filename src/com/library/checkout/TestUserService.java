@@ -18,9 +18,9 @@ public class TestUserService {
 
         System.out.println("\n Adding test users...");
         // add some test users
-        userService.addUser("Cameron", "camscoolpassword", "user");
-        userService.addUser("Richard 'Tricky Dick' Nixon", "watergatewascool", "user");
-        userService.addUser("Erykah Badu", "idontknowanythingabouterykahbadu", "librarian");
+        addTestUser("Cameron", "camscoolpassword", "user");
+        addTestUser("Richard 'Tricky Dick' Nixon", "watergatewascool", "user");
+        addTestUser("Erykah Badu", "idontknowanythingabouterykahbadu", "librarian");
 
         // check again
         checkLoadedUsers();
@@ -32,6 +32,15 @@ public class TestUserService {
         checkLoadedUsers();
     }
 
+    // usernames are unique, so skip the ones a previous run already added
+    private static void addTestUser(String username, String password, String role){
+        if(userService.getUserByUsername(username).isPresent()){
+            System.out.println(username + " already exists");
+            return;
+        }
+        userService.addUser(username, password, role);
+    }
+
     private static void checkLoadedUsers(){
         System.out.println("Loaded Users: ");
 
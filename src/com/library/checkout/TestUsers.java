@@ -0,0 +1,185 @@
+package com.library.checkout;
+
+import com.library.checkout.user.User;
+import com.library.checkout.user.UserService;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+// TestUsers.java
+// 10/17/2026
+// UserService with checks, unlike TestUserService: unique and case-insensitive usernames, id allocation
+// under concurrent writers, and the journal across restarts.
+// Everything is written to a temp directory; exits with 1 if any check fails.
+public class TestUsers {
+    static int failures;
+
+    public static void main(String[] args) throws Exception {
+        Path dir = Files.createTempDirectory("test-users");
+
+        testUniqueUsernames(dir.resolve("unique.txt"));
+        testCaseInsensitiveUsernames(dir.resolve("nocase.txt"));
+        testConcurrentAdds(dir.resolve("group.txt"));
+        testIdsRunOut(dir.resolve("ids.txt"));
+        testJournalRestart(dir.resolve("users.txt"));
+
+        finish();
+    }
+
+    private static void testUniqueUsernames(Path path) throws IOException {
+        System.out.println("\n Unique usernames...");
+        Files.writeString(path, "");
+        UserService users = new UserService(path.toString());
+        users.addUser("Cameron", "pw", "user");
+        users.addUser("cameron", "pw", "user");
+        check(users.getAllUsers().size() == 2, "by default usernames differing in case are different");
+        try{
+            users.addUser("Cameron", "other", "user");
+            check(false, "a taken username is rejected");
+        } catch (IllegalArgumentException e){
+            check(true, "a taken username is rejected: " + e.getMessage());
+        }
+        check(users.getUserByUsername("Cameron").get().password().equals("pw"),
+                "the rejected add changes nothing");
+        check(users.getUserByUsername("CAMERON").isEmpty(), "lookups are exact by default");
+        users.close();
+    }
+
+    private static void testCaseInsensitiveUsernames(Path path) throws IOException {
+        System.out.println("\n Case-insensitive usernames...");
+        Files.writeString(path, "");
+        UserService users = new UserService(path.toString(), true);
+        users.addUser("Cameron", "pw", "user");
+        users.addUser("Erykah Badu", "pw", "librarian");
+        try{
+            users.addUser("CAMERON", "pw", "user");
+            check(false, "a username differing only in case is taken");
+        } catch (IllegalArgumentException e){
+            check(true, "a username differing only in case is taken: " + e.getMessage());
+        }
+        Optional<User> found = users.getUserByUsername("cAmErOn");
+        check(found.isPresent() && found.get().name().equals("Cameron"),
+                "lookups ignore case and return the name as stored");
+
+        int id = users.getUserByUsername("erykah badu").get().id();
+        try{
+            users.updateUserById(id, new User(id, "cameron", "pw", "librarian"));
+            check(false, "renaming onto another user's name in a different case is rejected");
+        } catch (IllegalArgumentException e){
+            check(true, "renaming onto another user's name in a different case is rejected");
+        }
+        users.updateUserById(id, new User(id, "ERYKAH BADU", "pw", "librarian"));
+        check(users.getUserByUsername("Erykah Badu").get().name().equals("ERYKAH BADU"),
+                "a user can change the case of their own name");
+        users.close();
+
+        UserService reopened = new UserService(path.toString(), true);
+        check(reopened.getUserByUsername("erykah badu").isPresent()
+                && reopened.getUserByUsername("CAMERON").isPresent(),
+                "the index is rebuilt on load");
+        reopened.close();
+    }
+
+    // every writer's user is kept with an id of its own, and survives a restart
+    private static void testConcurrentAdds(Path path) throws Exception {
+        System.out.println("\n Concurrent adds...");
+        Files.writeString(path, "");
+        UserService users = new UserService(path.toString());
+        int threads = 16;
+        int perThread = 200;
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        List<Future<?>> done = new ArrayList<>();
+        for(int t = 0; t < threads; t++){
+            int thread = t;
+            done.add(pool.submit(() -> {
+                for(int i = 0; i < perThread; i++){
+                    users.addUser("user" + thread + "_" + i, "pw", "user");
+                }
+            }));
+        }
+        for(Future<?> f : done){
+            f.get();
+        }
+        pool.shutdown();
+        check(users.getAllUsers().size() == threads * perThread,
+                "every concurrent add is kept, got " + users.getAllUsers().size());
+        long distinctIds = users.getAllUsers().stream().mapToInt(User::id).distinct().count();
+        check(distinctIds == threads * perThread, "concurrent adds get distinct ids");
+        users.close();
+
+        UserService reopened = new UserService(path.toString());
+        check(reopened.getAllUsers().size() == threads * perThread,
+                "every concurrent add survives a restart, got " + reopened.getAllUsers().size());
+        reopened.close();
+    }
+
+    private static void testIdsRunOut(Path path) throws IOException {
+        System.out.println("\n Id exhaustion...");
+        Files.writeString(path, "");
+        Files.writeString(Paths.get(path + ".ids"), Integer.toString(Integer.MAX_VALUE - 2));
+        UserService users = new UserService(path.toString());
+        users.addUser("a", "pw", "user");
+        users.addUser("b", "pw", "user");
+        check(users.getUserByUsername("b").get().id() == Integer.MAX_VALUE - 1,
+                "the last id below MAX_VALUE is used");
+        try{
+            users.addUser("c", "pw", "user");
+            check(false, "adding past the last id fails");
+        } catch (IllegalStateException e){
+            check(true, "adding past the last id fails: " + e.getMessage());
+        }
+        check(users.getUserByUsername("c").isEmpty(), "the failed add keeps nothing");
+        try{
+            users.updateUserById(Integer.MAX_VALUE, new User(Integer.MAX_VALUE, "d", "pw", "user"));
+            check(false, "updating id MAX_VALUE fails");
+        } catch (IllegalArgumentException e){
+            check(true, "updating id MAX_VALUE fails: " + e.getMessage());
+        }
+        users.close();
+    }
+
+    private static void testJournalRestart(Path path) throws IOException {
+        System.out.println("\n Journal restart...");
+        Files.writeString(path, "");
+        UserService users = new UserService(path.toString());
+        users.addUser("Cameron", "pw", "user");
+        users.addUser("Erykah Badu", "pw", "librarian");
+        int id = users.getUserByUsername("Cameron").get().id();
+        users.updateUserById(id, new User(id, "Eric Clapton", "layla", "user"));
+        users.deleteUserById(users.getUserByUsername("Erykah Badu").get().id());
+        users.close();
+
+        UserService reopened = new UserService(path.toString());
+        int count = reopened.getAllUsers().size();
+        check(count == 1, "one user after restart, got " + count);
+        Optional<User> renamed = reopened.getUserByUsername("Eric Clapton");
+        check(renamed.isPresent() && renamed.get().id() == id && renamed.get().password().equals("layla"),
+                "the update survives a restart");
+        check(reopened.getUserByUsername("Cameron").isEmpty(), "the old username is free again");
+        reopened.addUser("Cameron", "pw", "user");
+        check(reopened.getUserByUsername("Cameron").get().id() > id,
+                "ids are never reused after a restart");
+        reopened.close();
+    }
+
+    static void check(boolean ok, String what){
+        System.out.println((ok ? "ok   " : "FAIL ") + what);
+        if(!ok) failures++;
+    }
+
+    static void finish(){
+        if(failures > 0){
+            System.out.println("\n" + failures + " check(s) failed");
+            System.exit(1);
+        }
+        System.out.println("\nAll checks passed");
+    }
+}
@@ -0,0 +1,72 @@
+package com.library.checkout;
+
+import com.library.checkout.util.IntHashSet;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * UserLoanIndex: the reverse of the loan tables, user id to the serials that user has out.
+ *
+ * Each user's serials are an {@link IntHashSet} (no boxing, O(1) add and remove). Loans are striped by
+ * serial, so one user's loans span many stripes; every access to a user's set therefore goes through
+ * {@link ConcurrentHashMap#compute}, which runs under that user's bin lock. Two checkouts by the same
+ * user on different stripes are thus serialized here and nowhere else, which is what lets
+ * {@link #tryAdd(int, int, int)} enforce a loan limit exactly. Users with no loans have no entry.
+ *
+ * Librarian changes it together with the loan tables, under the stripe of the serial concerned.
+ */
+final class UserLoanIndex {
+
+    private final ConcurrentHashMap<Integer, IntHashSet> serialsByUser = new ConcurrentHashMap<>();
+
+    /**
+     * Records that {@code userId} has {@code serial} unless they already have {@code limit} books out.
+     * Returns false (and changes nothing) if they are at the limit.
+     */
+    boolean tryAdd(int userId, int serial, int limit) {
+        boolean[] added = new boolean[1];
+        serialsByUser.compute(userId, (id, serials) -> {
+            if (serials == null) serials = new IntHashSet(4);
+            if (serials.contains(serial) || serials.size() < limit) {
+                serials.add(serial);
+                added[0] = true;
+            }
+            return serials.isEmpty() ? null : serials;
+        });
+        return added[0];
+    }
+
+    /** Records that {@code userId} has {@code serial}, with no limit (loading and replay). */
+    void add(int userId, int serial) {
+        tryAdd(userId, serial, Integer.MAX_VALUE);
+    }
+
+    void remove(int userId, int serial) {
+        serialsByUser.computeIfPresent(userId, (id, serials) -> {
+            serials.remove(serial);
+            return serials.isEmpty() ? null : serials;
+        });
+    }
+
+    /** Number of books {@code userId} has out. */
+    int count(int userId) {
+        int[] n = new int[1];
+        serialsByUser.computeIfPresent(userId, (id, serials) -> {
+            n[0] = serials.size();
+            return serials;
+        });
+        return n[0];
+    }
+
+    /** The serials {@code userId} has out, ascending; a copy. */
+    int[] serialsOf(int userId) {
+        int[][] out = {new int[0]};
+        serialsByUser.computeIfPresent(userId, (id, serials) -> {
+            out[0] = serials.toArray();
+            return serials;
+        });
+        Arrays.sort(out[0]);
+        return out[0];
+    }
+}
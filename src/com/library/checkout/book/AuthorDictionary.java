@@ -0,0 +1,78 @@
+package com.library.checkout.book;
+
+import com.library.checkout.util.HeapSizes;
+
+import java.util.HashMap;
+
+/**
+ * AuthorDictionary: one shared String per distinct author, reference-counted by the books using it.
+ *
+ * Popular authors repeat thousands of times in a catalog, and every parsed line or store record would
+ * otherwise bring its own copy of the name. {@link #acquire(String)} returns the canonical instance
+ * (registering it the first time), which the caller stores in its Book instead of its own copy;
+ * {@link #release(String)} drops the entry again once the last book by that author is gone, so removed
+ * authors don't pile up. The normalized (lower-cased) form used by the search indexes is kept and
+ * shared the same way.
+ *
+ * Not thread-safe; Librarian guards it with its catalog lock.
+ */
+public final class AuthorDictionary {
+
+    private static final class Entry {
+        final String author;
+        final String normalized;
+        int books;
+
+        Entry(String author) {
+            this.author = author;
+            String norm = TrigramIndex.normalize(author);
+            this.normalized = norm.equals(author) ? author : norm;
+        }
+    }
+
+    private final HashMap<String, Entry> entries = new HashMap<>();
+
+    /**
+     * The shared instance of {@code author}, counting one more book by them. Null stays null.
+     */
+    public String acquire(String author) {
+        if (author == null) return null;
+        Entry e = entries.computeIfAbsent(author, Entry::new);
+        e.books++;
+        return e.author;
+    }
+
+    /**
+     * Counts one book fewer by {@code author}, forgetting them after the last one.
+     */
+    public void release(String author) {
+        if (author == null) return;
+        Entry e = entries.get(author);
+        if (e != null && --e.books <= 0) entries.remove(author);
+    }
+
+    /**
+     * The shared normalized form of {@code author} (see {@link TrigramIndex#normalize(String)}), or a
+     * fresh one if the author isn't in the dictionary.
+     */
+    public String normalized(String author) {
+        Entry e = author == null ? null : entries.get(author);
+        return e != null ? e.normalized : TrigramIndex.normalize(author);
+    }
+
+    /** Number of distinct authors. */
+    public int size() {
+        return entries.size();
+    }
+
+    /** Approximate heap footprint in bytes: the shared strings and the dictionary itself. */
+    public long memoryBytes() {
+        long bytes = HeapSizes.object(32);
+        for (Entry e : entries.values()) {
+            bytes += HeapSizes.hashMapEntry() + HeapSizes.object(2 * HeapSizes.REFERENCE + 4)
+                    + HeapSizes.string(e.author);
+            if (e.normalized != e.author) bytes += HeapSizes.string(e.normalized);
+        }
+        return bytes;
+    }
+}
@@ -1,4 +1,5 @@
 package com.library.checkout.book;
+import com.library.checkout.csv.CsvCodec;
 import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
@@ -12,35 +13,41 @@ public class Book {
 	private String author;
 	private String title;
 	private int serial_number;
-	private boolean checked_out;
+	//whether a book is checked out is only tracked by the Librarian (its loans), not on the book
 	public Book(){
 		this.author="";
 		this.title="";
 		this.serial_number=-1;
-		this.checked_out=false;
 	}
-	public Book(String author_in, String title_in, int serial_number_in, boolean check){
+	public Book(String author_in, String title_in, int serial_number_in){
 		this.author=author_in;
 		this.title=title_in;
 		this.serial_number=serial_number_in;
-		this.checked_out=check;
 	}
 	public Book(String whole_line) {
-		try {
-			String[] temp=whole_line.split(",");
-			this.author=temp[0];
-			this.title=temp[1];
-			this.serial_number=Integer.parseInt(temp[2]);
-			if(temp[3].equals("true")){
-				this.checked_out=true;
-			}
-			else{
-				this.checked_out=false;
-			}
+		this();
+		CsvCodec.Record rec = new CsvCodec.Record();
+		Book parsed = CsvCodec.parse(whole_line, rec) ? from_csv_record(rec) : null;
+		if(parsed == null){
+			System.err.println("error converting whole string to Book. remember to use the format 'author,title,number' or 'author,title,number,boolean'");
+			return;
+		}
+		this.author=parsed.author;
+		this.title=parsed.title;
+		this.serial_number=parsed.serial_number;
+	}
+	//builds a Book from a parsed line: author,title,number with an optional ,boolean on the end
+	//(older files kept a checked out flag there; it's ignored now).
+	//returns null (instead of throwing) if the line doesn't have that shape.
+	public static Book from_csv_record(CsvCodec.Record rec){
+		if(rec.fieldCount() < 3 || rec.fieldCount() > 4){
+			return null;
 		}
-		catch(Exception e) {
-			System.err.println("error converting whole string to Book. remember to use the format 'author,title,number,boolean'");
+		long serial = rec.intField(2);
+		if(serial == CsvCodec.NOT_AN_INT){
+			return null;
 		}
+		return new Book(rec.field(0), rec.field(1), (int) serial);
 	}
 	public String get_author(){
 		return this.author;
@@ -60,43 +67,25 @@ public class Book {
 	public void set_serial_number(int serial_number_in){
 		this.serial_number=serial_number_in;
 	}
-	public boolean get_checked_out(){
-		return this.checked_out;
-	}
-	public void set_checked_out(boolean check){
-		this.checked_out=check;
-	}
-	public String to_string(){
-		return(this.author +","+ this.title +","+this.serial_number +","+this.checked_out);
+	public String to_string(){ //quotes author/title if they contain commas or quotes, so Book(String) can read it back
+		return(CsvCodec.escape(this.author) +","+ CsvCodec.escape(this.title) +","+this.serial_number);
 	}
 	public Vector read_books_from_file(){
 		Vector<Book> Book_list = new Vector<>();
 		String temp_line;
-		String temp_auth;
-		String temp_title;
-		int temp_SN;
-		boolean temp_check;
+		CsvCodec.Record rec = new CsvCodec.Record(); //reused for every line
 		try (Scanner scanner = new Scanner(new File(BOOKS_PATH))) {
         	while (scanner.hasNextLine()) {
                 temp_line = scanner.nextLine();
-				try {
-					String[] temp=temp_line.split(",");
-					temp_auth=temp[0];
-					temp_title=temp[1];
-					temp_SN=Integer.parseInt(temp[2]);
-					if(temp[3].equals("true")){
-						temp_check=true;
-					}
-					else{
-						temp_check=false;
-					}
-					Book temp_book = new Book(temp_auth,temp_title,temp_SN,temp_check);
-				    Book_list.add(temp_book);
+				if(temp_line.isBlank()){
+					continue;
 				}
-				catch(Exception e) {
-					System.err.println("error converting whole string to Book. remember to use the format 'author,title,number,boolean'");
+				Book temp_book = CsvCodec.parse(temp_line, rec) ? from_csv_record(rec) : null;
+				if(temp_book == null) {
+					System.err.println("error converting whole string to Book. remember to use the format 'author,title,number'");
 					continue;
-				}	
+				}
+				Book_list.add(temp_book);
             }
         } 
 		catch (FileNotFoundException e) {
@@ -0,0 +1,290 @@
+package com.library.checkout.book;
+
+import java.text.Collator;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.ListIterator;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.IntStream;
+
+/**
+ * BookOrdering: a multi-key order over books (e.g. author, then title, then serial number) that can sort
+ * large lists quickly.
+ *
+ * Comparing two books directly folds case (or runs the collator) on every comparison, and a sort makes
+ * O(n log n) of them. {@link #sort(List)} instead computes each book's sort keys once, in parallel, and
+ * then sorts the keyed array with Arrays.parallelSort. Keys are byte strings (folded text in a UTF-8
+ * style encoding, or the collator's key bytes) compared unsigned, with their first 8 bytes packed into
+ * a long, so most comparisons are one long comparison and none of them touches the Book or re-folds a
+ * String.
+ *
+ * Text keys are either
+ * - case-folded ({@link #by(Key...)}): the same order as String.CASE_INSENSITIVE_ORDER, i.e. what
+ *   compareToIgnoreCase gives, computed once per field; or
+ * - collated ({@link #collated(Locale, Key...)}): java.text.Collator at SECONDARY strength for the given
+ *   locale, so accents sort where that language puts them and case is ignored. Collation keys are much
+ *   more expensive to make than folded strings, so authors (which repeat a lot) get one key per distinct
+ *   name.
+ *
+ * The serial number is always the last key (added if not given; keys after it are dropped), so every
+ * ordering is total and sorting is deterministic. Nothing here prints; instances are immutable and
+ * thread-safe.
+ *
+ * Usage example:
+ *   BookOrdering.collated(Locale.FRENCH, BookOrdering.Key.AUTHOR, BookOrdering.Key.TITLE).sort(books);
+ */
+public final class BookOrdering implements Comparator<Book> {
+
+    /**
+     * Fields a book can be ordered by.
+     */
+    public enum Key {
+        TITLE, AUTHOR, SERIAL
+    }
+
+    // below this many books the key arrays cost more than they save
+    private static final int KEYED_SORT_THRESHOLD = 64;
+
+    private final Key[] keys;
+    private final Locale locale; // null: case-folded text keys
+    private final ThreadLocal<Collator> collators; // Collator instances are not thread-safe
+
+    private BookOrdering(Key[] keys, Locale locale) {
+        this.keys = withSerialLast(keys);
+        this.locale = locale;
+        this.collators = locale == null ? null : ThreadLocal.withInitial(this::newCollator);
+    }
+
+    /**
+     * Case-insensitive ordering by {@code keys}, then serial number.
+     */
+    public static BookOrdering by(Key... keys) {
+        return new BookOrdering(keys, null);
+    }
+
+    /**
+     * Locale-aware ordering by {@code keys}, then serial number.
+     */
+    public static BookOrdering collated(Locale locale, Key... keys) {
+        return new BookOrdering(keys, Objects.requireNonNull(locale, "locale"));
+    }
+
+    /** The keys compared, in order (always ending with SERIAL). */
+    public List<Key> keys() {
+        return Collections.unmodifiableList(Arrays.asList(keys));
+    }
+
+    /** The collation locale, or null for case-folded ordering. */
+    public Locale locale() {
+        return locale;
+    }
+
+    @Override
+    public int compare(Book a, Book b) {
+        for (Key k : keys) {
+            int c;
+            if (k == Key.SERIAL) {
+                c = Integer.compare(a.get_serial_number(), b.get_serial_number());
+            } else if (locale == null) {
+                c = String.CASE_INSENSITIVE_ORDER.compare(text(a, k), text(b, k));
+            } else {
+                c = collators.get().compare(text(a, k), text(b, k));
+            }
+            if (c != 0) return c;
+        }
+        return 0;
+    }
+
+    /**
+     * Sorts {@code books} in place in this order, computing each book's keys once.
+     *
+     * @throws UnsupportedOperationException if the list can't be modified
+     */
+    public void sort(List<Book> books) {
+        if (books.size() < KEYED_SORT_THRESHOLD) {
+            books.sort(this);
+            return;
+        }
+        Keyed[] keyed = sortKeyed(books.toArray(new Book[0]));
+        ListIterator<Book> it = books.listIterator();
+        for (Keyed k : keyed) {
+            it.next();
+            it.set(k.book);
+        }
+    }
+
+    /**
+     * A new array of {@code books} in this order; the collection is left as it is.
+     */
+    public Book[] sortedArray(Collection<Book> books) {
+        Book[] out = books.toArray(new Book[0]);
+        if (out.length < KEYED_SORT_THRESHOLD) {
+            Arrays.sort(out, this);
+            return out;
+        }
+        Keyed[] keyed = sortKeyed(out);
+        for (int i = 0; i < keyed.length; i++) {
+            out[i] = keyed[i].book;
+        }
+        return out;
+    }
+
+    /**
+     * A new list of {@code books} in this order.
+     */
+    public List<Book> sortedCopy(Collection<Book> books) {
+        return new ArrayList<>(Arrays.asList(sortedArray(books)));
+    }
+
+    @Override
+    public String toString() {
+        return "BookOrdering" + Arrays.toString(keys)
+                + (locale == null ? "[case-insensitive]" : "[" + locale + "]");
+    }
+
+    // -------------------------
+    // Keyed sort
+    // -------------------------
+
+    // One book with its precomputed keys, laid out so most comparisons stay on primitives: the text keys
+    // (those before SERIAL; at most two) are byte strings that order correctly under unsigned
+    // lexicographic comparison, and the first 8 bytes of the first one are also packed into a long.
+    private static final class Keyed {
+        final Book book;
+        final long prefix;
+        final byte[] first;
+        final byte[] second;
+        final int serial;
+
+        Keyed(Book book, byte[] first, byte[] second) {
+            this.book = book;
+            this.prefix = first == null ? 0 : packPrefix(first);
+            this.first = first;
+            this.second = second;
+            this.serial = book.get_serial_number();
+        }
+
+        int compareTo(Keyed o) {
+            if (first != null) {
+                int c = Long.compareUnsigned(prefix, o.prefix);
+                if (c == 0) c = Arrays.compareUnsigned(first, o.first);
+                if (c == 0 && second != null) c = Arrays.compareUnsigned(second, o.second);
+                if (c != 0) return c;
+            }
+            return Integer.compare(serial, o.serial);
+        }
+    }
+
+    private Keyed[] sortKeyed(Book[] books) {
+        Keyed[] keyed = new Keyed[books.length];
+        // collation keys for repeated names are shared; folded keys are cheap enough to just recompute
+        ConcurrentHashMap<String, byte[]> shared = locale == null ? null : new ConcurrentHashMap<>();
+        IntStream.range(0, books.length).parallel().forEach(i -> keyed[i] = keysOf(books[i], shared));
+        Arrays.parallelSort(keyed, Keyed::compareTo);
+        if (locale == null && !agreesWithCompare(keyed)) {
+            // folded keys order surrogate pairs by UTF-16 unit where String.CASE_INSENSITIVE_ORDER uses
+            // code points; callers seek with compare(), so the result must agree with it exactly
+            Arrays.parallelSort(keyed, (a, b) -> compare(a.book, b.book));
+        }
+        return keyed;
+    }
+
+    private boolean agreesWithCompare(Keyed[] sorted) {
+        for (int i = 1; i < sorted.length; i++) {
+            if (compare(sorted[i - 1].book, sorted[i].book) > 0) return false;
+        }
+        return true;
+    }
+
+    private Keyed keysOf(Book b, ConcurrentHashMap<String, byte[]> shared) {
+        byte[] first = keys[0] == Key.SERIAL ? null : textKey(b, keys[0], shared);
+        byte[] second = first == null || keys[1] == Key.SERIAL ? null : textKey(b, keys[1], shared);
+        return new Keyed(b, first, second);
+    }
+
+    private byte[] textKey(Book b, Key k, ConcurrentHashMap<String, byte[]> shared) {
+        String s = text(b, k);
+        if (locale == null) return foldedBytes(s);
+        if (k == Key.AUTHOR) {
+            return shared.computeIfAbsent(s, x -> collators.get().getCollationKey(x).toByteArray());
+        }
+        return collators.get().getCollationKey(s).toByteArray();
+    }
+
+    // big-endian, zero-padded, so unsigned long order agrees with unsigned byte order
+    private static long packPrefix(byte[] key) {
+        long p = 0;
+        for (int i = 0; i < 8; i++) {
+            p = (p << 8) | (i < key.length ? key[i] & 0xFF : 0);
+        }
+        return p;
+    }
+
+    // -------------------------
+    // Helpers
+    // -------------------------
+
+    // a null title or author orders as "", which is how BookStore, CatalogSnapshot and PageToken
+    // store it
+    private static String text(Book b, Key k) {
+        String s = k == Key.TITLE ? b.get_title() : b.get_author();
+        return s == null ? "" : s;
+    }
+
+    // s with every char folded as String.CASE_INSENSITIVE_ORDER folds it (upper-cased, then
+    // lower-cased), each encoded on its own as in UTF-8 (1 to 3 bytes; surrogates are encoded singly).
+    // That encoding is prefix-free and grows with the char value, so unsigned byte order is char order,
+    // as in String.compareTo, and ASCII takes one byte per char (8 chars in the packed prefix).
+    private static byte[] foldedBytes(String s) {
+        int n = s.length();
+        int len = 0;
+        for (int i = 0; i < n; i++) {
+            char c = foldChar(s.charAt(i));
+            len += c < 0x80 ? 1 : c < 0x800 ? 2 : 3;
+        }
+        byte[] out = new byte[len];
+        int j = 0;
+        for (int i = 0; i < n; i++) {
+            char c = foldChar(s.charAt(i));
+            if (c < 0x80) {
+                out[j++] = (byte) c;
+            } else if (c < 0x800) {
+                out[j++] = (byte) (0xC0 | (c >>> 6));
+                out[j++] = (byte) (0x80 | (c & 0x3F));
+            } else {
+                out[j++] = (byte) (0xE0 | (c >>> 12));
+                out[j++] = (byte) (0x80 | ((c >>> 6) & 0x3F));
+                out[j++] = (byte) (0x80 | (c & 0x3F));
+            }
+        }
+        return out;
+    }
+
+    private static char foldChar(char c) {
+        if (c < 0x80) return c >= 'A' && c <= 'Z' ? (char) (c + ('a' - 'A')) : c;
+        return Character.toLowerCase(Character.toUpperCase(c));
+    }
+
+    private Collator newCollator() {
+        Collator c = Collator.getInstance(locale);
+        c.setStrength(Collator.SECONDARY);
+        return c;
+    }
+
+    private static Key[] withSerialLast(Key[] given) {
+        // serial numbers are unique, so nothing after SERIAL could ever be compared
+        List<Key> out = new ArrayList<>(given.length + 1);
+        for (Key k : given) {
+            if (!out.contains(Objects.requireNonNull(k, "key"))) out.add(k);
+            if (k == Key.SERIAL) break;
+        }
+        if (!out.contains(Key.SERIAL)) out.add(Key.SERIAL);
+        return out.toArray(new Key[0]);
+    }
+}
@@ -1,8 +1,7 @@
 package com.library.checkout.book;
 
-import java.util.Collections;
-import java.util.Comparator;
 import java.util.List;
+import java.util.Locale;
 import java.util.Scanner;
 
 // Sorting helper for the `book` class
@@ -12,49 +11,51 @@ public class BookSorter {
     public static final int BY_AUTHOR = 2;
     public static final int BY_SERIAL_NUMBER = 3;
 
-    // Core sorting method.
+    // The maintained ordering for a sorting option.
     // option: 1 = title, 2 = author, 3 = serial number
-     
-    public static void sortBooks(List<Book> books, int option) {
-        if (books == null || books.isEmpty()) {
-            System.out.println("No books to sort.");
-            return;
-        }
+    // Throws IllegalArgumentException for any other option.
 
+    public static SortedCatalog.Order orderFor(int option) {
         switch (option) {
             case BY_TITLE:
-                Collections.sort(books, new Comparator<Book>() {
-                    @Override
-                    public int compare(Book b1, Book b2) {
-                        return b1.get_title().compareToIgnoreCase(b2.get_title());
-                    }
-                });
-                System.out.println("Books sorted by TITLE (A–Z).");
-                break;
-
+                return SortedCatalog.Order.TITLE;
             case BY_AUTHOR:
-                Collections.sort(books, new Comparator<Book>() {
-                    @Override
-                    public int compare(Book b1, Book b2) {
-                        return b1.get_author().compareToIgnoreCase(b2.get_author());
-                    }
-                });
-                System.out.println("Books sorted by AUTHOR (A–Z).");
-                break;
-
+                return SortedCatalog.Order.AUTHOR;
             case BY_SERIAL_NUMBER:
-                Collections.sort(books, new Comparator<Book>() {
-                    @Override
-                    public int compare(Book b1, Book b2) {
-                        return Integer.compare(b1.get_serial_number(), b2.get_serial_number());
-                    }
-                });
-                System.out.println("Books sorted by SERIAL NUMBER (low → high).");
-                break;
-
+                return SortedCatalog.Order.SERIAL;
             default:
-                System.out.println("Invalid sorting option. No sorting applied.");
+                throw new IllegalArgumentException("Invalid sorting option: " + option);
+        }
+    }
+
+    // Sorted view over a catalog that is already kept in order (e.g. Librarian.sortedCatalog()).
+    // Nothing is sorted or copied; the view can be iterated or paged (O(log n + page size) per page).
+
+    public static SortedView sortedView(SortedCatalog catalog, int option) {
+        return catalog.view(orderFor(option));
+    }
+
+    // Sorts an arbitrary list in place, for lists that aren't a catalog view (e.g. search results).
+    // Titles and authors compare ignoring case; ties fall back to the other fields, then serial number.
+    // Sort keys are computed once per book and sorted in parallel (see BookOrdering).
+    // Returns false (list untouched) for an invalid option. Prints nothing.
+
+    public static boolean sortBooks(List<Book> books, int option) {
+        if (option < BY_TITLE || option > BY_SERIAL_NUMBER) return false;
+        if (books != null && books.size() > 1) {
+            orderFor(option).ordering().sort(books);
         }
+        return true;
+    }
+
+    // Multi-key, locale-aware sort, e.g. sortBooks(books, Locale.FRENCH, Key.AUTHOR, Key.TITLE).
+    // Collation keys are computed once per book (once per distinct author), then sorted in parallel;
+    // serial number always breaks ties. Pass a null locale for plain case-insensitive ordering.
+
+    public static void sortBooks(List<Book> books, Locale locale, BookOrdering.Key... keys) {
+        if (books == null || books.size() < 2) return;
+        BookOrdering ordering = locale == null ? BookOrdering.by(keys) : BookOrdering.collated(locale, keys);
+        ordering.sort(books);
     }
 
     //      Shows a menu, asks the user how to sort, then calls sortBooks.
@@ -65,20 +66,59 @@ public class BookSorter {
             return;
         }
 
+        int choice = askOption(in);
+        if (choice < 0) return;
+
+        if (sortBooks(books, choice)) {
+            System.out.println(describe(choice));
+        } else {
+            System.out.println("Invalid sorting option. No sorting applied.");
+        }
+    }
+
+    //      Same menu, but answers with a view over the catalog's maintained ordering instead of sorting.
+    //      Returns null if the choice was invalid.
+
+    public static SortedView sortBooksMenu(SortedCatalog catalog, Scanner in) {
+        if (catalog == null || catalog.size() == 0) {
+            System.out.println("No books to sort.");
+            return null;
+        }
+
+        int choice = askOption(in);
+        if (choice < 0) return null;
+        if (choice < BY_TITLE || choice > BY_SERIAL_NUMBER) {
+            System.out.println("Invalid sorting option. No sorting applied.");
+            return null;
+        }
+        System.out.println(describe(choice));
+        return sortedView(catalog, choice);
+    }
+
+    // prints the menu and reads a choice; -1 if the input wasn't a number
+    private static int askOption(Scanner in) {
         System.out.println("\n=== Library Sorting Menu ===");
         System.out.println("1. Sort by Title (A–Z)");
         System.out.println("2. Sort by Author (A–Z)");
         System.out.println("3. Sort by Serial Number (low → high)");
         System.out.print("Enter your choice: ");
 
-        int choice;
         try {
-            choice = Integer.parseInt(in.nextLine());
+            return Integer.parseInt(in.nextLine());
         } catch (NumberFormatException e) {
             System.out.println("Invalid input. Sorting cancelled.");
-            return;
+            return -1;
         }
+    }
 
-        sortBooks(books, choice);
+    private static String describe(int option) {
+        switch (option) {
+            case BY_TITLE:
+                return "Books sorted by TITLE (A–Z).";
+            case BY_AUTHOR:
+                return "Books sorted by AUTHOR (A–Z).";
+            default:
+                return "Books sorted by SERIAL NUMBER (low → high).";
+        }
     }
 }
@@ -0,0 +1,313 @@
+package com.library.checkout.book;
+
+import com.library.checkout.util.IntIntHashMap;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * BookStore: record-oriented book storage in a memory-mapped file of fixed-width slots.
+ *
+ * Adding, updating or deleting a book writes only that book's slot, so the cost of a mutation does not
+ * depend on the size of the catalog. Deleted slots become tombstones and are reused through a free list.
+ *
+ * File layout:
+ *   header (256 bytes, one slot's worth): magic, version, slot size
+ *   slots  (256 bytes each):
+ *     state:byte (0 = never used, 1 = live, 2 = tombstone), 3 bytes padding,
+ *     serial:int, sequence:int, authorLen:short, titleLen:short,
+ *     author: up to 80 bytes UTF-8, title: up to 160 bytes UTF-8
+ *
+ * Slots are aligned to their own size (the header fills the first one), so no slot straddles a
+ * 512-byte sector or a 4 KB page.
+ *
+ * The file grows in chunks of CHUNK_SLOTS slots, each mapped separately, so existing mappings never
+ * have to be remapped. The serial index and free list are rebuilt by scanning the slots on open. The
+ * index is primitive (about 14 bytes per book), so the store can also serve as the inventory itself:
+ * {@link #get(int)} reads a book's strings from the mapping on demand, and nothing else about the book
+ * stays on the heap (Librarian's lazy catalog mode).
+ *
+ * Crash safety: a slot's state byte is written last, and an update writes the new version into a fresh
+ * slot before tombstoning the old one. What that covers depends on the crash:
+ * - the process dies (the OS keeps running): every write made to the mapping still reaches the file,
+ *   so either the old or the new record is live, never a half-written one; if both survive, the scan
+ *   keeps the one with the higher sequence number.
+ * - the OS crashes or the power fails: only what {@link #sync()} forced is certain. A slot that reached
+ *   the disk is whole (it lies in one sector, on a device that writes sectors atomically), but dirty
+ *   pages are written back in no particular order, so a change made since the last sync may be
+ *   missing, and an update whose tombstone reached the disk before its new slot did loses the book.
+ *
+ * Not thread-safe; Librarian serializes access. Reads (get, contains, forEach) don't modify anything, so
+ * they may run concurrently with each other as long as no write overlaps them.
+ */
+public class BookStore implements Closeable {
+
+    public static final int AUTHOR_MAX_BYTES = 80;
+    public static final int TITLE_MAX_BYTES = 160;
+
+    private static final int MAGIC = 0x424B5354; // "BKST"
+    private static final int VERSION = 1;
+    private static final int SLOT_BYTES = 256;
+    private static final int HEADER_BYTES = SLOT_BYTES; // keeps every slot aligned to its size
+    private static final int CHUNK_SLOTS = 4096; // 1 MB per mapping
+
+    private static final byte FREE = 0;
+    private static final byte LIVE = 1;
+    private static final byte TOMBSTONE = 2;
+
+    // slot field offsets
+    private static final int OFF_STATE = 0;
+    private static final int OFF_SERIAL = 4;
+    private static final int OFF_SEQUENCE = 8;
+    private static final int OFF_AUTHOR_LEN = 12;
+    private static final int OFF_TITLE_LEN = 14;
+    private static final int OFF_AUTHOR = 16;
+    private static final int OFF_TITLE = OFF_AUTHOR + AUTHOR_MAX_BYTES;
+
+    private final Path path;
+    private final FileChannel channel;
+    private final List<MappedByteBuffer> chunks = new ArrayList<>();
+
+    // serial_number -> slot
+    private final IntIntHashMap index = new IntIntHashMap();
+
+    // tombstoned slots available for reuse (used as a stack)
+    private int[] freeSlots = new int[16];
+    private int freeCount;
+
+    // first slot that has never been used
+    private int highWater;
+
+    // write sequence, used to pick the newer record if a crash left two live copies of a serial
+    private int sequence;
+
+    public BookStore(Path path) throws IOException {
+        this.path = path;
+        this.channel = FileChannel.open(path,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        if (channel.size() == 0) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+            header.putInt(MAGIC).putInt(VERSION).putInt(SLOT_BYTES);
+            header.flip();
+            channel.write(header, 0);
+        } else {
+            ByteBuffer header = ByteBuffer.allocate(12);
+            channel.read(header, 0);
+            header.flip();
+            if (header.getInt() != MAGIC || header.getInt() != VERSION || header.getInt() != SLOT_BYTES) {
+                throw new IOException("Not a book store (or unsupported version): " + path);
+            }
+        }
+        long slotsOnDisk = (channel.size() - HEADER_BYTES) / SLOT_BYTES;
+        int chunksOnDisk = (int) ((slotsOnDisk + CHUNK_SLOTS - 1) / CHUNK_SLOTS);
+        for (int c = 0; c < chunksOnDisk; c++) {
+            mapChunk(c);
+        }
+        scan();
+    }
+
+    /**
+     * Returns true if the book's author and title fit in a slot.
+     */
+    public static boolean fits(Book b) {
+        return utf8Length(b.get_author()) <= AUTHOR_MAX_BYTES && utf8Length(b.get_title()) <= TITLE_MAX_BYTES;
+    }
+
+    /**
+     * Calls {@code action} with every live book, in slot order (so the file is read sequentially).
+     */
+    public void forEach(Consumer<Book> action) {
+        for (int slot = 0; slot < highWater; slot++) {
+            ByteBuffer buf = chunkFor(slot);
+            int base = offsetInChunk(slot);
+            // a live slot can be a crash leftover that lost to a newer copy; only the indexed one counts
+            if (buf.get(base + OFF_STATE) == LIVE && index.get(buf.getInt(base + OFF_SERIAL), -1) == slot) {
+                action.accept(read(slot));
+            }
+        }
+    }
+
+    /**
+     * The book stored for {@code serial}, read from the mapped file, or null if there is none.
+     */
+    public Book get(int serial) {
+        int slot = index.get(serial, -1);
+        return slot < 0 ? null : read(slot);
+    }
+
+    /**
+     * Inserts the book, or replaces the existing record with the same serial number.
+     *
+     * @throws IllegalArgumentException if the author or title is too long for a slot
+     */
+    public void put(Book b) throws IOException {
+        byte[] author = bytes(b.get_author());
+        byte[] title = bytes(b.get_title());
+        if (author.length > AUTHOR_MAX_BYTES || title.length > TITLE_MAX_BYTES) {
+            throw new IllegalArgumentException("author/title too long for book store (max "
+                    + AUTHOR_MAX_BYTES + "/" + TITLE_MAX_BYTES + " bytes): serial=" + b.get_serial_number());
+        }
+
+        int slot = allocate();
+        ByteBuffer buf = chunkFor(slot);
+        int base = offsetInChunk(slot);
+
+        // fill the slot while it is not live, then publish it with the state byte
+        buf.put(base + OFF_STATE, TOMBSTONE);
+        buf.putInt(base + OFF_SERIAL, b.get_serial_number());
+        buf.putInt(base + OFF_SEQUENCE, ++sequence);
+        buf.putShort(base + OFF_AUTHOR_LEN, (short) author.length);
+        buf.putShort(base + OFF_TITLE_LEN, (short) title.length);
+        buf.put(base + OFF_AUTHOR, author);
+        buf.put(base + OFF_TITLE, title);
+        buf.put(base + OFF_STATE, LIVE);
+
+        int previous = index.put(b.get_serial_number(), slot, -1);
+        if (previous >= 0) release(previous);
+    }
+
+    /**
+     * Tombstones the record for {@code serial}. Returns false if there is none.
+     */
+    public boolean delete(int serial) {
+        int slot = index.remove(serial, -1);
+        if (slot < 0) return false;
+        release(slot);
+        return true;
+    }
+
+    public boolean contains(int serial) {
+        return index.containsKey(serial);
+    }
+
+    public int size() {
+        return index.size();
+    }
+
+    /**
+     * Approximate heap footprint of the serial index in bytes; the records themselves are in the mapped
+     * file, outside the heap.
+     */
+    public long memoryBytes() {
+        return index.memoryBytes();
+    }
+
+    /**
+     * Forces all mapped chunks to the storage device.
+     */
+    public void sync() {
+        for (MappedByteBuffer chunk : chunks) {
+            chunk.force();
+        }
+    }
+
+    public Path path() {
+        return path;
+    }
+
+    @Override
+    public void close() throws IOException {
+        sync();
+        channel.close();
+    }
+
+    // -------------------------
+    // Internals
+    // -------------------------
+
+    private void scan() {
+        for (int slot = 0; slot < chunks.size() * CHUNK_SLOTS; slot++) {
+            byte state = chunkFor(slot).get(offsetInChunk(slot) + OFF_STATE);
+            if (state == FREE) continue;
+            highWater = slot + 1;
+            if (state == LIVE) {
+                int serial = chunkFor(slot).getInt(offsetInChunk(slot) + OFF_SERIAL);
+                int seq = sequenceOf(slot);
+                sequence = Math.max(sequence, seq);
+                int dup = index.get(serial, -1);
+                if (dup < 0) {
+                    index.put(serial, slot, -1);
+                } else if (sequenceOf(dup) < seq) {
+                    // only possible if a crash interrupted an update; keep the newer record
+                    index.put(serial, slot, -1);
+                    release(dup);
+                } else {
+                    release(slot);
+                }
+            } else {
+                pushFree(slot);
+            }
+        }
+    }
+
+    private int sequenceOf(int slot) {
+        return chunkFor(slot).getInt(offsetInChunk(slot) + OFF_SEQUENCE);
+    }
+
+    private void release(int slot) {
+        chunkFor(slot).put(offsetInChunk(slot) + OFF_STATE, TOMBSTONE);
+        pushFree(slot);
+    }
+
+    private Book read(int slot) {
+        ByteBuffer buf = chunkFor(slot);
+        int base = offsetInChunk(slot);
+        int serial = buf.getInt(base + OFF_SERIAL);
+        String author = string(buf, base + OFF_AUTHOR, buf.getShort(base + OFF_AUTHOR_LEN));
+        String title = string(buf, base + OFF_TITLE, buf.getShort(base + OFF_TITLE_LEN));
+        return new Book(author, title, serial);
+    }
+
+    private int allocate() throws IOException {
+        if (freeCount > 0) return freeSlots[--freeCount];
+        int slot = highWater++;
+        if (slot / CHUNK_SLOTS >= chunks.size()) mapChunk(chunks.size());
+        return slot;
+    }
+
+    private void pushFree(int slot) {
+        if (freeCount == freeSlots.length) {
+            int[] grown = new int[freeSlots.length * 2];
+            System.arraycopy(freeSlots, 0, grown, 0, freeCount);
+            freeSlots = grown;
+        }
+        freeSlots[freeCount++] = slot;
+    }
+
+    private void mapChunk(int chunk) throws IOException {
+        long start = HEADER_BYTES + (long) chunk * CHUNK_SLOTS * SLOT_BYTES;
+        // mapping past the end of the file extends it (zero-filled, i.e. FREE slots)
+        chunks.add(channel.map(FileChannel.MapMode.READ_WRITE, start, (long) CHUNK_SLOTS * SLOT_BYTES));
+    }
+
+    private ByteBuffer chunkFor(int slot) {
+        return chunks.get(slot / CHUNK_SLOTS);
+    }
+
+    private static int offsetInChunk(int slot) {
+        return (slot % CHUNK_SLOTS) * SLOT_BYTES;
+    }
+
+    private static String string(ByteBuffer buf, int offset, int len) {
+        byte[] raw = new byte[len];
+        buf.get(offset, raw);
+        return new String(raw, StandardCharsets.UTF_8);
+    }
+
+    private static byte[] bytes(String s) {
+        return s == null ? new byte[0] : s.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static int utf8Length(String s) {
+        return bytes(s).length;
+    }
+}
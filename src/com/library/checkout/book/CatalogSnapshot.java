@@ -0,0 +1,226 @@
+package com.library.checkout.book;
+
+import com.library.checkout.csv.CsvCodec;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32C;
+
+/**
+ * CatalogSnapshot: a compact binary file of the whole inventory, for fast cold starts and bulk transfer.
+ *
+ * Reading the text format costs a CSV parse, a String per field and an integer parse per line. A
+ * snapshot instead holds each column as one block, so loading it is a single read of the file, a CRC,
+ * a few bulk int copies, and one String per distinct author plus one per title.
+ *
+ * File layout (big-endian):
+ *   header (24 bytes): magic "BKSN", version, bookCount, authorCount, authorHeapBytes, titleHeapBytes
+ *   serials:    int[bookCount]
+ *   authorIds:  int[bookCount]      index into the author dictionary
+ *   titleEnds:  int[bookCount]      end of each title in the title heap (each starts where the last ended)
+ *   authorEnds: int[authorCount]    end of each author in the author heap
+ *   author heap: UTF-8 bytes of every distinct author, once each
+ *   title heap:  UTF-8 bytes of every title, in book order
+ *   trailer: CRC32C of everything before it
+ *
+ * A truncated, damaged or foreign file is rejected with an IOException; nothing is returned from it.
+ * Null authors and titles are stored as empty strings, as in BookStore.
+ *
+ * Usage example:
+ *   CatalogSnapshot.textToSnapshot(Path.of("books.txt"), Path.of("books.snap"));
+ *   List<Book> books = CatalogSnapshot.read(Path.of("books.snap"));
+ */
+public final class CatalogSnapshot {
+
+    private static final int MAGIC = 0x424B534E; // "BKSN"
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 24;
+    private static final int TRAILER_BYTES = 4;
+
+    private CatalogSnapshot() {
+    }
+
+    /**
+     * Returns true if {@code path} starts with the snapshot magic number (so it is not a text books file).
+     */
+    public static boolean isSnapshot(Path path) throws IOException {
+        byte[] head = new byte[4];
+        try (InputStream in = Files.newInputStream(path)) {
+            if (in.readNBytes(head, 0, 4) < 4) return false;
+        }
+        return ByteBuffer.wrap(head).getInt() == MAGIC;
+    }
+
+    /**
+     * Writes {@code books} to {@code path}, via a temp file renamed over it, so a crash never leaves a
+     * half-written snapshot. Books are stored in iteration order.
+     */
+    public static void write(Path path, Collection<Book> books) throws IOException {
+        int n = books.size();
+        int[] serials = new int[n];
+        int[] authorIds = new int[n];
+        int[] titleEnds = new int[n];
+        Map<String, Integer> authorIdsByName = new HashMap<>();
+        List<byte[]> authors = new ArrayList<>();
+        List<byte[]> titles = new ArrayList<>(n);
+        long authorHeap = 0;
+        long titleHeap = 0;
+        int i = 0;
+        for (Book b : books) {
+            serials[i] = b.get_serial_number();
+            String author = nonNull(b.get_author());
+            Integer id = authorIdsByName.get(author);
+            if (id == null) {
+                id = authors.size();
+                authorIdsByName.put(author, id);
+                byte[] raw = author.getBytes(StandardCharsets.UTF_8);
+                authors.add(raw);
+                authorHeap += raw.length;
+            }
+            authorIds[i] = id;
+            byte[] title = nonNull(b.get_title()).getBytes(StandardCharsets.UTF_8);
+            titles.add(title);
+            titleHeap += title.length;
+            titleEnds[i] = (int) titleHeap; // checked against the total size below
+            i++;
+        }
+
+        long size = HEADER_BYTES + 12L * n + 4L * authors.size() + authorHeap + titleHeap + TRAILER_BYTES;
+        if (size > Integer.MAX_VALUE - 8) {
+            throw new IOException("Catalog too large for one snapshot (" + size + " bytes)");
+        }
+        ByteBuffer buf = ByteBuffer.allocate((int) size);
+        buf.putInt(MAGIC).putInt(VERSION).putInt(n).putInt(authors.size())
+                .putInt((int) authorHeap).putInt((int) titleHeap);
+        IntBuffer ints = buf.asIntBuffer();
+        ints.put(serials).put(authorIds).put(titleEnds);
+        int end = 0;
+        for (byte[] a : authors) {
+            end += a.length;
+            ints.put(end);
+        }
+        buf.position(buf.position() + 4 * ints.position());
+        for (byte[] a : authors) buf.put(a);
+        for (byte[] t : titles) buf.put(t);
+        CRC32C crc = new CRC32C();
+        crc.update(buf.array(), 0, buf.position());
+        buf.putInt((int) crc.getValue());
+
+        Path tmp = Paths.get(path + ".tmp");
+        Files.write(tmp, buf.array());
+        try {
+            Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * Reads every book from the snapshot at {@code path}, in the order they were written. Books by the
+     * same author share one author String.
+     *
+     * @throws IOException if the file can't be read, or is not an intact snapshot of a supported version
+     */
+    public static List<Book> read(Path path) throws IOException {
+        byte[] data = Files.readAllBytes(path);
+        if (data.length < HEADER_BYTES + TRAILER_BYTES) throw corrupt(path, "too short");
+        ByteBuffer buf = ByteBuffer.wrap(data);
+        if (buf.getInt() != MAGIC) throw new IOException("Not a catalog snapshot: " + path);
+        int version = buf.getInt();
+        if (version != VERSION) throw new IOException("Unsupported catalog snapshot version " + version + ": " + path);
+        int n = buf.getInt();
+        int authorCount = buf.getInt();
+        int authorHeap = buf.getInt();
+        int titleHeap = buf.getInt();
+        if (n < 0 || authorCount < 0 || authorHeap < 0 || titleHeap < 0
+                || HEADER_BYTES + 12L * n + 4L * authorCount + authorHeap + titleHeap + TRAILER_BYTES != data.length) {
+            throw corrupt(path, "length does not match header");
+        }
+        CRC32C crc = new CRC32C();
+        crc.update(data, 0, data.length - TRAILER_BYTES);
+        if ((int) crc.getValue() != buf.getInt(data.length - TRAILER_BYTES)) throw corrupt(path, "checksum mismatch");
+
+        int[] serials = new int[n];
+        int[] authorIds = new int[n];
+        int[] titleEnds = new int[n];
+        int[] authorEnds = new int[authorCount];
+        IntBuffer ints = buf.asIntBuffer();
+        ints.get(serials).get(authorIds).get(titleEnds).get(authorEnds);
+        int authorBase = HEADER_BYTES + 4 * (3 * n + authorCount);
+        int titleBase = authorBase + authorHeap;
+
+        String[] authors = new String[authorCount];
+        int start = 0;
+        for (int a = 0; a < authorCount; a++) {
+            if (authorEnds[a] < start || authorEnds[a] > authorHeap) throw corrupt(path, "bad author offset");
+            authors[a] = new String(data, authorBase + start, authorEnds[a] - start, StandardCharsets.UTF_8);
+            start = authorEnds[a];
+        }
+        List<Book> books = new ArrayList<>(n);
+        start = 0;
+        for (int i = 0; i < n; i++) {
+            if (titleEnds[i] < start || titleEnds[i] > titleHeap || authorIds[i] < 0 || authorIds[i] >= authorCount) {
+                throw corrupt(path, "bad record " + i);
+            }
+            String title = new String(data, titleBase + start, titleEnds[i] - start, StandardCharsets.UTF_8);
+            books.add(new Book(authors[authorIds[i]], title, serials[i]));
+            start = titleEnds[i];
+        }
+        return books;
+    }
+
+    /**
+     * Converts a text books file (author,title,serial_number per line) to a snapshot. Repeated serial
+     * numbers keep the last line, as when Librarian loads the text file. Returns the number of books
+     * written; malformed lines are skipped.
+     */
+    public static int textToSnapshot(Path text, Path snapshot) throws IOException {
+        Map<Integer, Book> bySerial = new LinkedHashMap<>();
+        for (Book b : new ParallelBookLoader().load(text).books()) {
+            bySerial.put(b.get_serial_number(), b);
+        }
+        write(snapshot, bySerial.values());
+        return bySerial.size();
+    }
+
+    /**
+     * Converts a snapshot back to a text books file, one author,title,serial_number line per book, quoted
+     * as CsvCodec writes it. Returns the number of books written.
+     */
+    public static int snapshotToText(Path snapshot, Path text) throws IOException {
+        List<Book> books = read(snapshot);
+        try (BufferedWriter bw = Files.newBufferedWriter(text, StandardCharsets.UTF_8)) {
+            for (Book b : books) {
+                CsvCodec.appendField(bw, b.get_author());
+                bw.write(',');
+                CsvCodec.appendField(bw, b.get_title());
+                bw.write(',');
+                bw.write(Integer.toString(b.get_serial_number()));
+                bw.newLine();
+            }
+        }
+        return books.size();
+    }
+
+    private static IOException corrupt(Path path, String why) {
+        return new IOException("Corrupt catalog snapshot (" + why + "): " + path);
+    }
+
+    private static String nonNull(String s) {
+        return s == null ? "" : s;
+    }
+}
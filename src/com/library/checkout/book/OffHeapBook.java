@@ -0,0 +1,69 @@
+package com.library.checkout.book;
+
+/**
+ * OffHeapBook: a flyweight Book over one record of an {@link OffHeapCatalog}.
+ *
+ * It holds only the catalog and a record number; the accessors read the record's fields from off-heap
+ * memory on every call, so a view costs one small object however long the strings are, and nothing is
+ * pinned once it is dropped. It can be passed anywhere a Book is expected.
+ *
+ * A view shows the record version it was created for: if the book is later replaced or removed in the
+ * catalog, the view keeps reading the old version (records are never overwritten until the catalog is
+ * saved and reopened). Views are read-only. Use {@link #toBook()} for an ordinary, independent Book.
+ */
+public final class OffHeapBook extends Book {
+
+    private final OffHeapCatalog catalog;
+    private final int record;
+
+    OffHeapBook(OffHeapCatalog catalog, int record) {
+        this.catalog = catalog;
+        this.record = record;
+    }
+
+    @Override
+    public String get_author() {
+        return catalog.authorOf(record);
+    }
+
+    @Override
+    public String get_title() {
+        return catalog.titleOf(record);
+    }
+
+    @Override
+    public int get_serial_number() {
+        return catalog.serialOf(record);
+    }
+
+    @Override
+    public void set_author(String author_in) {
+        throw new UnsupportedOperationException("off-heap books are read-only; put a new Book instead");
+    }
+
+    @Override
+    public void set_title(String title_in) {
+        throw new UnsupportedOperationException("off-heap books are read-only; put a new Book instead");
+    }
+
+    @Override
+    public void set_serial_number(int serial_number_in) {
+        throw new UnsupportedOperationException("off-heap books are read-only; put a new Book instead");
+    }
+
+    @Override
+    public String to_string() {
+        return toBook().to_string();
+    }
+
+    int record() {
+        return record;
+    }
+
+    /**
+     * An on-heap copy of this record.
+     */
+    public Book toBook() {
+        return new Book(get_author(), get_title(), get_serial_number());
+    }
+}
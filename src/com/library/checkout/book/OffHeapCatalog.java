@@ -0,0 +1,405 @@
+package com.library.checkout.book;
+
+import com.library.checkout.util.IntIntHashMap;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * OffHeapCatalog: book records kept outside the Java heap, in direct (or memory-mapped) buffer slabs.
+ *
+ * Only a primitive serial-to-record index lives on the heap. Records and strings sit in slabs the
+ * garbage collector never scans or copies, so a multi-million-title inventory adds almost nothing to
+ * young-GC work or the old generation. Books are read through {@link OffHeapBook} flyweights.
+ *
+ * Layout:
+ *   record slabs (RECORD_SLAB records each), 16 bytes per record:
+ *     serial:int, flags:int (LIVE), authorRef:int, titleRef:int
+ *   string slabs (STRING_SLAB bytes each): length:short then UTF-8 bytes; a ref is the string's offset
+ *     in the concatenated slabs, and a string never spans two slabs.
+ * Authors are deduplicated: every book by an author added to the same catalog shares one string.
+ *
+ * Records are append-only: replacing a book appends a new record and clears the old one's LIVE flag,
+ * and removing one just clears it, so flyweights stay readable. {@link #save(Path)} writes the live
+ * records out compactly; {@link #map(Path)} maps such a file straight back in (copy-on-write, so later
+ * changes never touch the file) and rebuilds only the serial index, without decoding any string.
+ *
+ * This uses direct and mapped ByteBuffers rather than Arena/MemorySegment: the sources are compiled
+ * with Java 17, and the final java.lang.foreign API needs Java 22 (17 only has an incubator module with
+ * a different API). Moving to MemorySegment later changes the accessors, not the layout or file format.
+ *
+ * Librarian reads a saved file as a books seed file or through importCatalog, and writes one with
+ * exportOffHeap.
+ *
+ * Not thread-safe; callers serialize writes. Reads don't modify anything, so concurrent reads are fine
+ * as long as no write overlaps them.
+ *
+ * Usage example:
+ *   OffHeapCatalog books = OffHeapCatalog.map(Path.of("books.offheap"));
+ *   Book b = books.get(1001); // flyweight, or null
+ */
+public final class OffHeapCatalog {
+
+    private static final int MAGIC = 0x424B4F48; // "BKOH"
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 32;
+
+    private static final int RECORD_BYTES = 16;
+    private static final int RECORD_SLAB = 1 << 16; // records per slab (1 MB)
+    private static final int STRING_SLAB = 1 << 22; // bytes per string slab (4 MB)
+    private static final int MAX_STRING_BYTES = 0xFFFF;
+
+    // record field offsets and flags
+    private static final int OFF_SERIAL = 0;
+    private static final int OFF_FLAGS = 4;
+    private static final int OFF_AUTHOR = 8;
+    private static final int OFF_TITLE = 12;
+    private static final int LIVE = 1;
+
+    private final List<ByteBuffer> recordSlabs = new ArrayList<>();
+    private final List<ByteBuffer> stringSlabs = new ArrayList<>();
+    private int records;     // records appended (live or not)
+    private int stringEnd;   // next free string ref
+
+    // serial -> record of its live version
+    private final IntIntHashMap index = new IntIntHashMap();
+
+    // author -> ref, for authors added to this instance (a mapped file's authors are already shared)
+    private final Map<String, Integer> authorRefs = new HashMap<>();
+
+    public OffHeapCatalog() {
+    }
+
+    /**
+     * Returns true if {@code path} starts with the off-heap catalog magic number (a file from
+     * {@link #save(Path)}).
+     */
+    public static boolean isOffHeapCatalog(Path path) throws IOException {
+        ByteBuffer head = ByteBuffer.allocate(4);
+        try (FileChannel ch = FileChannel.open(path, StandardOpenOption.READ)) {
+            while (head.hasRemaining()) {
+                if (ch.read(head) < 0) return false;
+            }
+        }
+        return head.getInt(0) == MAGIC;
+    }
+
+    /**
+     * Copies {@code books} into a new off-heap catalog (later books win on repeated serials).
+     */
+    public static OffHeapCatalog of(Iterable<? extends Book> books) {
+        OffHeapCatalog c = new OffHeapCatalog();
+        for (Book b : books) c.put(b);
+        return c;
+    }
+
+    // -------------------------
+    // Lookups
+    // -------------------------
+
+    /** Flyweight over the live record for {@code serial}, or null if there is none. */
+    public OffHeapBook get(int serial) {
+        int r = index.get(serial, -1);
+        return r < 0 ? null : new OffHeapBook(this, r);
+    }
+
+    public boolean contains(int serial) {
+        return index.containsKey(serial);
+    }
+
+    public int size() {
+        return index.size();
+    }
+
+    /**
+     * Calls {@code action} with a flyweight for every live book, in record order. The same flyweight
+     * object is not reused, so callers may keep them.
+     */
+    public void forEach(Consumer<? super OffHeapBook> action) {
+        for (int r = 0; r < records; r++) {
+            if ((recordSlab(r).getInt(recordOffset(r) + OFF_FLAGS) & LIVE) != 0) {
+                action.accept(new OffHeapBook(this, r));
+            }
+        }
+    }
+
+    // -------------------------
+    // Changes
+    // -------------------------
+
+    /**
+     * Adds the book, or replaces the live record with the same serial number. Returns a flyweight over
+     * the new record.
+     *
+     * @throws IllegalArgumentException if the author or title is longer than 65535 UTF-8 bytes
+     */
+    public OffHeapBook put(Book b) {
+        String author = nonNull(b.get_author());
+        Integer authorRef = authorRefs.get(author);
+        if (authorRef == null) {
+            authorRef = appendString(author);
+            authorRefs.put(author, authorRef);
+        }
+        int titleRef = appendString(nonNull(b.get_title()));
+        int r = appendRecord(b.get_serial_number(), LIVE, authorRef, titleRef);
+        int previous = index.put(b.get_serial_number(), r, -1);
+        if (previous >= 0) clearFlag(previous, LIVE);
+        return new OffHeapBook(this, r);
+    }
+
+    /**
+     * Removes the book with this serial number. Returns false if there is none.
+     */
+    public boolean remove(int serial) {
+        int r = index.remove(serial, -1);
+        if (r < 0) return false;
+        clearFlag(r, LIVE);
+        return true;
+    }
+
+    // -------------------------
+    // Persistence
+    // -------------------------
+
+    /**
+     * Writes the live books to {@code path} (via a temp file renamed over it) in the layout
+     * {@link #map(Path)} reads: a header, the records, then the strings, each string slab padded to its
+     * full size so the slabs can be mapped one by one. Superseded records and their titles are left out;
+     * authors stay shared.
+     */
+    public void save(Path path) throws IOException {
+        OffHeapCatalog compact = new OffHeapCatalog();
+        IntIntHashMap authorMap = new IntIntHashMap(); // old author ref -> new, so no string is decoded
+        forEach(b -> {
+            int r = b.record();
+            int oldAuthor = recordSlab(r).getInt(recordOffset(r) + OFF_AUTHOR);
+            int newAuthor = authorMap.get(oldAuthor, -1);
+            if (newAuthor < 0) {
+                newAuthor = compact.copyString(this, oldAuthor);
+                authorMap.put(oldAuthor, newAuthor, -1);
+            }
+            int title = compact.copyString(this, recordSlab(r).getInt(recordOffset(r) + OFF_TITLE));
+            compact.appendRecord(serialOf(r), recordSlab(r).getInt(recordOffset(r) + OFF_FLAGS), newAuthor, title);
+        });
+
+        Path tmp = Paths.get(path + ".tmp");
+        try (FileChannel ch = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+            header.putInt(MAGIC).putInt(VERSION).putInt(compact.records).putInt(compact.stringEnd)
+                    .putInt(RECORD_BYTES).putInt(RECORD_SLAB).putInt(STRING_SLAB);
+            header.clear();
+            writeFully(ch, header);
+            for (int s = 0; s < compact.recordSlabs.size(); s++) {
+                int n = Math.min(RECORD_SLAB, compact.records - s * RECORD_SLAB);
+                writeFully(ch, compact.recordSlabs.get(s).duplicate().clear().limit(n * RECORD_BYTES));
+            }
+            for (int s = 0; s < compact.stringSlabs.size(); s++) {
+                int n = Math.min(STRING_SLAB, compact.stringEnd - s * STRING_SLAB);
+                writeFully(ch, compact.stringSlabs.get(s).duplicate().clear().limit(n));
+            }
+            ch.force(true);
+        }
+        try {
+            Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * Maps a file written by {@link #save(Path)}. The full slabs are mapped copy-on-write, not read; only
+     * the last, partial slab of each kind is copied into a direct buffer so it can keep growing. Startup
+     * cost is one pass over the 16-byte records to rebuild the serial index.
+     *
+     * @throws IOException if the file can't be read or is not an off-heap catalog of a supported version
+     */
+    public static OffHeapCatalog map(Path path) throws IOException {
+        OffHeapCatalog c = new OffHeapCatalog();
+        // copy-on-write mappings need a channel open for writing, though nothing is ever written through it
+        try (FileChannel ch = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+            if (ch.read(header, 0) < HEADER_BYTES) throw new IOException("Not an off-heap catalog: " + path);
+            header.flip();
+            if (header.getInt() != MAGIC) throw new IOException("Not an off-heap catalog: " + path);
+            int version = header.getInt();
+            int records = header.getInt();
+            int stringBytes = header.getInt();
+            if (version != VERSION || header.getInt() != RECORD_BYTES || header.getInt() != RECORD_SLAB
+                    || header.getInt() != STRING_SLAB) {
+                throw new IOException("Unsupported off-heap catalog version or layout: " + path);
+            }
+            long stringsAt = HEADER_BYTES + (long) records * RECORD_BYTES;
+            if (records < 0 || stringBytes < 0 || stringsAt + stringBytes != ch.size()) {
+                throw new IOException("Corrupt off-heap catalog (length does not match header): " + path);
+            }
+            mapSlabs(ch, HEADER_BYTES, (long) records * RECORD_BYTES, (long) RECORD_SLAB * RECORD_BYTES, c.recordSlabs);
+            mapSlabs(ch, stringsAt, stringBytes, STRING_SLAB, c.stringSlabs);
+            c.records = records;
+            c.stringEnd = stringBytes;
+        }
+        for (int r = 0; r < c.records; r++) {
+            ByteBuffer slab = c.recordSlab(r);
+            int base = recordOffset(r);
+            if ((slab.getInt(base + OFF_FLAGS) & LIVE) != 0) {
+                int previous = c.index.put(slab.getInt(base + OFF_SERIAL), r, -1);
+                if (previous >= 0) c.clearFlag(previous, LIVE); // not written by save(); keep the later one
+            }
+        }
+        return c;
+    }
+
+    /**
+     * Bytes held outside the heap (allocated or mapped slabs).
+     */
+    public long offHeapBytes() {
+        long bytes = 0;
+        for (ByteBuffer b : recordSlabs) bytes += b.capacity();
+        for (ByteBuffer b : stringSlabs) bytes += b.capacity();
+        return bytes;
+    }
+
+    /**
+     * Approximate heap footprint in bytes: the serial index and the author dictionary.
+     */
+    public long heapBytes() {
+        return index.memoryBytes() + 48L * authorRefs.size();
+    }
+
+    // -------------------------
+    // Record access (for OffHeapBook)
+    // -------------------------
+
+    int serialOf(int record) {
+        return recordSlab(record).getInt(recordOffset(record) + OFF_SERIAL);
+    }
+
+    String authorOf(int record) {
+        return string(recordSlab(record).getInt(recordOffset(record) + OFF_AUTHOR));
+    }
+
+    String titleOf(int record) {
+        return string(recordSlab(record).getInt(recordOffset(record) + OFF_TITLE));
+    }
+
+    // -------------------------
+    // Internals
+    // -------------------------
+
+    private int appendRecord(int serial, int flags, int authorRef, int titleRef) {
+        int r = records;
+        if (r == Integer.MAX_VALUE) throw new IllegalStateException("off-heap catalog is full");
+        if (r / RECORD_SLAB == recordSlabs.size()) {
+            recordSlabs.add(ByteBuffer.allocateDirect(RECORD_SLAB * RECORD_BYTES));
+        }
+        ByteBuffer slab = recordSlab(r);
+        int base = recordOffset(r);
+        slab.putInt(base + OFF_SERIAL, serial);
+        slab.putInt(base + OFF_FLAGS, flags);
+        slab.putInt(base + OFF_AUTHOR, authorRef);
+        slab.putInt(base + OFF_TITLE, titleRef);
+        records++;
+        return r;
+    }
+
+    private int appendString(String s) {
+        byte[] raw = s.getBytes(StandardCharsets.UTF_8);
+        if (raw.length > MAX_STRING_BYTES) {
+            throw new IllegalArgumentException("string too long for off-heap catalog (" + raw.length + " bytes)");
+        }
+        int ref = reserveString(2 + raw.length);
+        ByteBuffer slab = stringSlabs.get(ref / STRING_SLAB);
+        slab.putShort(ref % STRING_SLAB, (short) raw.length);
+        slab.put(ref % STRING_SLAB + 2, raw);
+        return ref;
+    }
+
+    // copies string `ref` of `from` into this catalog, byte for byte
+    private int copyString(OffHeapCatalog from, int ref) {
+        ByteBuffer src = from.stringSlabs.get(ref / STRING_SLAB);
+        int len = 2 + (src.getShort(ref % STRING_SLAB) & 0xFFFF);
+        int to = reserveString(len);
+        stringSlabs.get(to / STRING_SLAB).put(to % STRING_SLAB, src, ref % STRING_SLAB, len);
+        return to;
+    }
+
+    // space for `len` bytes that don't cross a slab boundary
+    private int reserveString(int len) {
+        int slab = stringEnd / STRING_SLAB;
+        if (stringEnd % STRING_SLAB + len > STRING_SLAB) {
+            slab++;
+            if ((long) slab * STRING_SLAB > Integer.MAX_VALUE - STRING_SLAB) {
+                throw new IllegalStateException("off-heap catalog string space is full");
+            }
+            stringEnd = slab * STRING_SLAB;
+        }
+        while (slab >= stringSlabs.size()) {
+            stringSlabs.add(ByteBuffer.allocateDirect(STRING_SLAB));
+        }
+        int ref = stringEnd;
+        stringEnd += len;
+        return ref;
+    }
+
+    private String string(int ref) {
+        ByteBuffer slab = stringSlabs.get(ref / STRING_SLAB);
+        int at = ref % STRING_SLAB;
+        byte[] raw = new byte[slab.getShort(at) & 0xFFFF];
+        slab.get(at + 2, raw);
+        return new String(raw, StandardCharsets.UTF_8);
+    }
+
+    private void clearFlag(int record, int flag) {
+        ByteBuffer slab = recordSlab(record);
+        int at = recordOffset(record) + OFF_FLAGS;
+        slab.putInt(at, slab.getInt(at) & ~flag);
+    }
+
+    private ByteBuffer recordSlab(int record) {
+        return recordSlabs.get(record / RECORD_SLAB);
+    }
+
+    private static int recordOffset(int record) {
+        return (record % RECORD_SLAB) * RECORD_BYTES;
+    }
+
+    // full slabs are mapped copy-on-write; a trailing partial slab is copied into a full-size direct
+    // buffer, since a mapping can't grow past the end of a read-only file
+    private static void mapSlabs(FileChannel ch, long start, long length, long slabBytes, List<ByteBuffer> into)
+            throws IOException {
+        for (long off = 0; off < length; off += slabBytes) {
+            long n = Math.min(slabBytes, length - off);
+            if (n == slabBytes) {
+                into.add(ch.map(FileChannel.MapMode.PRIVATE, start + off, n));
+            } else {
+                ByteBuffer slab = ByteBuffer.allocateDirect((int) slabBytes);
+                slab.limit((int) n);
+                while (slab.hasRemaining()) {
+                    if (ch.read(slab, start + off + slab.position()) < 0) throw new IOException("unexpected end of file");
+                }
+                slab.clear();
+                into.add(slab);
+            }
+        }
+    }
+
+    private static void writeFully(FileChannel ch, ByteBuffer buf) throws IOException {
+        while (buf.hasRemaining()) ch.write(buf);
+    }
+
+    private static String nonNull(String s) {
+        return s == null ? "" : s;
+    }
+}
@@ -0,0 +1,232 @@
+package com.library.checkout.book;
+
+import com.library.checkout.csv.CsvCodec;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * ParallelBookLoader: loads a text books file (author,title,serial_number per line, quoted as written
+ * by CsvCodec; a trailing checked-out flag from older files is accepted and ignored)
+ * by memory-mapping it, cutting it into newline-aligned chunks and parsing the chunks in parallel
+ * on a fork-join pool.
+ *
+ * Books come back in file order, so callers that put them into a map keep the usual "last line wins"
+ * behaviour for repeated serial numbers. Malformed lines are counted, not thrown.
+ *
+ * Usage example:
+ *   ParallelBookLoader.Result r = new ParallelBookLoader().load(Path.of("books.txt"));
+ *   System.out.println(r); // records, rejected, chunks, parallelism, elapsed
+ */
+public class ParallelBookLoader {
+
+    // smallest chunk worth handing to its own task
+    private static final long MIN_CHUNK_BYTES = 1 << 20;
+    // largest single mapping / byte[] copy
+    private static final long MAX_CHUNK_BYTES = 1 << 28;
+    // chunks per worker thread, so uneven chunks still balance
+    private static final int CHUNKS_PER_THREAD = 4;
+
+    private final ForkJoinPool pool;
+
+    public ParallelBookLoader() {
+        this(ForkJoinPool.commonPool());
+    }
+
+    public ParallelBookLoader(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    /**
+     * Outcome of a load: the parsed books plus counts and timing.
+     */
+    public static final class Result {
+        private final List<Book> books;
+        private final int rejected;
+        private final int chunks;
+        private final int parallelism;
+        private final long elapsedNanos;
+
+        Result(List<Book> books, int rejected, int chunks, int parallelism, long elapsedNanos) {
+            this.books = books;
+            this.rejected = rejected;
+            this.chunks = chunks;
+            this.parallelism = parallelism;
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        /** Parsed books, in file order. */
+        public List<Book> books() {
+            return books;
+        }
+
+        public int records() {
+            return books.size();
+        }
+
+        public int rejected() {
+            return rejected;
+        }
+
+        public int chunks() {
+            return chunks;
+        }
+
+        public int parallelism() {
+            return parallelism;
+        }
+
+        public long elapsedNanos() {
+            return elapsedNanos;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("records=%d, rejected=%d, chunks=%d, parallelism=%d, elapsed=%.1f ms",
+                    records(), rejected, chunks, parallelism, elapsedNanos / 1e6);
+        }
+    }
+
+    public Result load(Path file) throws IOException {
+        long start = System.nanoTime();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long[] bounds = chunkBounds(channel);
+            List<ChunkTask> tasks = new ArrayList<>(bounds.length - 1);
+            for (int i = 0; i + 1 < bounds.length; i++) {
+                tasks.add(new ChunkTask(channel, bounds[i], bounds[i + 1]));
+            }
+
+            List<ChunkResult> parts = pool.submit(() -> {
+                for (ChunkTask t : tasks) t.fork();
+                List<ChunkResult> out = new ArrayList<>(tasks.size());
+                for (ChunkTask t : tasks) out.add(t.join());
+                return out;
+            }).join();
+
+            int total = 0;
+            int rejected = 0;
+            for (ChunkResult part : parts) {
+                total += part.books.size();
+                rejected += part.rejected;
+            }
+            List<Book> books = new ArrayList<>(total);
+            for (ChunkResult part : parts) {
+                books.addAll(part.books);
+            }
+            return new Result(books, rejected, tasks.size(), pool.getParallelism(), System.nanoTime() - start);
+        }
+    }
+
+    // chunk boundaries: bounds[i] .. bounds[i+1], each boundary just past a '\n' (or at EOF)
+    private long[] chunkBounds(FileChannel channel) throws IOException {
+        long size = channel.size();
+        long target = size / Math.max(1, pool.getParallelism() * CHUNKS_PER_THREAD);
+        target = Math.max(MIN_CHUNK_BYTES, Math.min(MAX_CHUNK_BYTES, target));
+
+        List<Long> bounds = new ArrayList<>();
+        bounds.add(0L);
+        long pos = 0;
+        ByteBuffer probe = ByteBuffer.allocate(4096);
+        while (pos + target < size) {
+            long next = nextLineStart(channel, pos + target, probe);
+            if (next >= size) break;
+            bounds.add(next);
+            pos = next;
+        }
+        bounds.add(size);
+
+        long[] out = new long[bounds.size()];
+        for (int i = 0; i < out.length; i++) out[i] = bounds.get(i);
+        return out;
+    }
+
+    private static long nextLineStart(FileChannel channel, long from, ByteBuffer probe) throws IOException {
+        long pos = from;
+        while (true) {
+            probe.clear();
+            int n = channel.read(probe, pos);
+            if (n <= 0) return channel.size();
+            for (int i = 0; i < n; i++) {
+                if (probe.get(i) == '\n') return pos + i + 1;
+            }
+            pos += n;
+        }
+    }
+
+    private static final class ChunkResult {
+        final List<Book> books;
+        final int rejected;
+
+        ChunkResult(List<Book> books, int rejected) {
+            this.books = books;
+            this.rejected = rejected;
+        }
+    }
+
+    private static final class ChunkTask extends RecursiveTask<ChunkResult> {
+        private static final long serialVersionUID = 1L;
+
+        private final FileChannel channel;
+        private final long start;
+        private final long end;
+
+        ChunkTask(FileChannel channel, long start, long end) {
+            this.channel = channel;
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        protected ChunkResult compute() {
+            byte[] data = new byte[(int) (end - start)];
+            try {
+                MappedByteBuffer map = channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+                map.get(data);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+
+            List<Book> books = new ArrayList<>(data.length / 40);
+            int rejected = 0;
+            CsvCodec.Record rec = new CsvCodec.Record();
+            int lineStart = 0;
+            while (lineStart < data.length) {
+                int lineEnd = lineStart;
+                while (lineEnd < data.length && data[lineEnd] != '\n') lineEnd++;
+                Book b = parseLine(data, lineStart, lineEnd, rec);
+                if (b != null) {
+                    books.add(b);
+                } else if (!isBlank(data, lineStart, lineEnd)) {
+                    rejected++;
+                }
+                lineStart = lineEnd + 1;
+            }
+            return new ChunkResult(books, rejected);
+        }
+    }
+
+    // author,title,serial_number[,legacy flag] via the shared codec; surrounding whitespace on the line is ignored
+    private static Book parseLine(byte[] data, int from, int to, CsvCodec.Record rec) {
+        while (from < to && (data[from] & 0xFF) <= ' ') from++;
+        while (to > from && (data[to - 1] & 0xFF) <= ' ') to--;
+        if (from == to) return null;
+        return CsvCodec.parse(data, from, to, rec) ? Book.from_csv_record(rec) : null;
+    }
+
+    private static boolean isBlank(byte[] data, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if ((data[i] & 0xFF) > ' ') return false;
+        }
+        return true;
+    }
+}
@@ -0,0 +1,295 @@
+package com.library.checkout.book;
+
+import com.library.checkout.util.HeapSizes;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * PrefixIndex: a radix tree (compressed trie) over normalized keys for type-ahead completion.
+ *
+ * Each key maps to the serial numbers that have it. {@link #complete(String, int)} walks down to the
+ * node for the prefix and then visits the subtree in key order, stopping after {@code k} serials. Every
+ * leaf of a radix tree carries at least one serial, so the walk costs O(prefix length + k * depth)
+ * regardless of how many keys share the prefix.
+ *
+ * Memory per entry is bounded: inserting a key adds at most two nodes (one split plus one leaf), and edge
+ * labels are offsets into the inserted key string rather than copies of it.
+ *
+ * Keys are normalized with {@link TrigramIndex#normalize(String)}, so completion is case-insensitive in
+ * the same way as search. Not thread-safe for writes; completions don't modify the tree, so
+ * Librarian runs them concurrently under its catalog read lock.
+ */
+public class PrefixIndex {
+
+    private static final class Node {
+        // edge label leading into this node: src[from, to)
+        String src;
+        int from;
+        int to;
+
+        Node[] children = NO_CHILDREN; // sorted by first label char
+        int childCount;
+
+        int[] serials; // null if no key ends here
+        int serialCount;
+
+        Node(String src, int from, int to) {
+            this.src = src;
+            this.from = from;
+            this.to = to;
+        }
+
+        int length() {
+            return to - from;
+        }
+
+        char charAt(int i) {
+            return src.charAt(from + i);
+        }
+    }
+
+    private static final Node[] NO_CHILDREN = new Node[0];
+
+    private final Node root = new Node("", 0, 0);
+    private int size;
+
+    /**
+     * Number of (key, serial) entries.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Approximate heap footprint of the tree in bytes (nodes and their arrays). Edge labels point into
+     * the added keys, which callers share with other indexes, so they are not counted. O(nodes).
+     */
+    public long memoryBytes() {
+        long bytes = HeapSizes.object(HeapSizes.REFERENCE + 4);
+        List<Node> stack = new ArrayList<>();
+        stack.add(root);
+        while (!stack.isEmpty()) {
+            Node n = stack.remove(stack.size() - 1);
+            bytes += HeapSizes.object(3 * HeapSizes.REFERENCE + 4 * 4);
+            if (n.children != NO_CHILDREN) bytes += HeapSizes.referenceArray(n.children.length);
+            if (n.serials != null) bytes += HeapSizes.intArray(n.serials.length);
+            for (int i = 0; i < n.childCount; i++) {
+                stack.add(n.children[i]);
+            }
+        }
+        return bytes;
+    }
+
+    public void add(String key, int serial) {
+        String k = TrigramIndex.normalize(key);
+        Node node = root;
+        int i = 0;
+        while (true) {
+            if (i == k.length()) {
+                addSerial(node, serial);
+                return;
+            }
+            int ci = findChild(node, k.charAt(i));
+            if (ci < 0) {
+                insertChild(node, -ci - 1, leaf(k, i, serial));
+                return;
+            }
+            Node child = node.children[ci];
+            int common = commonPrefix(child, k, i);
+            if (common < child.length()) {
+                child = split(node, ci, common);
+            }
+            node = child;
+            i += common;
+        }
+    }
+
+    public void remove(String key, int serial) {
+        String k = TrigramIndex.normalize(key);
+        // remember the path so emptied nodes can be pruned / merged on the way back
+        Node[] path = new Node[k.length() + 1];
+        int[] childIdx = new int[k.length() + 1];
+        int depth = 0;
+        Node node = root;
+        int i = 0;
+        while (i < k.length()) {
+            int ci = findChild(node, k.charAt(i));
+            if (ci < 0) return;
+            Node child = node.children[ci];
+            if (commonPrefix(child, k, i) < child.length()) return;
+            path[depth] = node;
+            childIdx[depth] = ci;
+            depth++;
+            node = child;
+            i += child.length();
+        }
+        if (!removeSerial(node, serial)) return;
+
+        // prune: drop empty leaves, merge pass-through nodes into their only child
+        while (depth > 0) {
+            Node parent = path[depth - 1];
+            int ci = childIdx[depth - 1];
+            if (node.serials == null && node.childCount == 0) {
+                removeChild(parent, ci);
+            } else if (node.serials == null && node.childCount == 1) {
+                // pass-through node: fold its label into its only child (rare, so a fresh label is fine)
+                Node only = node.children[0];
+                String label = label(node) + label(only);
+                only.src = label;
+                only.from = 0;
+                only.to = label.length();
+                parent.children[ci] = only;
+                break;
+            } else {
+                break;
+            }
+            node = parent;
+            depth--;
+        }
+    }
+
+    /**
+     * Up to {@code k} serials whose key starts with {@code prefix}, in key order (ties by insertion).
+     */
+    public int[] complete(String prefix, int k) {
+        if (k <= 0) return new int[0];
+        Node node = find(TrigramIndex.normalize(prefix));
+        if (node == null) return new int[0];
+        int[] out = new int[Math.min(k, size)];
+        int n = collect(node, out, 0);
+        return n == out.length ? out : Arrays.copyOf(out, n);
+    }
+
+    /**
+     * Like {@link #complete(String, int)} but returns one serial per distinct key (the first one added),
+     * up to {@code k} keys. Handy for suggesting distinct authors rather than individual books.
+     */
+    public int[] completeDistinct(String prefix, int k) {
+        if (k <= 0) return new int[0];
+        Node node = find(TrigramIndex.normalize(prefix));
+        if (node == null) return new int[0];
+        int[] out = new int[Math.min(k, size)];
+        int n = collectDistinct(node, out, 0);
+        return n == out.length ? out : Arrays.copyOf(out, n);
+    }
+
+    // -------------------------
+    // Internals
+    // -------------------------
+
+    private static int collect(Node node, int[] out, int n) {
+        for (int s = 0; s < node.serialCount && n < out.length; s++) {
+            out[n++] = node.serials[s];
+        }
+        for (int c = 0; c < node.childCount && n < out.length; c++) {
+            n = collect(node.children[c], out, n);
+        }
+        return n;
+    }
+
+    private static int collectDistinct(Node node, int[] out, int n) {
+        if (node.serials != null && n < out.length) out[n++] = node.serials[0];
+        for (int c = 0; c < node.childCount && n < out.length; c++) {
+            n = collectDistinct(node.children[c], out, n);
+        }
+        return n;
+    }
+
+    // node at or just below prefix p (p may end part-way along its edge), or null if nothing matches
+    private Node find(String p) {
+        Node node = root;
+        int i = 0;
+        while (i < p.length()) {
+            int ci = findChild(node, p.charAt(i));
+            if (ci < 0) return null;
+            Node child = node.children[ci];
+            int common = commonPrefix(child, p, i);
+            if (common < child.length() && i + common < p.length()) return null;
+            node = child;
+            i += common;
+        }
+        return node;
+    }
+
+    private static String label(Node n) {
+        return n.src.substring(n.from, n.to);
+    }
+
+    private Node leaf(String key, int from, int serial) {
+        Node n = new Node(key, from, key.length());
+        addSerial(n, serial);
+        return n;
+    }
+
+    private void addSerial(Node node, int serial) {
+        // callers never add the same (key, serial) twice, so no duplicate check here
+        if (node.serials == null) {
+            node.serials = new int[1];
+        } else if (node.serialCount == node.serials.length) {
+            node.serials = Arrays.copyOf(node.serials, node.serialCount * 2);
+        }
+        node.serials[node.serialCount++] = serial;
+        size++;
+    }
+
+    private boolean removeSerial(Node node, int serial) {
+        for (int s = 0; s < node.serialCount; s++) {
+            if (node.serials[s] == serial) {
+                System.arraycopy(node.serials, s + 1, node.serials, s, node.serialCount - s - 1);
+                if (--node.serialCount == 0) node.serials = null;
+                size--;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // split child at parent.children[ci] after `at` chars; returns the new intermediate node
+    private static Node split(Node parent, int ci, int at) {
+        Node child = parent.children[ci];
+        Node mid = new Node(child.src, child.from, child.from + at);
+        child.from += at;
+        mid.children = new Node[]{child};
+        mid.childCount = 1;
+        parent.children[ci] = mid;
+        return mid;
+    }
+
+    private static int commonPrefix(Node child, String k, int i) {
+        int max = Math.min(child.length(), k.length() - i);
+        int n = 0;
+        while (n < max && child.charAt(n) == k.charAt(i + n)) n++;
+        return n;
+    }
+
+    // binary search on first label char; returns index, or -(insertion point) - 1
+    private static int findChild(Node node, char c) {
+        int lo = 0;
+        int hi = node.childCount - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            char m = node.children[mid].charAt(0);
+            if (m < c) lo = mid + 1;
+            else if (m > c) hi = mid - 1;
+            else return mid;
+        }
+        return -lo - 1;
+    }
+
+    private static void insertChild(Node node, int at, Node child) {
+        if (node.childCount == node.children.length) {
+            node.children = Arrays.copyOf(node.children, Math.max(2, node.childCount * 2));
+        }
+        System.arraycopy(node.children, at, node.children, at + 1, node.childCount - at);
+        node.children[at] = child;
+        node.childCount++;
+    }
+
+    private static void removeChild(Node node, int at) {
+        System.arraycopy(node.children, at + 1, node.children, at, node.childCount - at - 1);
+        node.children[--node.childCount] = null;
+        if (node.childCount == 0) node.children = NO_CHILDREN;
+    }
+}
@@ -0,0 +1,307 @@
+package com.library.checkout.book;
+
+import com.library.checkout.util.HeapSizes;
+import com.library.checkout.util.IntHashSet;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * SortedCatalog: the catalog kept in title, author and serial number order at all times, so listing it
+ * sorted never means sorting it.
+ *
+ * Each order is a treap (a binary search tree balanced by random priorities) whose nodes also record the
+ * size of their subtree. That makes the i-th book of an order reachable in O(log n), so a page of k books
+ * costs O(log n + k) however deep into the order it starts (see {@link SortedView}).
+ *
+ * The trees are persistent: adding or removing a book copies only the O(log n) nodes on its path and
+ * returns a new SortedCatalog, and every earlier SortedCatalog (and every view of it) stays valid and
+ * unchanged. Librarian publishes one alongside each version of the inventory, so sorted views are
+ * point-in-time views just like snapshots.
+ *
+ * Orders compare case-insensitively (String.CASE_INSENSITIVE_ORDER, via BookOrdering), and ties are
+ * broken by the other fields and finally the serial number, so every order is total. A null title or
+ * author sorts as the empty string.
+ *
+ * Usage example:
+ *   SortedView byTitle = catalog.view(SortedCatalog.Order.TITLE);
+ *   List<Book> page = byTitle.page(100, 50); // books 100..149 in title order
+ */
+public final class SortedCatalog {
+
+    /**
+     * The maintained orderings.
+     */
+    public enum Order {
+        TITLE(BookOrdering.by(BookOrdering.Key.TITLE, BookOrdering.Key.AUTHOR)),
+        AUTHOR(BookOrdering.by(BookOrdering.Key.AUTHOR, BookOrdering.Key.TITLE)),
+        SERIAL(BookOrdering.by(BookOrdering.Key.SERIAL));
+
+        private final BookOrdering ordering;
+
+        Order(BookOrdering ordering) {
+            this.ordering = ordering;
+        }
+
+        /** The order as a comparator; created once, so it can be reused freely. */
+        public Comparator<Book> comparator() {
+            return ordering;
+        }
+
+        /** The order as a BookOrdering, for sorting other lists the same way. */
+        public BookOrdering ordering() {
+            return ordering;
+        }
+    }
+
+    private static final Order[] ORDERS = Order.values();
+
+    // immutable tree node; priority is derived from the serial number so rebuilding gives the same shape
+    static final class Node {
+        final Book book;
+        final Node left;
+        final Node right;
+        final int size;
+
+        Node(Book book, Node left, Node right) {
+            this.book = book;
+            this.left = left;
+            this.right = right;
+            this.size = 1 + size(left) + size(right);
+        }
+    }
+
+    private static final SortedCatalog EMPTY = new SortedCatalog(new Node[ORDERS.length]);
+
+    private final Node[] roots; // indexed by Order.ordinal()
+
+    private SortedCatalog(Node[] roots) {
+        this.roots = roots;
+    }
+
+    public static SortedCatalog empty() {
+        return EMPTY;
+    }
+
+    /**
+     * A catalog of {@code books} (at most one per serial number), built in O(n log n) by sorting each
+     * order once (a keyed parallel sort, see BookOrdering) and then building each tree in one linear pass.
+     */
+    public static SortedCatalog of(Collection<Book> books) {
+        Node[] roots = new Node[ORDERS.length];
+        for (Order o : ORDERS) {
+            Book[] sorted = o.ordering.sortedArray(books);
+            roots[o.ordinal()] = treapOf(sorted, sorted.length);
+        }
+        return new SortedCatalog(roots);
+    }
+
+    public int size() {
+        return size(roots[0]);
+    }
+
+    /**
+     * Approximate heap footprint in bytes: one tree node per book per order (the books not included).
+     */
+    public long memoryBytes() {
+        long node = HeapSizes.object(3 * HeapSizes.REFERENCE + 4);
+        return HeapSizes.object(HeapSizes.REFERENCE) + HeapSizes.referenceArray(roots.length)
+                + (long) roots.length * size() * node;
+    }
+
+    /**
+     * The books in {@code order}; O(1), nothing is copied.
+     */
+    public SortedView view(Order order) {
+        return new SortedView(roots[order.ordinal()], order.ordering);
+    }
+
+    /**
+     * A builder for a changed copy of this catalog.
+     */
+    public Builder builder() {
+        return new Builder(this);
+    }
+
+    /**
+     * Accumulates book changes and applies them in {@link #build()}: one by one (O(log n) each) for small
+     * batches, or by merging into a rebuilt tree (O(n + b log b)) once the batch is a sizeable fraction of
+     * the catalog.
+     */
+    public static final class Builder {
+        private final SortedCatalog base;
+        // serial -> {book currently in base (or null), book it should end up as (or null)}
+        private final Map<Integer, Book[]> changes = new HashMap<>();
+
+        private Builder(SortedCatalog base) {
+            this.base = base;
+        }
+
+        /**
+         * Records that {@code old} (null if none) is replaced by {@code now} (null to remove). Both must
+         * have the same serial number if both are given; {@code old} must be the book currently filed.
+         */
+        public void replace(Book old, Book now) {
+            if (old == null && now == null) return;
+            int serial = old != null ? old.get_serial_number() : now.get_serial_number();
+            Book[] change = changes.get(serial);
+            if (change == null) changes.put(serial, new Book[]{old, now});
+            else change[1] = now;
+        }
+
+        public SortedCatalog build() {
+            if (changes.isEmpty()) return base;
+            Node[] roots = base.roots.clone();
+            boolean rebuild = (long) changes.size() * 8 > base.size();
+            for (Order o : ORDERS) {
+                int i = o.ordinal();
+                roots[i] = rebuild ? rebuild(roots[i], o.ordering) : applyOneByOne(roots[i], o.ordering);
+            }
+            return new SortedCatalog(roots);
+        }
+
+        private Node applyOneByOne(Node root, Comparator<Book> cmp) {
+            for (Book[] change : changes.values()) {
+                if (change[0] != null) root = remove(root, change[0], cmp);
+                if (change[1] != null) root = insert(root, change[1], cmp);
+            }
+            return root;
+        }
+
+        private Node rebuild(Node root, BookOrdering cmp) {
+            IntHashSet touched = new IntHashSet(changes.size());
+            List<Book> added = new ArrayList<>(changes.size());
+            for (Map.Entry<Integer, Book[]> e : changes.entrySet()) {
+                touched.add(e.getKey());
+                if (e.getValue()[1] != null) added.add(e.getValue()[1]);
+            }
+            Book[] extra = cmp.sortedArray(added);
+
+            Book[] kept = new Book[size(root)];
+            int n = flatten(root, kept, 0, touched);
+            Book[] merged = new Book[n + extra.length];
+            int a = 0;
+            int b = 0;
+            int m = 0;
+            while (a < n && b < extra.length) {
+                merged[m++] = cmp.compare(kept[a], extra[b]) <= 0 ? kept[a++] : extra[b++];
+            }
+            while (a < n) merged[m++] = kept[a++];
+            while (b < extra.length) merged[m++] = extra[b++];
+            return treapOf(merged, m);
+        }
+    }
+
+    // -------------------------
+    // Treap internals
+    // -------------------------
+
+    static int size(Node n) {
+        return n == null ? 0 : n.size;
+    }
+
+    private static int priority(Book b) {
+        int h = b.get_serial_number() * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    private static Node insert(Node node, Book b, Comparator<Book> cmp) {
+        if (node == null) return new Node(b, null, null);
+        if (cmp.compare(b, node.book) < 0) {
+            Node left = insert(node.left, b, cmp);
+            if (priority(left.book) > priority(node.book)) {
+                // rotate right
+                return new Node(left.book, left.left, new Node(node.book, left.right, node.right));
+            }
+            return new Node(node.book, left, node.right);
+        }
+        Node right = insert(node.right, b, cmp);
+        if (priority(right.book) > priority(node.book)) {
+            // rotate left
+            return new Node(right.book, new Node(node.book, node.left, right.left), right.right);
+        }
+        return new Node(node.book, node.left, right);
+    }
+
+    private static Node remove(Node node, Book b, Comparator<Book> cmp) {
+        if (node == null) return null;
+        int c = cmp.compare(b, node.book);
+        if (c < 0) {
+            Node left = remove(node.left, b, cmp);
+            return left == node.left ? node : new Node(node.book, left, node.right);
+        }
+        if (c > 0) {
+            Node right = remove(node.right, b, cmp);
+            return right == node.right ? node : new Node(node.book, node.left, right);
+        }
+        return merge(node.left, node.right);
+    }
+
+    // every key in a is before every key in b
+    private static Node merge(Node a, Node b) {
+        if (a == null) return b;
+        if (b == null) return a;
+        if (priority(a.book) > priority(b.book)) {
+            return new Node(a.book, a.left, merge(a.right, b));
+        }
+        return new Node(b.book, merge(a, b.left), b.right);
+    }
+
+    // in-order copy of the books whose serial isn't in skip; returns the new count
+    private static int flatten(Node node, Book[] out, int n, IntHashSet skip) {
+        while (node != null) {
+            n = flatten(node.left, out, n, skip);
+            if (!skip.contains(node.book.get_serial_number())) out[n++] = node.book;
+            node = node.right;
+        }
+        return n;
+    }
+
+    // treap over sorted[0, n) in O(n): the Cartesian tree of the priorities, built left to right with a
+    // stack of the current right spine. Nodes are immutable, so the spine is kept as plain arrays and the
+    // nodes are created bottom-up once each subtree is complete.
+    private static Node treapOf(Book[] sorted, int n) {
+        if (n == 0) return null;
+        int[] left = new int[n];
+        int[] right = new int[n];
+        Arrays.fill(left, -1);
+        Arrays.fill(right, -1);
+        int[] spine = new int[n];
+        int top = -1;
+        for (int i = 0; i < n; i++) {
+            int last = -1;
+            int p = priority(sorted[i]);
+            while (top >= 0 && priority(sorted[spine[top]]) < p) {
+                last = spine[top--];
+            }
+            if (last >= 0) left[i] = last;
+            if (top >= 0) right[spine[top]] = i;
+            spine[++top] = i;
+        }
+        // post-order over the index tree, iteratively (a skewed tree could be deep)
+        Node[] made = new Node[n];
+        int[] stack = new int[n];
+        boolean[] expanded = new boolean[n];
+        int sp = 0;
+        stack[sp++] = spine[0];
+        while (sp > 0) {
+            int i = stack[sp - 1];
+            if (!expanded[i]) {
+                expanded[i] = true;
+                if (left[i] >= 0) stack[sp++] = left[i];
+                if (right[i] >= 0) stack[sp++] = right[i];
+                continue;
+            }
+            sp--;
+            made[i] = new Node(sorted[i], left[i] >= 0 ? made[left[i]] : null, right[i] >= 0 ? made[right[i]] : null);
+            if (left[i] >= 0) made[left[i]] = null;
+            if (right[i] >= 0) made[right[i]] = null;
+        }
+        return made[spine[0]];
+    }
+}
@@ -0,0 +1,171 @@
+package com.library.checkout.book;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * SortedView: one ordering of a {@link SortedCatalog}, as it was when the view was taken.
+ *
+ * The view is immutable and costs nothing to create or keep: it shares the catalog's tree. Positional
+ * access walks down the tree using subtree sizes, so {@link #get(int)} is O(log n) and
+ * {@link #page(int, int)} is O(log n + page size), wherever the page falls.
+ *
+ * Usage example:
+ *   SortedView byAuthor = librarian.sortedBooks(SortedCatalog.Order.AUTHOR);
+ *   for (Book b : byAuthor.page(0, 20)) { ... }
+ */
+public final class SortedView implements Iterable<Book> {
+
+    private final SortedCatalog.Node root;
+    private final Comparator<Book> comparator;
+
+    SortedView(SortedCatalog.Node root, Comparator<Book> comparator) {
+        this.root = root;
+        this.comparator = comparator;
+    }
+
+    public int size() {
+        return SortedCatalog.size(root);
+    }
+
+    public boolean isEmpty() {
+        return root == null;
+    }
+
+    /** The order the books are in. */
+    public Comparator<Book> comparator() {
+        return comparator;
+    }
+
+    /**
+     * The book at {@code index} in this order.
+     *
+     * @throws IndexOutOfBoundsException if index is not in [0, size())
+     */
+    public Book get(int index) {
+        if (index < 0 || index >= size()) {
+            throw new IndexOutOfBoundsException("Index " + index + " out of range for size " + size());
+        }
+        SortedCatalog.Node n = root;
+        while (true) {
+            int leftSize = SortedCatalog.size(n.left);
+            if (index < leftSize) {
+                n = n.left;
+            } else if (index == leftSize) {
+                return n.book;
+            } else {
+                index -= leftSize + 1;
+                n = n.right;
+            }
+        }
+    }
+
+    /**
+     * Up to {@code limit} books starting at position {@code offset}; empty past the end.
+     */
+    public List<Book> page(int offset, int limit) {
+        if (offset < 0 || limit < 0) {
+            throw new IllegalArgumentException("offset and limit must not be negative");
+        }
+        if (offset >= size() || limit == 0) return Collections.emptyList();
+        List<Book> page = new ArrayList<>(Math.min(limit, size() - offset));
+        Iterator<Book> it = new InOrder(root, offset);
+        while (page.size() < limit && it.hasNext()) {
+            page.add(it.next());
+        }
+        return page;
+    }
+
+    /**
+     * Iterates from the first book in this order; each step is O(1) amortized.
+     */
+    @Override
+    public Iterator<Book> iterator() {
+        return new InOrder(root, 0);
+    }
+
+    /**
+     * Iterates from position {@code offset}; positioning costs O(log n).
+     */
+    public Iterator<Book> iterator(int offset) {
+        if (offset < 0) throw new IllegalArgumentException("offset must not be negative");
+        return new InOrder(root, offset);
+    }
+
+    /**
+     * Iterates from the first book that comes strictly after {@code key} in this order (which need not
+     * be in the view any more); positioning costs O(log n). This is the seek behind keyset pagination:
+     * resuming after the last book of a page stays correct while books are added and removed.
+     */
+    public Iterator<Book> iteratorAfter(Book key) {
+        return new InOrder(root, key, comparator);
+    }
+
+    /**
+     * Up to {@code limit} books that come strictly after {@code key} in this order.
+     */
+    public List<Book> pageAfter(Book key, int limit) {
+        if (limit < 0) throw new IllegalArgumentException("limit must not be negative");
+        List<Book> page = new ArrayList<>(Math.min(limit, size()));
+        Iterator<Book> it = iteratorAfter(key);
+        while (page.size() < limit && it.hasNext()) {
+            page.add(it.next());
+        }
+        return page;
+    }
+
+    // in-order walk with an explicit stack of the ancestors still to be visited
+    private static final class InOrder implements Iterator<Book> {
+        private final List<SortedCatalog.Node> stack = new ArrayList<>();
+
+        // positioned just after key: every node after key on the search path is still to be visited
+        InOrder(SortedCatalog.Node root, Book key, Comparator<Book> comparator) {
+            SortedCatalog.Node n = root;
+            while (n != null) {
+                if (comparator.compare(key, n.book) < 0) {
+                    stack.add(n);
+                    n = n.left;
+                } else {
+                    n = n.right;
+                }
+            }
+        }
+
+        InOrder(SortedCatalog.Node root, int offset) {
+            // descend to position offset, stacking each node we pass on its left
+            SortedCatalog.Node n = root;
+            while (n != null) {
+                int leftSize = SortedCatalog.size(n.left);
+                if (offset < leftSize) {
+                    stack.add(n);
+                    n = n.left;
+                } else if (offset == leftSize) {
+                    stack.add(n);
+                    return;
+                } else {
+                    offset -= leftSize + 1;
+                    n = n.right;
+                }
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return !stack.isEmpty();
+        }
+
+        @Override
+        public Book next() {
+            if (stack.isEmpty()) throw new NoSuchElementException();
+            SortedCatalog.Node n = stack.remove(stack.size() - 1);
+            for (SortedCatalog.Node c = n.right; c != null; c = c.left) {
+                stack.add(c);
+            }
+            return n.book;
+        }
+    }
+}
@@ -0,0 +1,160 @@
+package com.library.checkout.book;
+
+import com.library.checkout.util.HeapSizes;
+import com.library.checkout.util.IntHashSet;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * TrigramIndex: inverted index from every 3-character substring of a normalized text field to the serial
+ * numbers of the books containing it, for case-insensitive substring search.
+ *
+ * A query of 3+ characters intersects the posting lists of its trigrams (starting from the shortest)
+ * and verifies each surviving candidate with {@code String.contains} on the stored normalized text, so
+ * results are exactly those of {@code field.toLowerCase(Locale.ROOT).contains(fragment.toLowerCase(Locale.ROOT))}.
+ * Queries shorter than 3 characters fall back to a scan of the stored normalized texts (still without
+ * lower-casing every book per query).
+ *
+ * Not thread-safe for writes. Searches don't modify anything, so concurrent searches are fine as long
+ * as no write overlaps them (Librarian's catalog read/write lock).
+ */
+public class TrigramIndex {
+
+    // packed trigram (three 16-bit chars) -> serials whose text contains it
+    private final Map<Long, IntHashSet> postings = new HashMap<>();
+
+    // serial -> normalized text, for verification and for removing the old postings on update
+    private final Map<Integer, String> texts = new HashMap<>();
+
+    /**
+     * The normalization used for both indexed text and queries.
+     */
+    public static String normalize(String s) {
+        return s == null ? "" : s.toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Indexes {@code text} for {@code serial}, replacing whatever was indexed for it before.
+     */
+    public void put(int serial, String text) {
+        String norm = normalize(text);
+        String old = texts.put(serial, norm);
+        if (old != null) {
+            if (old.equals(norm)) return;
+            unindex(serial, old);
+        }
+        for (int i = 0; i + 3 <= norm.length(); i++) {
+            postings.computeIfAbsent(trigram(norm, i), k -> new IntHashSet(4)).add(serial);
+        }
+    }
+
+    public void remove(int serial) {
+        String old = texts.remove(serial);
+        if (old != null) unindex(serial, old);
+    }
+
+    public int size() {
+        return texts.size();
+    }
+
+    /**
+     * Approximate heap footprint of the index structure in bytes: the posting lists and both maps, but not
+     * the indexed texts themselves, which callers may share between books (see {@link #textBytes()}).
+     */
+    public long memoryBytes() {
+        long boxedLong = HeapSizes.object(8);
+        long boxedInt = HeapSizes.object(4);
+        long bytes = 2 * HeapSizes.object(32);
+        for (IntHashSet serials : postings.values()) {
+            bytes += HeapSizes.hashMapEntry() + boxedLong + serials.memoryBytes();
+        }
+        // small serials are cached Integers, so this slightly overstates the texts map
+        return bytes + (long) texts.size() * (HeapSizes.hashMapEntry() + boxedInt);
+    }
+
+    /**
+     * Approximate heap footprint of the indexed (normalized) texts in bytes, counting each as its own
+     * String.
+     */
+    public long textBytes() {
+        long bytes = 0;
+        for (String text : texts.values()) {
+            bytes += HeapSizes.string(text);
+        }
+        return bytes;
+    }
+
+    /**
+     * Serial numbers of every indexed text containing {@code fragment} (case-insensitive), ascending.
+     */
+    public int[] search(String fragment) {
+        String f = normalize(fragment);
+        int[] out;
+        int n = 0;
+
+        if (f.length() < 3) {
+            out = new int[texts.size()];
+            for (Map.Entry<Integer, String> e : texts.entrySet()) {
+                if (e.getValue().contains(f)) out[n++] = e.getKey();
+            }
+        } else {
+            IntHashSet[] lists = postingsFor(f);
+            if (lists == null) return new int[0];
+            IntHashSet smallest = lists[0];
+            out = new int[smallest.size()];
+            int[] candidates = smallest.toArray();
+            for (int serial : candidates) {
+                if (inAll(lists, serial) && texts.get(serial).contains(f)) out[n++] = serial;
+            }
+        }
+
+        out = Arrays.copyOf(out, n);
+        Arrays.sort(out);
+        return out;
+    }
+
+    // posting lists for the distinct trigrams of f, shortest first; null if any trigram has none
+    private IntHashSet[] postingsFor(String f) {
+        int count = f.length() - 2;
+        IntHashSet[] lists = new IntHashSet[count];
+        long[] seen = new long[count];
+        int n = 0;
+        for (int i = 0; i < count; i++) {
+            long t = trigram(f, i);
+            boolean dup = false;
+            for (int j = 0; j < n; j++) {
+                if (seen[j] == t) { dup = true; break; }
+            }
+            if (dup) continue;
+            IntHashSet list = postings.get(t);
+            if (list == null) return null;
+            seen[n] = t;
+            lists[n++] = list;
+        }
+        lists = Arrays.copyOf(lists, n);
+        Arrays.sort(lists, (a, b) -> Integer.compare(a.size(), b.size()));
+        return lists;
+    }
+
+    private static boolean inAll(IntHashSet[] lists, int serial) {
+        for (int i = 1; i < lists.length; i++) {
+            if (!lists[i].contains(serial)) return false;
+        }
+        return true;
+    }
+
+    private void unindex(int serial, String norm) {
+        for (int i = 0; i + 3 <= norm.length(); i++) {
+            long t = trigram(norm, i);
+            IntHashSet list = postings.get(t);
+            if (list != null && list.remove(serial) && list.isEmpty()) postings.remove(t);
+        }
+    }
+
+    private static long trigram(String s, int i) {
+        return ((long) s.charAt(i) << 32) | ((long) s.charAt(i + 1) << 16) | s.charAt(i + 2);
+    }
+}
@@ -0,0 +1,280 @@
+package com.library.checkout.csv;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * CsvCodec: the one reader/writer for the comma-separated records used by the books, loans and users files.
+ *
+ * Format: fields separated by ','. A field that contains ',' or '"' is written wrapped in double quotes,
+ * with embedded quotes doubled ("Tolkien, J.R.R." / "The ""Best"" Book"). Records are one per line;
+ * fields may not contain line breaks. A quote in the middle of an unquoted field is taken literally, so
+ * lines written before fields were escaped still read back.
+ *
+ * Parsing works directly on a CharSequence or a UTF-8 byte[] range and records only the field boundaries
+ * in a reusable {@link Record}; no String[] is built, and a String is only allocated for a field when the
+ * caller asks for it. Malformed input (e.g. an unterminated quote) makes {@code parse} return false and
+ * sets {@link Record#error()} instead of throwing.
+ *
+ * Usage example:
+ *   CsvCodec.Record rec = new CsvCodec.Record();
+ *   if (CsvCodec.parse(line, rec) && rec.fieldCount() >= 3) {
+ *       String author = rec.field(0);
+ *       long serial = rec.intField(2); // CsvCodec.NOT_AN_INT if not a number
+ *   }
+ */
+public final class CsvCodec {
+
+    /** Returned by {@link Record#intField(int)} when the field is not a valid int. */
+    public static final long NOT_AN_INT = Long.MIN_VALUE;
+
+    private CsvCodec() {
+    }
+
+    /**
+     * Field boundaries of one parsed record. Reuse one instance per thread to avoid allocation.
+     */
+    public static final class Record {
+        private CharSequence chars;
+        private byte[] bytes;
+        private int count;
+        private int[] starts = new int[8];
+        private int[] ends = new int[8];
+        private boolean[] quoted = new boolean[8];
+        private String error;
+
+        public int fieldCount() {
+            return count;
+        }
+
+        /** Why the last parse failed, or null if it succeeded. */
+        public String error() {
+            return error;
+        }
+
+        /** Field {@code i} as a String, with quoting removed. */
+        public String field(int i) {
+            checkIndex(i);
+            int from = starts[i];
+            int to = ends[i];
+            if (chars != null) {
+                if (!quoted[i]) return chars.subSequence(from, to).toString();
+                StringBuilder sb = new StringBuilder(to - from);
+                for (int p = from; p < to; p++) {
+                    char c = chars.charAt(p);
+                    sb.append(c);
+                    if (c == '"') p++; // skip the second quote of an escaped pair
+                }
+                return sb.toString();
+            }
+            if (!quoted[i]) return new String(bytes, from, to - from, StandardCharsets.UTF_8);
+            byte[] out = new byte[to - from];
+            int n = 0;
+            for (int p = from; p < to; p++) {
+                out[n++] = bytes[p];
+                if (bytes[p] == '"') p++;
+            }
+            return new String(out, 0, n, StandardCharsets.UTF_8);
+        }
+
+        /** True if field {@code i} is empty. */
+        public boolean isEmpty(int i) {
+            checkIndex(i);
+            return starts[i] == ends[i];
+        }
+
+        /**
+         * Field {@code i} parsed as a decimal int without allocating, ignoring surrounding spaces;
+         * {@link CsvCodec#NOT_AN_INT} if it is not one.
+         */
+        public long intField(int i) {
+            checkIndex(i);
+            int from = starts[i];
+            int to = ends[i];
+            while (from < to && charAt(from) == ' ') from++;
+            while (to > from && charAt(to - 1) == ' ') to--;
+            if (from == to) return NOT_AN_INT;
+            boolean negative = charAt(from) == '-';
+            if (negative && ++from == to) return NOT_AN_INT;
+            long value = 0;
+            for (int p = from; p < to; p++) {
+                int d = charAt(p) - '0';
+                if (d < 0 || d > 9) return NOT_AN_INT;
+                value = value * 10 + d;
+                if (value > Integer.MAX_VALUE + 1L) return NOT_AN_INT;
+            }
+            value = negative ? -value : value;
+            return value > Integer.MAX_VALUE ? NOT_AN_INT : value;
+        }
+
+        /** True if field {@code i} equals {@code s} (compared without allocating for unquoted fields). */
+        public boolean fieldEquals(int i, String s) {
+            checkIndex(i);
+            if (quoted[i] || bytes != null) return field(i).equals(s);
+            int len = ends[i] - starts[i];
+            if (len != s.length()) return false;
+            for (int p = 0; p < len; p++) {
+                if (chars.charAt(starts[i] + p) != s.charAt(p)) return false;
+            }
+            return true;
+        }
+
+        private int charAt(int p) {
+            return chars != null ? chars.charAt(p) : bytes[p];
+        }
+
+        private void checkIndex(int i) {
+            if (i < 0 || i >= count) throw new IndexOutOfBoundsException("field " + i + " of " + count);
+        }
+
+        private void reset(CharSequence chars, byte[] bytes) {
+            this.chars = chars;
+            this.bytes = bytes;
+            this.count = 0;
+            this.error = null;
+        }
+
+        private void add(int start, int end, boolean isQuoted) {
+            if (count == starts.length) {
+                int n = count * 2;
+                starts = Arrays.copyOf(starts, n);
+                ends = Arrays.copyOf(ends, n);
+                quoted = Arrays.copyOf(quoted, n);
+            }
+            starts[count] = start;
+            ends[count] = end;
+            quoted[count] = isQuoted;
+            count++;
+        }
+
+        private boolean fail(String why) {
+            error = why;
+            count = 0;
+            return false;
+        }
+    }
+
+    // -------------------------
+    // Parsing
+    // -------------------------
+
+    /**
+     * Parses one record (a whole line, without its line terminator).
+     */
+    public static boolean parse(CharSequence line, Record rec) {
+        return parse(line, 0, line.length(), rec);
+    }
+
+    /**
+     * Parses the record in {@code line[from, to)}. A trailing '\r' is ignored.
+     */
+    public static boolean parse(CharSequence line, int from, int to, Record rec) {
+        rec.reset(line, null);
+        if (to > from && line.charAt(to - 1) == '\r') to--;
+        int p = from;
+        while (true) {
+            if (p < to && line.charAt(p) == '"') {
+                int start = ++p;
+                while (true) {
+                    if (p >= to) return rec.fail("unterminated quoted field at column " + (start - from));
+                    if (line.charAt(p) == '"') {
+                        if (p + 1 < to && line.charAt(p + 1) == '"') {
+                            p += 2;
+                            continue;
+                        }
+                        break;
+                    }
+                    p++;
+                }
+                rec.add(start, p, true);
+                p++; // closing quote
+                if (p < to && line.charAt(p) != ',') return rec.fail("text after closing quote at column " + (p - from));
+            } else {
+                int start = p;
+                while (p < to && line.charAt(p) != ',') p++;
+                rec.add(start, p, false);
+            }
+            if (p >= to) return true;
+            p++; // separator
+        }
+    }
+
+    /**
+     * Parses the UTF-8 record in {@code data[from, to)}. A trailing '\r' is ignored. ',' and '"' are ASCII,
+     * so they can never appear inside a multi-byte UTF-8 sequence and the bytes can be scanned directly.
+     */
+    public static boolean parse(byte[] data, int from, int to, Record rec) {
+        rec.reset(null, data);
+        if (to > from && data[to - 1] == '\r') to--;
+        int p = from;
+        while (true) {
+            if (p < to && data[p] == '"') {
+                int start = ++p;
+                while (true) {
+                    if (p >= to) return rec.fail("unterminated quoted field at byte " + (start - from));
+                    if (data[p] == '"') {
+                        if (p + 1 < to && data[p + 1] == '"') {
+                            p += 2;
+                            continue;
+                        }
+                        break;
+                    }
+                    p++;
+                }
+                rec.add(start, p, true);
+                p++;
+                if (p < to && data[p] != ',') return rec.fail("text after closing quote at byte " + (p - from));
+            } else {
+                int start = p;
+                while (p < to && data[p] != ',') p++;
+                rec.add(start, p, false);
+            }
+            if (p >= to) return true;
+            p++;
+        }
+    }
+
+    // -------------------------
+    // Formatting
+    // -------------------------
+
+    /**
+     * Appends {@code s} as one field, quoting it if it contains ',' or '"'. Null is written as an empty field.
+     */
+    public static void appendField(Appendable out, String s) throws IOException {
+        if (s == null) return;
+        if (s.indexOf(',') < 0 && s.indexOf('"') < 0) {
+            out.append(s);
+            return;
+        }
+        out.append('"');
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c == '"') out.append('"');
+            out.append(c);
+        }
+        out.append('"');
+    }
+
+    /**
+     * StringBuilder convenience for {@link #appendField(Appendable, String)}.
+     */
+    public static StringBuilder appendField(StringBuilder out, String s) {
+        try {
+            appendField((Appendable) out, s);
+        } catch (IOException e) {
+            throw new AssertionError(e); // StringBuilder never throws
+        }
+        return out;
+    }
+
+    /**
+     * {@code s} as a single field, quoted if needed.
+     */
+    public static String escape(String s) {
+        if (s == null) return "";
+        if (s.indexOf(',') < 0 && s.indexOf('"') < 0) return s;
+        return appendField(new StringBuilder(s.length() + 4), s).toString();
+    }
+}
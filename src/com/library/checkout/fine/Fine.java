@@ -0,0 +1,46 @@
+package com.library.checkout.fine;
+
+import com.library.checkout.Loan;
+
+import java.time.LocalDate;
+
+/**
+ * Fine: the fine accrued by one open loan as of some date. Immutable.
+ */
+public final class Fine {
+    private final Loan loan;
+    private final LocalDate asOf;
+    private final double amount;
+
+    Fine(Loan loan, LocalDate asOf, double amount) {
+        this.loan = loan;
+        this.asOf = asOf;
+        this.amount = amount;
+    }
+
+    public Loan loan() {
+        return loan;
+    }
+
+    public int serial() {
+        return loan.serial();
+    }
+
+    public int userId() {
+        return loan.userId();
+    }
+
+    /** The date the fine was assessed for. */
+    public LocalDate asOf() {
+        return asOf;
+    }
+
+    public double amount() {
+        return amount;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d: user %d, due %s, fine %.2f as of %s", loan.serial(), loan.userId(), loan.dueDate(), amount, asOf);
+    }
+}
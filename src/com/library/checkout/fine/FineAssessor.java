@@ -0,0 +1,63 @@
+package com.library.checkout.fine;
+
+import com.library.checkout.LibrarySnapshot;
+import com.library.checkout.Loan;
+import com.library.checkout.user.User;
+import com.library.checkout.user.UserService;
+
+import java.time.LocalDate;
+import java.util.Objects;
+import java.util.stream.Stream;
+
+/**
+ * FineAssessor: computes the fines accrued on every open loan as of a date, in parallel.
+ *
+ * Works on a LibrarySnapshot, so the loans don't change underneath it and checkouts carry on meanwhile,
+ * or on a stream of overdue loans (Librarian.assessFines streams them stripe by stripe, so it never
+ * makes the stripes copy their tables). Only overdue loans are visited (the due-date indexes find them
+ * without walking the rest), and the work is split across the common fork/join pool. The result is a
+ * lazy, parallel Stream of non-zero fines rather than a list, so a caller can total, filter or write
+ * them out without holding every fine in memory at once.
+ *
+ * Usage example:
+ *   double total = new FineAssessor(policy, users).assess(lib.snapshot(), LocalDate.now())
+ *           .mapToDouble(Fine::amount).sum();
+ */
+public class FineAssessor {
+
+    private final FinePolicy policy;
+    private final UserService users;
+
+    public FineAssessor(FinePolicy policy, UserService users) {
+        this.policy = Objects.requireNonNull(policy);
+        this.users = Objects.requireNonNull(users);
+    }
+
+    /**
+     * Fines owed on the snapshot's open loans as of {@code asOf} (loans owing nothing are left out), in
+     * no particular order.
+     */
+    public Stream<Fine> assess(LibrarySnapshot snapshot, LocalDate asOf) {
+        Objects.requireNonNull(asOf);
+        return assess(snapshot.streamOverdue(asOf), asOf);
+    }
+
+    /**
+     * Fines owed on the given overdue loans as of {@code asOf} (loans owing nothing are left out), in
+     * no particular order. Librarian.assessFines passes its stripes' overdue loans, read lazily.
+     */
+    public Stream<Fine> assess(Stream<Loan> overdue, LocalDate asOf) {
+        Objects.requireNonNull(asOf);
+        return overdue
+                .parallel()
+                .map(loan -> {
+                    User renter = users.getUserById(loan.userId()).orElse(null);
+                    return new Fine(loan, asOf, policy.fine(loan.dueDate(), asOf, renter));
+                })
+                .filter(f -> f.amount() > 0);
+    }
+
+    public FinePolicy policy() {
+        return policy;
+    }
+}
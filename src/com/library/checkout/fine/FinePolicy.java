@@ -0,0 +1,23 @@
+package com.library.checkout.fine;
+
+import com.library.checkout.user.User;
+
+import java.time.LocalDate;
+
+/**
+ * FinePolicy: how much a late loan owes. One policy object drives both Librarian.returnBook (the fine
+ * charged at return) and FineAssessor (fines accrued on every open loan), so the two always agree.
+ *
+ * Implementations must be thread-safe: FineAssessor calls them from many threads at once.
+ *
+ * @see StandardFinePolicy
+ */
+public interface FinePolicy {
+
+    /**
+     * The fine owed as of {@code asOf} for a loan due on {@code dueDate}, rented by {@code renter}
+     * ({@code null} if the renter is no longer a known user). Must be 0 unless {@code asOf} is after
+     * {@code dueDate}.
+     */
+    double fine(LocalDate dueDate, LocalDate asOf, User renter);
+}
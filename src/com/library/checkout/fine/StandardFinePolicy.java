@@ -0,0 +1,101 @@
+package com.library.checkout.fine;
+
+import com.library.checkout.user.User;
+
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * StandardFinePolicy: a per-day rate, with an optional grace period, an optional cap, and different
+ * rates for particular user roles.
+ *
+ * - Grace period: the first {@code graceDays} late days are free; after that only the days past the
+ *   grace period are charged.
+ * - Role rates: a user's roles string (User.roles()) may list several roles separated by ',', ';', '|'
+ *   or whitespace. If any of them has its own rate, the lowest such rate applies; otherwise the default.
+ * - Cap: the fine never exceeds {@code cap} (no cap by default).
+ * Amounts are rounded to the cent.
+ *
+ * Immutable; each {@code with...} method returns a new policy.
+ *
+ * Usage example:
+ *   FinePolicy policy = StandardFinePolicy.perDay(0.50).withGraceDays(2).withCap(20.00).withRoleRate("librarian", 0.0);
+ */
+public final class StandardFinePolicy implements FinePolicy {
+
+    private final double perDay;
+    private final int graceDays;
+    private final double cap;
+    private final Map<String, Double> roleRates;
+
+    private StandardFinePolicy(double perDay, int graceDays, double cap, Map<String, Double> roleRates) {
+        this.perDay = perDay;
+        this.graceDays = graceDays;
+        this.cap = cap;
+        this.roleRates = roleRates;
+    }
+
+    /**
+     * A policy charging {@code rate} per late day, with no grace period, no cap and no role rates.
+     */
+    public static StandardFinePolicy perDay(double rate) {
+        return new StandardFinePolicy(checkRate(rate), 0, Double.POSITIVE_INFINITY, Collections.emptyMap());
+    }
+
+    public StandardFinePolicy withGraceDays(int days) {
+        if (days < 0) throw new IllegalArgumentException("grace days cannot be negative: " + days);
+        return new StandardFinePolicy(perDay, days, cap, roleRates);
+    }
+
+    public StandardFinePolicy withCap(double maxFine) {
+        if (!(maxFine >= 0)) throw new IllegalArgumentException("cap must be >= 0: " + maxFine);
+        return new StandardFinePolicy(perDay, graceDays, maxFine, roleRates);
+    }
+
+    /**
+     * Charges users with role {@code role} (case-insensitive) {@code rate} per day instead of the default.
+     */
+    public StandardFinePolicy withRoleRate(String role, double rate) {
+        if (role == null || role.isBlank()) throw new IllegalArgumentException("role cannot be empty");
+        Map<String, Double> rates = new HashMap<>(roleRates);
+        rates.put(role.trim().toLowerCase(Locale.ROOT), checkRate(rate));
+        return new StandardFinePolicy(perDay, graceDays, cap, Collections.unmodifiableMap(rates));
+    }
+
+    @Override
+    public double fine(LocalDate dueDate, LocalDate asOf, User renter) {
+        long charged = ChronoUnit.DAYS.between(dueDate, asOf) - graceDays;
+        if (charged <= 0) return 0.0;
+        double amount = Math.min(cap, charged * rateFor(renter));
+        return Math.round(amount * 100) / 100.0;
+    }
+
+    /**
+     * The per-day rate that applies to {@code renter}.
+     */
+    public double rateFor(User renter) {
+        if (roleRates.isEmpty() || renter == null || renter.roles() == null) return perDay;
+        double rate = Double.POSITIVE_INFINITY;
+        for (String role : renter.roles().split("[,;|\\s]+")) {
+            Double r = roleRates.get(role.toLowerCase(Locale.ROOT));
+            if (r != null) rate = Math.min(rate, r);
+        }
+        return rate == Double.POSITIVE_INFINITY ? perDay : rate;
+    }
+
+    private static double checkRate(double rate) {
+        if (!(rate >= 0) || Double.isInfinite(rate)) throw new IllegalArgumentException("rate must be >= 0: " + rate);
+        return rate;
+    }
+
+    @Override
+    public String toString() {
+        return "StandardFinePolicy[perDay=" + perDay + ", graceDays=" + graceDays
+                + (cap == Double.POSITIVE_INFINITY ? "" : ", cap=" + cap)
+                + (roleRates.isEmpty() ? "" : ", roleRates=" + roleRates) + "]";
+    }
+}
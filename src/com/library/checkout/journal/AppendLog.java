@@ -0,0 +1,177 @@
+package com.library.checkout.journal;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+/**
+ * AppendLog: a minimal append-only file of framed binary records.
+ *
+ * Each record is written as: length (int), crc32 of payload (int), payload bytes.
+ * The log knows nothing about what the payloads mean; callers encode/decode them.
+ *
+ * Recovery: {@link #replay(RecordHandler)} reads records from the start of the file and stops at the
+ * first frame that is short or fails its checksum (a torn write from a crash). The file is truncated
+ * back to the last good record so later appends never land behind garbage.
+ *
+ * Usage example:
+ *   AppendLog log = new AppendLog(Path.of("books.txt.journal"));
+ *   log.replay(payload -> apply(payload));
+ *   log.append(encode(record));
+ */
+public class AppendLog implements Closeable {
+
+    private static final int HEADER_BYTES = 8; // length + crc
+    private static final int MAX_RECORD_BYTES = 1 << 20; // sanity limit so a torn length can't trigger a huge read
+
+    /**
+     * Callback used by {@link #replay(RecordHandler)}; receives one payload per good record.
+     */
+    public interface RecordHandler {
+        void onRecord(ByteBuffer payload) throws IOException;
+    }
+
+    private final Path path;
+    private final FileChannel channel;
+    private final CRC32 crc = new CRC32();
+
+    // records appended (or replayed) since the log was opened or last reset
+    private long recordCount;
+
+    public AppendLog(Path path) throws IOException {
+        this.path = path;
+        this.channel = FileChannel.open(path,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    }
+
+    /**
+     * Replays every intact record in order and positions the log for appending after the last one.
+     * Returns the number of records replayed.
+     */
+    public synchronized long replay(RecordHandler handler) throws IOException {
+        long size = channel.size();
+        long pos = 0;
+        long replayed = 0;
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+
+        while (pos + HEADER_BYTES <= size) {
+            header.clear();
+            readFully(header, pos);
+            header.flip();
+            int length = header.getInt();
+            int expectedCrc = header.getInt();
+            if (length < 0 || length > MAX_RECORD_BYTES || pos + HEADER_BYTES + length > size) break; // torn tail
+
+            ByteBuffer payload = ByteBuffer.allocate(length);
+            readFully(payload, pos + HEADER_BYTES);
+            payload.flip();
+            if (checksum(payload) != expectedCrc) break; // torn or corrupted record
+
+            handler.onRecord(payload.asReadOnlyBuffer());
+            pos += HEADER_BYTES + length;
+            replayed++;
+        }
+
+        if (pos < size) {
+            // drop the partial record so new appends start on a clean frame boundary
+            channel.truncate(pos);
+            channel.force(true);
+        }
+        channel.position(pos);
+        recordCount = replayed;
+        return replayed;
+    }
+
+    /**
+     * Appends one record. The write goes straight to the file (no user-space buffering), so it
+     * survives a process crash; call {@link #sync()} to also force it to the storage device.
+     */
+    public synchronized void append(byte[] payload) throws IOException {
+        ByteBuffer frame = ByteBuffer.allocate(HEADER_BYTES + payload.length);
+        frame.putInt(payload.length);
+        frame.putInt(checksum(ByteBuffer.wrap(payload)));
+        frame.put(payload);
+        frame.flip();
+        while (frame.hasRemaining()) {
+            channel.write(frame);
+        }
+        recordCount++;
+    }
+
+    /**
+     * Forces appended records to the storage device. Not synchronized: appends carry on while the force
+     * runs, and a record appended during it may or may not be covered, so a caller that needs to know
+     * reads its own count of appended records before calling this.
+     */
+    public void sync() throws IOException {
+        channel.force(false);
+    }
+
+    /**
+     * Discards every record, typically right after the caller has written a snapshot that covers them.
+     */
+    public synchronized void reset() throws IOException {
+        channel.truncate(0);
+        channel.position(0);
+        channel.force(true);
+        recordCount = 0;
+    }
+
+    /**
+     * Appends every record to the log file at {@code target} (creating it if needed), forces that file,
+     * then resets this log. This rotates the records out of the way while the caller writes the snapshot
+     * that covers them, so new appends can carry on meanwhile. If the copy fails, the target is cut back
+     * to its old length and this log is left as it was.
+     */
+    public synchronized void drainTo(Path target) throws IOException {
+        try (FileChannel out = FileChannel.open(target,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            long base = out.size();
+            long size = channel.size();
+            try {
+                long pos = 0;
+                while (pos < size) {
+                    pos += channel.transferTo(pos, size - pos, out.position(base + pos));
+                }
+                out.force(true);
+            } catch (IOException e) {
+                out.truncate(base);
+                throw e;
+            }
+        }
+        reset();
+    }
+
+    /**
+     * Number of records in the log since it was opened or last reset.
+     */
+    public synchronized long recordCount() {
+        return recordCount;
+    }
+
+    public Path path() {
+        return path;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        channel.close();
+    }
+
+    private int checksum(ByteBuffer data) {
+        crc.reset();
+        crc.update(data.duplicate());
+        return (int) crc.getValue();
+    }
+
+    private void readFully(ByteBuffer dst, long position) throws IOException {
+        while (dst.hasRemaining()) {
+            int n = channel.read(dst, position + dst.position());
+            if (n < 0) throw new IOException("unexpected end of " + path);
+        }
+    }
+}
@@ -4,9 +4,8 @@ package com.library.checkout.user;
 // Cameron Peek
 // 12/9/2025
 
-import com.library.checkout.book.Book;
+import com.library.checkout.csv.CsvCodec;
 
-import java.util.ArrayList;
 import java.util.Objects;
 
 /**
@@ -21,8 +20,6 @@ public final class User {
     private final String password;
     private final String roles;
 
-    private final ArrayList<Integer> checkedOutBooks;
-
     /**
      * @param id       ID of user (must be unique)
      * @param name     Username of user
@@ -35,15 +32,16 @@ public final class User {
         this.name = name;
         this.password = password;
         this.roles = roles;
-        checkedOutBooks = new ArrayList<>();
     }
 
     @Override
     public String toString() {
-        StringBuilder user = new StringBuilder(id + "," + name + "," + password + "," + roles + ",");
-        for(Integer i : checkedOutBooks){
-            user.append(i).append(",");
-        }
+        // same line format UserService reads back; fields with commas in them get quoted
+        StringBuilder user = new StringBuilder().append(id).append(",");
+        CsvCodec.appendField(user, name).append(",");
+        CsvCodec.appendField(user, password).append(",");
+        CsvCodec.appendField(user, roles);
+        // which books a user has out is the Librarian's business (Librarian.listLoansForUser)
 
         return user.toString();
     }
@@ -64,17 +62,6 @@ public final class User {
         return roles;
     }
 
-    public ArrayList<Integer> checkedOutBooks(){
-        return checkedOutBooks;
-    }
-
-    public void addBook(int bookId){
-        checkedOutBooks.add(bookId);
-    }
-    public void removeBook(int bookId){
-        checkedOutBooks.remove((Object)bookId); // have to cast this to Object because otherwise remove() will see it as an index.
-    }
-
     @Override
     public boolean equals(Object obj) {
         if (obj == this) return true;
@@ -0,0 +1,203 @@
+package com.library.checkout.user;
+
+import com.library.checkout.journal.AppendLog;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * UserJournal: typed records for UserService changes on top of an {@link AppendLog}.
+ *
+ * Record layouts (first byte is the record type; strings are a presence byte then writeUTF):
+ *   CREATE id:int, name:str, password:str, roles:str
+ *   UPDATE id:int, name:str, password:str, roles:str
+ *   DELETE id:int
+ *
+ * Replaying is idempotent (CREATE/UPDATE overwrite, DELETE removes), so replaying records that a
+ * snapshot already covers is harmless as long as their order is kept.
+ *
+ * Durability is batched (group commit): {@link #append(byte, User)} writes the record to the file and
+ * returns its sequence number, and {@link #awaitDurable(long)} returns once an fsync has covered it.
+ * One waiter at a time runs the fsync, holding no lock, so appends carry on meanwhile; the others wait
+ * on syncLock until the durable sequence number reaches theirs, so N concurrent changes cost one or two
+ * forces, not N.
+ *
+ * Compaction works like LibraryJournal's: {@link #rotate()} moves the records to a side file
+ * (path + ".prev") while UserService writes a snapshot, and {@link #discardRotated()} deletes it once
+ * the snapshot is safe. On startup the side file, if still there, is replayed before the live journal.
+ */
+class UserJournal implements Closeable {
+
+    static final byte CREATE = 'C';
+    static final byte UPDATE = 'U';
+    static final byte DELETE = 'D';
+
+    /**
+     * Receives replayed records in journal order.
+     */
+    interface Listener {
+        void onPut(User user);
+        void onDelete(int id);
+    }
+
+    private final AppendLog log;
+    private final Path rotatedPath;
+
+    // sequence numbers: records appended so far, and records an fsync has covered
+    private long appended; // guarded by this
+    private long durable;  // guarded by syncLock
+    private boolean syncing; // an fsync is running; guarded by syncLock
+    private final Object syncLock = new Object();
+
+    UserJournal(Path path) throws IOException {
+        this.log = new AppendLog(path);
+        this.rotatedPath = Paths.get(path + ".prev");
+    }
+
+    /**
+     * Replays the rotated records left by an unfinished compaction (if any), then the live journal.
+     * A torn last record (from a crash mid-append) is dropped. Returns the number of records replayed.
+     */
+    long replay(Listener listener) throws IOException {
+        long n = 0;
+        if (Files.exists(rotatedPath)) {
+            try (AppendLog rotated = new AppendLog(rotatedPath)) {
+                n += replay(rotated, listener);
+            }
+        }
+        return n + replay(log, listener);
+    }
+
+    private static long replay(AppendLog log, Listener listener) throws IOException {
+        return log.replay(payload -> {
+            byte[] raw = new byte[payload.remaining()];
+            payload.get(raw);
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(raw));
+            byte type = in.readByte();
+            int id = in.readInt();
+            switch (type) {
+                case CREATE:
+                case UPDATE:
+                    listener.onPut(new User(id, readString(in), readString(in), readString(in)));
+                    break;
+                case DELETE:
+                    listener.onDelete(id);
+                    break;
+                default:
+                    throw new IOException("unknown user journal record type " + type + " in " + log.path());
+            }
+        });
+    }
+
+    /**
+     * Writes a CREATE or UPDATE record; returns its sequence number for {@link #awaitDurable(long)}.
+     */
+    long append(byte type, User user) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeByte(type);
+        out.writeInt(user.id());
+        writeString(out, user.name());
+        writeString(out, user.password());
+        writeString(out, user.roles());
+        return append(bytes.toByteArray());
+    }
+
+    /**
+     * Writes a DELETE record; returns its sequence number.
+     */
+    long appendDelete(int id) throws IOException {
+        return append(new byte[]{DELETE, (byte) (id >>> 24), (byte) (id >>> 16), (byte) (id >>> 8), (byte) id});
+    }
+
+    private synchronized long append(byte[] record) throws IOException {
+        log.append(record);
+        return ++appended;
+    }
+
+    /**
+     * Returns once record {@code seq} is on the storage device. If another writer's fsync already
+     * covered it, this returns without any I/O; if one is running, this waits for it and then runs the
+     * next one only if that one didn't cover {@code seq}.
+     */
+    void awaitDurable(long seq) throws IOException {
+        synchronized (syncLock) {
+            while (syncing && durable < seq) {
+                try {
+                    syncLock.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("interrupted waiting for " + log.path() + " to sync");
+                }
+            }
+            if (durable >= seq) return;
+            syncing = true;
+        }
+        // every record counted here was written before the force starts, so the force covers it
+        long upTo;
+        synchronized (this) {
+            upTo = appended;
+        }
+        boolean synced = false;
+        try {
+            log.sync();
+            synced = true;
+        } finally {
+            // on failure a waiter wakes, finds its record not durable and runs the next fsync itself
+            synchronized (syncLock) {
+                if (synced) durable = Math.max(durable, upTo);
+                syncing = false;
+                syncLock.notifyAll();
+            }
+        }
+    }
+
+    long size() {
+        return log.recordCount();
+    }
+
+    /**
+     * Moves every record to the side file (appending, if an earlier compaction left one behind). The
+     * side file is forced, so every record appended so far is durable afterwards.
+     */
+    void rotate() throws IOException {
+        synchronized (syncLock) {
+            long upTo;
+            synchronized (this) {
+                upTo = appended;
+                log.drainTo(rotatedPath);
+            }
+            durable = Math.max(durable, upTo);
+            syncLock.notifyAll();
+        }
+    }
+
+    /**
+     * Deletes the side file; call once a snapshot covering the rotated records is on disk.
+     */
+    void discardRotated() throws IOException {
+        Files.deleteIfExists(rotatedPath);
+    }
+
+    @Override
+    public void close() throws IOException {
+        log.close();
+    }
+
+    private static void writeString(DataOutputStream out, String s) throws IOException {
+        out.writeBoolean(s != null);
+        if (s != null) out.writeUTF(s);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+}
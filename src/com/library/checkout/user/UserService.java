@@ -1,12 +1,23 @@
 package com.library.checkout.user;
 
-import java.io.FileNotFoundException;
-import java.io.FileReader;
-import java.io.FileWriter;
+import com.library.checkout.csv.CsvCodec;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
 // UserService.java
 // Cameron Peek
@@ -14,18 +25,139 @@ import java.util.*;
 
 /**
  * Interfaces with user database to serialize users and provide a CRUD API for them
+ *
+ * Safe for concurrent use. Lookups (getUserById, getUserByUsername, getAllUsers) never lock: both maps
+ * are ConcurrentHashMaps. Usernames are claimed with an atomic putIfAbsent, so two registrations can't
+ * both get the same name, and ids come from an atomic counter, so they never collide even after gaps.
+ * Writes to the users file are serialized by one lock.
+ *
+ * Ids are handed out in blocks of ID_BLOCK: before the first id of a block is used, the end of the block
+ * is written to filePath + ".ids". After a restart ids continue past the last reserved block, so an id
+ * is never reused, even for a user that has since been deleted. Ids stop below Integer.MAX_VALUE; once
+ * they run out, addUser throws IllegalStateException rather than wrapping around to ids already used.
+ *
+ * Persistence: the users file at filePath is a snapshot; every create, update and delete after it is
+ * appended to filePath + ".journal" (see UserJournal) instead of rewriting the file, so a change costs
+ * one small append however many users there are. Appends are fsynced in batches: concurrent writers
+ * share one fsync, and each call returns once its own record is durable. Once the journal holds
+ * COMPACT_THRESHOLD records it is folded into a fresh snapshot. On startup the snapshot is loaded and the
+ * journal replayed on top; a record torn by a crash mid-append is dropped. A missing users file just
+ * means there are no users yet.
+ *
+ * Startup: the constructors load everything before returning. {@link #startAsync} returns at once and
+ * loads in the background instead; lookups by id or username answer for the users loaded so far, and
+ * everything else waits for {@link #ready()}.
  * @author Cameron Peek
  */
-public class UserService {
+public class UserService implements Closeable {
+
+    // ids reserved on disk per write of the .ids file
+    private static final int ID_BLOCK = 1024;
+
+    // journal records between snapshots
+    static final int COMPACT_THRESHOLD = 10_000;
 
     private final String filePath;
+    private final Path idsPath;
+    private UserJournal journal; // opened by load(), so only used once ready is complete
+
+    // completed once the users file and journal are loaded (right away unless started with startAsync)
+    private final CompletableFuture<Void> ready = new CompletableFuture<>();
+
+    // using a ConcurrentHashMap to organize users by id (lock-free reads)
+    private final ConcurrentHashMap<Integer, User> users = new ConcurrentHashMap<>();
+
+    // secondary index: username -> id, so looking a user up by name doesn't scan every user.
+    // keys go through usernameKey(), which lower-cases them if usernames are case-insensitive
+    private final ConcurrentHashMap<String, Integer> idsByUsername = new ConcurrentHashMap<>();
+
+    private final boolean caseInsensitiveUsernames;
+
+    // next id to hand out; ids below idLimit are covered by the block reserved in the .ids file
+    private final AtomicInteger nextId = new AtomicInteger();
+    private volatile int idLimit;
+    private final Object idLock = new Object();
 
-    // using HashMap to organize users by id
-    private final HashMap<Integer, User> users = new HashMap<>();
+    // serializes changes (the map updates and the journal append that goes with them)
+    private final Object writeLock = new Object();
+
+    // one compaction at a time
+    private final Object compactGuard = new Object();
 
     public UserService(String filePath){
+        this(filePath, false);
+    }
+
+    /**
+     * @param filePath Path of the users file
+     * @param caseInsensitiveUsernames If true, usernames that differ only in case ("Cameron", "cameron")
+     *                                 are the same username, for both lookups and uniqueness
+     */
+    public UserService(String filePath, boolean caseInsensitiveUsernames){
+        this(filePath, caseInsensitiveUsernames, false);
+    }
+
+    /**
+     * Starts a UserService that loads its file in the background, so the caller doesn't wait for it.
+     * getUserById and getUserByUsername work right away for whoever's been loaded so far; every other
+     * call waits until loading is done (see {@link #ready()}), and throws IllegalStateException if it failed.
+     * @param filePath Path of the users file
+     * @param caseInsensitiveUsernames See {@link #UserService(String, boolean)}
+     */
+    public static UserService startAsync(String filePath, boolean caseInsensitiveUsernames){
+        return new UserService(filePath, caseInsensitiveUsernames, true);
+    }
+
+    private UserService(String filePath, boolean caseInsensitiveUsernames, boolean async){
         this.filePath = filePath;
-        loadUsers();
+        this.idsPath = Paths.get(filePath + ".ids");
+        this.caseInsensitiveUsernames = caseInsensitiveUsernames;
+        if(!async){
+            load();
+            return;
+        }
+        Thread loader = new Thread(() -> {
+            try{
+                load();
+            } catch (RuntimeException | Error e){ // already handed to ready, but say so too
+                System.err.println("Failed to load users from " + filePath + ": " + e);
+            }
+        }, "user-service-load " + filePath);
+        loader.setDaemon(true); // don't keep the program alive just to finish loading
+        loader.start();
+    }
+
+    // loads the snapshot, replays the journal and picks up the id reservation, then completes ready
+    // (or fails it and rethrows)
+    private void load(){
+        try{
+            loadUsers();
+            this.journal = openJournal(filePath + ".journal");
+            loadIdLimit();
+        } catch (RuntimeException | Error e){
+            ready.completeExceptionally(e);
+            throw e;
+        }
+        ready.complete(null);
+    }
+
+    /**
+     * Completes once every user is loaded and the service can take changes. Already complete unless
+     * this service was started with {@link #startAsync}.
+     * @return A future that completes when loading is done (exceptionally if loading failed)
+     */
+    public CompletableFuture<Void> ready(){
+        return ready.copy();
+    }
+
+    // blocks until loading is done; changes and full listings need every user loaded
+    private void awaitReady(){
+        if(ready.isDone() && !ready.isCompletedExceptionally()) return; // the usual case
+        try{
+            ready.join();
+        } catch (CompletionException e){
+            throw new IllegalStateException("Failed to load users from " + filePath, e.getCause());
+        }
     }
 
     // CRUD operations
@@ -35,26 +167,102 @@ public class UserService {
      * @param username Username of the new user
      * @param password Password of the new user
      * @param role Role of the new user
+     * @throws IllegalArgumentException if the username is already taken
+     * @throws IllegalStateException if every user id has been used
      */
     public void addUser(String username, String password, String role){
-        // when creating new users, using the hashmap size as the id SHOULD prevent collisions
-        // I guarantee that will break at some point tho.
+        String key = usernameKey(Objects.requireNonNull(username, "username"));
+        awaitReady(); // the name might belong to someone who isn't loaded yet
+        if(idsByUsername.containsKey(key)){ // usernames are unique (cheap check before using up an id)
+            throw new IllegalArgumentException("Username already taken: " + username);
+        }
+
+        // ids come from a counter that only goes up (and survives restarts), so they never collide;
+        // an id given up by a failed registration just leaves a gap
+        int id = allocateId();
+        if(idsByUsername.putIfAbsent(key, id) != null){ // someone registered the name in the meantime
+            throw new IllegalArgumentException("Username already taken: " + username);
+        }
 
-        User newUser = new User(users.size(), username, password, role);
-        users.put(newUser.id(), newUser);
-        appendUser(newUser);
+        User newUser = new User(id, username, password, role);
+        long seq;
+        synchronized(writeLock){
+            users.put(id, newUser);
+            try{
+                seq = journal.append(UserJournal.CREATE, newUser);
+            } catch (IOException e){ // not saved, so don't keep it
+                users.remove(id);
+                idsByUsername.remove(key, id);
+                throw new UncheckedIOException("Failed to save user " + username, e);
+            }
+        }
+        awaitDurable(seq);
     }
 
     /**
      * Updates and serializes a user
      * @param id ID of the user to be updated
      * @param newUser The new User object containing the updated user info
+     * @throws IllegalArgumentException if the new username belongs to a different user, or id is
+     *         Integer.MAX_VALUE (the one id that can't be reserved)
      */
     public void updateUserById(int id, User newUser){
-        // Java records can't be changed after they're created, so we just nuke the old user
-        // and replace them with a new one (rip old user :c)
-        users.put(id, newUser);
-        saveUsers();
+        String key = usernameKey(Objects.requireNonNull(newUser.name(), "username"));
+        if(id == Integer.MAX_VALUE){ // nextId would have to go past it, and there's nowhere to go
+            throw new IllegalArgumentException("User id out of range: " + id);
+        }
+        awaitReady();
+        long seq;
+        synchronized(writeLock){
+            Integer owner = idsByUsername.putIfAbsent(key, id); // claims the name if it's free
+            if(owner != null && owner != id){ // renaming onto someone else's username
+                throw new IllegalArgumentException("Username already taken: " + newUser.name());
+            }
+
+            // Java records can't be changed after they're created, so we just nuke the old user
+            // and replace them with a new one (rip old user :c)
+            nextId.accumulateAndGet(id + 1, Math::max); // an id set from outside must never be handed out
+            reserveIdsThrough(id);
+            try{
+                seq = journal.append(UserJournal.UPDATE, newUser);
+            } catch (IOException e){ // not saved, so leave everything as it was
+                User current = users.get(id);
+                if(current == null || current.name() == null || !usernameKey(current.name()).equals(key)){
+                    idsByUsername.remove(key, id); // give back the name we just claimed
+                }
+                throw new UncheckedIOException("Failed to save user " + id, e);
+            }
+            User old = users.put(id, newUser);
+            if(old != null && old.name() != null && !usernameKey(old.name()).equals(key)){
+                idsByUsername.remove(usernameKey(old.name()), id);
+            }
+        }
+        awaitDurable(seq);
+    }
+
+    /**
+     * Deletes a user. Their id is never handed out again; their username becomes free.
+     * @param id ID of the user to be deleted
+     * @return true if the user existed
+     */
+    public boolean deleteUserById(int id){
+        awaitReady();
+        long seq;
+        synchronized(writeLock){
+            User old = users.get(id);
+            if(old == null) return false;
+            try{
+                seq = journal.appendDelete(id);
+            } catch (IOException e){
+                throw new UncheckedIOException("Failed to delete user " + id, e);
+            }
+            users.remove(id);
+            if(old.name() != null){
+                idsByUsername.remove(usernameKey(old.name()), id);
+            }
+        }
+        awaitDurable(seq);
+        return true;
     }
 
     /**
@@ -63,26 +271,26 @@ public class UserService {
      * @return An {@code Optional<User>} containing the User if it exists.
      */
     public Optional<User> getUserById(int id){
-        if(users.containsKey(id)){
-            return Optional.of(users.get(id));
-        } else {
-            return Optional.empty();
-        }
+        return Optional.ofNullable(users.get(id)); // one lock-free map read
     }
 
     /**
-     * Gets user by {@code username}
+     * Gets user by {@code username} (ignoring case if this service was created with case-insensitive
+     * usernames). Constant time: answered from the username index, not by scanning users.
      * @param username Username of the user to be found
      * @return An {@code Optional<User>} containing the User if it exists
      */
     public Optional<User> getUserByUsername(String username){
-        for(Map.Entry<Integer, User> entry : users.entrySet()){ // iterate through all hashmap entries
-            User u = entry.getValue(); // pull User object from Entry
-            if(u.name().equals(username)){ // if user exists
-                return Optional.of(u);     // return them
-            }
-        }
-        return Optional.empty(); // otherwise return nothing
+        if(username == null) return Optional.empty();
+        Integer id = idsByUsername.get(usernameKey(username));
+        return id == null ? Optional.empty() : Optional.ofNullable(users.get(id));
+    }
+
+    /**
+     * @return true if usernames are matched (and kept unique) ignoring case
+     */
+    public boolean caseInsensitiveUsernames(){
+        return caseInsensitiveUsernames;
     }
 
     /**
@@ -90,6 +298,7 @@ public class UserService {
      * @return An {@code ArrayList<User>} containing all users
      */
     public ArrayList<User> getAllUsers(){
+        awaitReady(); // "all" means all of them, not just the ones loaded so far
         ArrayList<User> userArrayList = new ArrayList<>();
         for(Map.Entry<Integer, User> entry: users.entrySet()){ // dump all users into an arraylist
             User user = entry.getValue();
@@ -99,65 +308,234 @@ public class UserService {
     }
 
     private void loadUsers(){
-        FileReader fr;
-        try{
-            fr = new FileReader(filePath); // open file
-        } catch (FileNotFoundException e) { // if the file doesn't exist,
-            throw new RuntimeException(e); // freak out
+        if(!Files.exists(Paths.get(filePath))){ // no file yet means no users yet; the first compaction writes it
+            return;
         }
 
         try{
             List<String> lines = Files.readAllLines(Paths.get(filePath));
+            CsvCodec.Record rec = new CsvCodec.Record(); // reused for every line
             for(String line : lines){
-                String[] userData = line.split(","); // split the line by commas
+                if(line.isBlank()) continue;
+                // id,username,password,roles (quoted if a field has a comma in it). Files from before loans
+                // moved to the Librarian may list book ids after roles; the Librarian's loans are the
+                // real record, so those are ignored
+                if(!CsvCodec.parse(line, rec) || rec.fieldCount() < 4 || rec.intField(0) == CsvCodec.NOT_AN_INT){
+                    System.err.println("Skipping malformed user line in " + filePath + ": " + line);
+                    continue;
+                }
 
-                int id = Integer.parseInt(userData[0]); // parameters for our new user
-                String username = userData[1];
-                String password = userData[2];
-                String roles = userData[3];
+                int id = (int) rec.intField(0); // parameters for our new user
+                String username = rec.field(1);
+                String password = rec.field(2);
+                String roles = rec.field(3);
 
                 User newUser = new User(id, username, password, roles);
-                for(int i = 4; i< userData.length; i++){
-                    int bookId = Integer.parseInt(userData[i]);
-                    newUser.addBook(bookId);
-                }
 
                 if(users.containsKey(id)){ // if there's already a user with this id loaded,
                     throw new RuntimeException("user id collision"); // freak out
                 } else{
                     users.put(id, newUser);
+                    indexUsername(newUser);
                 }
             }
-
-            fr.close(); // close the file when we're done
         } catch (IOException e) {
             throw new RuntimeException(e); // freak out if something goes wrong
         }
     }
 
-    private void saveUsers(){
+    // files written before usernames were unique can repeat one; the first user with it keeps it
+    private void indexUsername(User user){
+        if(user.name() == null) return;
+        Integer first = idsByUsername.putIfAbsent(usernameKey(user.name()), user.id());
+        if(first != null){
+            System.err.println("Duplicate username '" + user.name() + "' in " + filePath + " (ids " + first
+                    + " and " + user.id() + "); lookups by name find id " + first);
+        }
+    }
+
+    // -------------------------
+    // Id allocation
+    // -------------------------
+
+    private int allocateId(){
+        while(true){
+            int id = nextId.get();
+            if(id >= idLimit){ // block used up: reserve the next one on disk first
+                reserveIdsThrough(id);
+                continue;
+            }
+            if(nextId.compareAndSet(id, id + 1)){
+                return id;
+            }
+        }
+    }
+
+    // makes sure id is inside a block reserved on disk
+    private void reserveIdsThrough(int id){
+        synchronized(idLock){
+            if(id < idLimit) return;
+            int limit;
+            try{
+                limit = Math.addExact(id, ID_BLOCK);
+            } catch (ArithmeticException e){ // near the top of the int range the last block is a short one
+                if(id == Integer.MAX_VALUE){
+                    throw new IllegalStateException("Out of user ids: every id below " + Integer.MAX_VALUE
+                            + " has been handed out or reserved in " + idsPath);
+                }
+                limit = Integer.MAX_VALUE;
+            }
+            writeIdLimit(limit);
+            idLimit = limit;
+        }
+    }
+
+    // continue after the last reserved block and after every loaded id, whichever is higher
+    private void loadIdLimit(){
+        int maxLoaded = -1;
+        for(int id : users.keySet()){
+            maxLoaded = Math.max(maxLoaded, id);
+        }
+        int reserved = 0;
+        if(Files.exists(idsPath)){
+            try{
+                reserved = Integer.parseInt(Files.readString(idsPath, StandardCharsets.UTF_8).trim());
+            } catch (IOException | NumberFormatException e){
+                System.err.println("Unreadable id reservation file " + idsPath + ", continuing after the highest loaded id: " + e.getMessage());
+            }
+        }
+        // a loaded Integer.MAX_VALUE (only possible by editing the file) leaves no ids, rather than wrapping
+        nextId.set(Math.max(reserved, maxLoaded == Integer.MAX_VALUE ? maxLoaded : maxLoaded + 1));
+        idLimit = nextId.get(); // nothing reserved yet in this run
+    }
+
+    // written to a temp file and renamed over, so a crash leaves either the old or the new limit
+    private void writeIdLimit(int limit){
+        Path tmp = Paths.get(idsPath + ".tmp");
         try{
-            FileWriter fw = new FileWriter(filePath);
+            Files.writeString(tmp, Integer.toString(limit), StandardCharsets.UTF_8);
+            try{
+                Files.move(tmp, idsPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (IOException e){
+                Files.move(tmp, idsPath, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException e){
+            throw new UncheckedIOException("Failed to reserve user ids in " + idsPath, e);
+        }
+    }
 
-            for(Map.Entry<Integer, User> entry : users.entrySet()){ // iterate through users
-                User user = entry.getValue();
-                fw.write(user.toString()+"\n"); // write user info to file
+    private String usernameKey(String username){
+        return caseInsensitiveUsernames ? username.toLowerCase(Locale.ROOT) : username;
+    }
+
+    // -------------------------
+    // Journal and snapshots
+    // -------------------------
+
+    // waits (outside writeLock, so other writers can join the same fsync) for a record to be durable,
+    // then compacts if the journal has grown enough
+    private void awaitDurable(long seq){
+        try{
+            journal.awaitDurable(seq);
+        } catch (IOException e){
+            throw new UncheckedIOException("Failed to sync user journal for " + filePath, e);
+        }
+        if(journal.size() >= COMPACT_THRESHOLD){
+            synchronized(compactGuard){
+                // another thread may have compacted while we waited
+                if(journal.size() >= COMPACT_THRESHOLD) compact();
             }
+        }
+    }
 
-            fw.close(); // close file
-        } catch (IOException e) {
-            throw new RuntimeException(e);
+    /**
+     * Folds the journal into a fresh users file snapshot. Writers are only held up while the journal is
+     * rotated aside and the user list copied, not while the snapshot is written.
+     */
+    public void compact(){
+        awaitReady();
+        synchronized(compactGuard){
+            List<User> snapshot;
+            try{
+                synchronized(writeLock){
+                    snapshot = new ArrayList<>(users.values());
+                    journal.rotate();
+                }
+                writeSnapshot(snapshot);
+                journal.discardRotated();
+            } catch (IOException e){
+                // nothing is lost: the records are still in the journal or its rotated side file, both
+                // of which are replayed on startup; the next compaction tries again
+                System.err.println("Failed to compact user journal for " + filePath + ": " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Compacts and closes the journal.
+     */
+    @Override
+    public void close() throws IOException {
+        try{
+            ready.join(); // let a background load finish first
+        } catch (CompletionException e){ // it failed, so just close the journal if it got that far
+            if(journal != null) journal.close();
+            return;
+        }
+        synchronized(compactGuard){
+            compact();
+            synchronized(writeLock){
+                journal.close();
+            }
         }
     }
 
-    private void appendUser(User user){
+    // replays the changes made since the snapshot on top of it
+    private UserJournal openJournal(String journalPath){
         try{
-            FileWriter fw = new FileWriter(filePath, true);
-            fw.write(user.toString());
+            UserJournal j = new UserJournal(Paths.get(journalPath));
+            j.replay(new UserJournal.Listener() {
+                @Override
+                public void onPut(User user) {
+                    User old = users.put(user.id(), user);
+                    if(old != null && old.name() != null){
+                        idsByUsername.remove(usernameKey(old.name()), old.id());
+                    }
+                    indexUsername(user);
+                }
 
-            fw.close();
-        } catch (IOException e) {
-            throw new RuntimeException(e);
+                @Override
+                public void onDelete(int id) {
+                    User old = users.remove(id);
+                    if(old != null && old.name() != null){
+                        idsByUsername.remove(usernameKey(old.name()), id);
+                    }
+                }
+            });
+            return j;
+        } catch (IOException e){
+            throw new UncheckedIOException("Failed to open user journal " + journalPath, e);
+        }
+    }
+
+    // one user per line (each ending in a newline), written to a temp file, forced, and renamed over the
+    // users file, so a crash leaves either the old snapshot or the new one
+    private void writeSnapshot(List<User> snapshot) throws IOException {
+        Path target = Paths.get(filePath);
+        Path tmp = Paths.get(filePath + ".tmp");
+        try(FileOutputStream fos = new FileOutputStream(tmp.toFile());
+            BufferedWriter bw = new BufferedWriter(new OutputStreamWriter(fos, StandardCharsets.UTF_8))){
+            for(User user : snapshot){
+                bw.write(user.toString());
+                bw.newLine();
+            }
+            bw.flush();
+            fos.getFD().sync();
+        }
+        try{
+            Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e){
+            Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING);
         }
     }
 
@@ -0,0 +1,51 @@
+package com.library.checkout.util;
+
+/**
+ * HeapSizes: rough heap sizes of common objects, for the memory footprint reports.
+ *
+ * Assumes a 64-bit JVM with compressed references and compact strings (the defaults below 32 GB of
+ * heap): 12-byte object headers, 16-byte array headers, 4-byte references, 8-byte alignment. The
+ * numbers are estimates for watching trends, not exact measurements.
+ */
+public final class HeapSizes {
+
+    public static final int OBJECT_HEADER = 12;
+    public static final int ARRAY_HEADER = 16;
+    public static final int REFERENCE = 4;
+
+    private HeapSizes() {
+    }
+
+    /** {@code bytes} rounded up to the 8-byte object alignment. */
+    public static long align(long bytes) {
+        return (bytes + 7) & ~7L;
+    }
+
+    /** An object with the given bytes of fields. */
+    public static long object(long fieldBytes) {
+        return align(OBJECT_HEADER + fieldBytes);
+    }
+
+    /** A String and its backing array (one byte per char if every char is Latin-1, else two); 0 for null. */
+    public static long string(String s) {
+        if (s == null) return 0;
+        boolean latin1 = true;
+        for (int i = 0; i < s.length() && latin1; i++) {
+            latin1 = s.charAt(i) < 256;
+        }
+        return object(4 + 4 + 1 + 1 + REFERENCE) + align(ARRAY_HEADER + (long) s.length() * (latin1 ? 1 : 2));
+    }
+
+    public static long intArray(int length) {
+        return align(ARRAY_HEADER + 4L * length);
+    }
+
+    public static long referenceArray(int length) {
+        return align(ARRAY_HEADER + (long) REFERENCE * length);
+    }
+
+    /** One HashMap entry (node plus its share of the table), excluding the key and value objects. */
+    public static long hashMapEntry() {
+        return object(4 + 3 * REFERENCE) + 2L * REFERENCE; // node; table at ~50% occupancy
+    }
+}
@@ -0,0 +1,174 @@
+package com.library.checkout.util;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * IntHashSet: a set of primitive ints using open addressing (linear probing) in a single int[].
+ *
+ * No boxing and no per-entry objects: each member costs 4 bytes divided by the load factor. Removal
+ * uses backward-shift deletion, so there are no tombstones and lookups never slow down after churn.
+ * The value 0 marks an empty slot; membership of 0 itself is tracked in a separate flag.
+ *
+ * Not thread-safe.
+ */
+public final class IntHashSet {
+
+    private static final float LOAD_FACTOR = 0.6f;
+
+    private int[] keys;
+    private int mask;
+    private int size; // members stored in keys[] (excludes 0)
+    private boolean hasZero;
+    private int resizeAt;
+
+    public IntHashSet() {
+        this(8);
+    }
+
+    public IntHashSet(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(4, (int) (expectedSize / LOAD_FACTOR) + 1) - 1) << 1;
+        allocate(capacity);
+    }
+
+    /** Returns true if {@code value} was not already present. */
+    public boolean add(int value) {
+        if (value == 0) {
+            if (hasZero) return false;
+            hasZero = true;
+            return true;
+        }
+        int i = slot(value);
+        while (keys[i] != 0) {
+            if (keys[i] == value) return false;
+            i = (i + 1) & mask;
+        }
+        keys[i] = value;
+        if (++size >= resizeAt) rehash(keys.length << 1);
+        return true;
+    }
+
+    /** Returns true if {@code value} was present. */
+    public boolean remove(int value) {
+        if (value == 0) {
+            boolean had = hasZero;
+            hasZero = false;
+            return had;
+        }
+        int i = slot(value);
+        while (keys[i] != 0) {
+            if (keys[i] == value) {
+                shiftBack(i);
+                size--;
+                return true;
+            }
+            i = (i + 1) & mask;
+        }
+        return false;
+    }
+
+    public boolean contains(int value) {
+        if (value == 0) return hasZero;
+        int i = slot(value);
+        while (keys[i] != 0) {
+            if (keys[i] == value) return true;
+            i = (i + 1) & mask;
+        }
+        return false;
+    }
+
+    public int size() {
+        return size + (hasZero ? 1 : 0);
+    }
+
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    public void clear() {
+        Arrays.fill(keys, 0);
+        size = 0;
+        hasZero = false;
+    }
+
+    /** Calls {@code action} for every member, in no particular order. */
+    public void forEach(IntConsumer action) {
+        if (hasZero) action.accept(0);
+        for (int k : keys) {
+            if (k != 0) action.accept(k);
+        }
+    }
+
+    /** Members in no particular order. */
+    public int[] toArray() {
+        int[] out = new int[size()];
+        int n = 0;
+        if (hasZero) out[n++] = 0;
+        for (int k : keys) {
+            if (k != 0) out[n++] = k;
+        }
+        return out;
+    }
+
+    /** Independent copy of this set. */
+    public IntHashSet copy() {
+        IntHashSet c = new IntHashSet(4);
+        c.keys = keys.clone();
+        c.mask = mask;
+        c.size = size;
+        c.hasZero = hasZero;
+        c.resizeAt = resizeAt;
+        return c;
+    }
+
+    /** Approximate heap footprint in bytes (object header plus key array). */
+    public long memoryBytes() {
+        return 32 + 16 + 4L * keys.length;
+    }
+
+    // -------------------------
+    // Internals
+    // -------------------------
+
+    private int slot(int value) {
+        return mix(value) & mask;
+    }
+
+    static int mix(int x) {
+        int h = x * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    private void shiftBack(int hole) {
+        int i = hole;
+        while (true) {
+            i = (i + 1) & mask;
+            int k = keys[i];
+            if (k == 0) break;
+            int home = slot(k);
+            // move k into the hole if its home slot is not between the hole and its current position
+            if (((i - home) & mask) >= ((i - hole) & mask)) {
+                keys[hole] = k;
+                hole = i;
+            }
+        }
+        keys[hole] = 0;
+    }
+
+    private void allocate(int capacity) {
+        keys = new int[capacity];
+        mask = capacity - 1;
+        resizeAt = (int) (capacity * LOAD_FACTOR);
+    }
+
+    private void rehash(int capacity) {
+        int[] old = keys;
+        allocate(capacity);
+        for (int k : old) {
+            if (k == 0) continue;
+            int i = slot(k);
+            while (keys[i] != 0) i = (i + 1) & mask;
+            keys[i] = k;
+        }
+    }
+}
@@ -0,0 +1,157 @@
+package com.library.checkout.util;
+
+/**
+ * IntIntHashMap: a map from primitive int to primitive int, using open addressing (linear probing) over
+ * two parallel int arrays.
+ *
+ * The same layout as {@link IntHashSet}: no boxing and no per-entry objects, so an entry costs 8 bytes
+ * divided by the load factor (against roughly 50 for a HashMap&lt;Integer, Integer&gt;). Removal uses
+ * backward-shift deletion. Key 0 marks an empty slot; the mapping for key 0 itself is kept in fields.
+ *
+ * Not thread-safe. Reads don't modify anything, so concurrent reads are fine as long as no write
+ * overlaps them.
+ */
+public final class IntIntHashMap {
+
+    private static final float LOAD_FACTOR = 0.6f;
+
+    private int[] keys;
+    private int[] values;
+    private int mask;
+    private int size; // entries stored in keys[] (excludes key 0)
+    private boolean hasZero;
+    private int zeroValue;
+    private int resizeAt;
+
+    public IntIntHashMap() {
+        this(8);
+    }
+
+    public IntIntHashMap(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(4, (int) (expectedSize / LOAD_FACTOR) + 1) - 1) << 1;
+        allocate(capacity);
+    }
+
+    /** The value for {@code key}, or {@code missing} if there is none. */
+    public int get(int key, int missing) {
+        if (key == 0) return hasZero ? zeroValue : missing;
+        int i = slot(key);
+        while (keys[i] != 0) {
+            if (keys[i] == key) return values[i];
+            i = (i + 1) & mask;
+        }
+        return missing;
+    }
+
+    public boolean containsKey(int key) {
+        if (key == 0) return hasZero;
+        int i = slot(key);
+        while (keys[i] != 0) {
+            if (keys[i] == key) return true;
+            i = (i + 1) & mask;
+        }
+        return false;
+    }
+
+    /** Maps {@code key} to {@code value}; returns the previous value, or {@code missing} if there was none. */
+    public int put(int key, int value, int missing) {
+        if (key == 0) {
+            int old = hasZero ? zeroValue : missing;
+            hasZero = true;
+            zeroValue = value;
+            return old;
+        }
+        int i = slot(key);
+        while (keys[i] != 0) {
+            if (keys[i] == key) {
+                int old = values[i];
+                values[i] = value;
+                return old;
+            }
+            i = (i + 1) & mask;
+        }
+        keys[i] = key;
+        values[i] = value;
+        if (++size >= resizeAt) rehash(keys.length << 1);
+        return missing;
+    }
+
+    /** Removes the mapping for {@code key}; returns its value, or {@code missing} if there was none. */
+    public int remove(int key, int missing) {
+        if (key == 0) {
+            int old = hasZero ? zeroValue : missing;
+            hasZero = false;
+            return old;
+        }
+        int i = slot(key);
+        while (keys[i] != 0) {
+            if (keys[i] == key) {
+                int old = values[i];
+                shiftBack(i);
+                size--;
+                return old;
+            }
+            i = (i + 1) & mask;
+        }
+        return missing;
+    }
+
+    public int size() {
+        return size + (hasZero ? 1 : 0);
+    }
+
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    /** Approximate heap footprint in bytes (object header plus the two arrays). */
+    public long memoryBytes() {
+        return 40 + 2 * (16 + 4L * keys.length);
+    }
+
+    // -------------------------
+    // Internals
+    // -------------------------
+
+    private int slot(int key) {
+        return IntHashSet.mix(key) & mask;
+    }
+
+    private void shiftBack(int hole) {
+        int i = hole;
+        while (true) {
+            i = (i + 1) & mask;
+            int k = keys[i];
+            if (k == 0) break;
+            int home = slot(k);
+            // move k into the hole if its home slot is not between the hole and its current position
+            if (((i - home) & mask) >= ((i - hole) & mask)) {
+                keys[hole] = k;
+                values[hole] = values[i];
+                hole = i;
+            }
+        }
+        keys[hole] = 0;
+    }
+
+    private void allocate(int capacity) {
+        keys = new int[capacity];
+        values = new int[capacity];
+        mask = capacity - 1;
+        resizeAt = (int) (capacity * LOAD_FACTOR);
+    }
+
+    private void rehash(int capacity) {
+        int[] oldKeys = keys;
+        int[] oldValues = values;
+        allocate(capacity);
+        for (int j = 0; j < oldKeys.length; j++) {
+            int k = oldKeys[j];
+            if (k == 0) continue;
+            int i = slot(k);
+            while (keys[i] != 0) i = (i + 1) & mask;
+            keys[i] = k;
+            values[i] = oldValues[j];
+        }
+    }
+}
@@ -0,0 +1,442 @@
+package com.library.checkout.util;
+
+import java.util.AbstractCollection;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * PersistentIntMap: an immutable int-keyed map. {@link #put} and {@link #remove} return a new map and
+ * leave this one untouched, sharing every node that didn't change, so a map handed to a reader stays a
+ * valid point-in-time view no matter what the writer does next.
+ *
+ * It is a hash array mapped trie (CHAMP layout): each node splits on 5 bits of the mixed key and keeps
+ * its entries inline in an int[] / Object[] pair, with child nodes in a separate array. Keys are mixed
+ * with a bijection, so two keys never share all 32 bits and there are no collision nodes; depth is at
+ * most 7. A lookup or an update touches O(log32 n) nodes.
+ *
+ * For bulk changes use a {@link Builder}: it edits nodes it has already copied in place, so a batch of
+ * updates copies each affected node once instead of once per update. A builder is single-threaded and
+ * must not be used after {@link Builder#build()}.
+ *
+ * Instances are immutable and safe to share between threads once published (e.g. via a volatile field).
+ */
+public final class PersistentIntMap<V> {
+
+    private static final int BITS = 5;
+    private static final int MASK = (1 << BITS) - 1;
+
+    private static final int[] NO_KEYS = new int[0];
+    private static final Object[] NO_VALUES = new Object[0];
+    private static final Node[] NO_NODES = new Node[0];
+
+    private static final PersistentIntMap<Object> EMPTY = new PersistentIntMap<>(new Node(null, 0, 0, NO_KEYS, NO_VALUES, NO_NODES), 0);
+
+    private static final class Node {
+        // the builder that may edit this node in place, or null
+        Object edit;
+        int dataMap;  // bits with an inline entry
+        int nodeMap;  // bits with a child node
+        int[] keys;
+        Object[] values;
+        Node[] children;
+
+        Node(Object edit, int dataMap, int nodeMap, int[] keys, Object[] values, Node[] children) {
+            this.edit = edit;
+            this.dataMap = dataMap;
+            this.nodeMap = nodeMap;
+            this.keys = keys;
+            this.values = values;
+            this.children = children;
+        }
+
+        // this node if the builder owns it, else a copy it owns (arrays included, so they can be edited too)
+        Node editable(Object e) {
+            if (edit == e) return this;
+            return new Node(e, dataMap, nodeMap, keys.clone(), values.clone(), children.clone());
+        }
+    }
+
+    private final Node root;
+    private final int size;
+
+    private PersistentIntMap(Node root, int size) {
+        this.root = root;
+        this.size = size;
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <V> PersistentIntMap<V> empty() {
+        return (PersistentIntMap<V>) EMPTY;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Approximate heap footprint of the trie in bytes (nodes and their arrays; not the values). Walks
+     * every node, so O(n); nodes shared with other versions are counted too.
+     */
+    public long memoryBytes() {
+        return HeapSizes.object(8) + memoryBytes(root);
+    }
+
+    private static long memoryBytes(Node n) {
+        long bytes = HeapSizes.object(2 * 4 + 4 * HeapSizes.REFERENCE)
+                + HeapSizes.intArray(n.keys.length)
+                + HeapSizes.referenceArray(n.values.length)
+                + HeapSizes.referenceArray(n.children.length);
+        for (Node child : n.children) {
+            bytes += memoryBytes(child);
+        }
+        return bytes;
+    }
+
+    public boolean containsKey(int key) {
+        return get(key) != null;
+    }
+
+    /** The value for {@code key}, or null. */
+    public V get(int key) {
+        return get(root, key);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <V> V get(Node root, int key) {
+        int h = mix(key);
+        Node node = root;
+        for (int shift = 0; ; shift += BITS) {
+            int bit = bit(h, shift);
+            if ((node.dataMap & bit) != 0) {
+                int i = index(node.dataMap, bit);
+                return node.keys[i] == key ? (V) node.values[i] : null;
+            }
+            if ((node.nodeMap & bit) == 0) return null;
+            node = node.children[index(node.nodeMap, bit)];
+        }
+    }
+
+    /** This map with {@code key} mapped to {@code value} (which must not be null). */
+    public PersistentIntMap<V> put(int key, V value) {
+        Builder<V> b = builder();
+        b.put(key, value);
+        return b.build();
+    }
+
+    /** This map without {@code key}. */
+    public PersistentIntMap<V> remove(int key) {
+        Builder<V> b = builder();
+        b.remove(key);
+        return b.build();
+    }
+
+    /** A builder starting from this map; this map itself is never modified. */
+    public Builder<V> builder() {
+        return new Builder<>(root, size);
+    }
+
+    /**
+     * Calls {@code action} for every entry, in hash order.
+     */
+    public void forEach(EntryConsumer<? super V> action) {
+        forEach(root, action);
+    }
+
+    /**
+     * Read-only view of the values, in hash order.
+     */
+    public Collection<V> values() {
+        return new AbstractCollection<V>() {
+            @Override
+            public Iterator<V> iterator() {
+                return new ValueIterator<>(root);
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+    /**
+     * Receives one entry per call from {@link #forEach(EntryConsumer)}.
+     */
+    public interface EntryConsumer<V> {
+        void accept(int key, V value);
+    }
+
+    /**
+     * Accumulates changes to a map; see the class comment.
+     */
+    public static final class Builder<V> {
+        private Object edit = new Object();
+        private Node root;
+        private int size;
+
+        private Builder(Node root, int size) {
+            this.root = root;
+            this.size = size;
+        }
+
+        /** Maps {@code key} to {@code value}; returns the previous value or null. */
+        @SuppressWarnings("unchecked")
+        public V put(int key, V value) {
+            if (value == null) throw new IllegalArgumentException("value cannot be null");
+            checkOpen();
+            Object[] old = new Object[1];
+            root = insert(root, key, mix(key), 0, value, old);
+            if (old[0] == null) size++;
+            return (V) old[0];
+        }
+
+        /** Removes {@code key}; returns the previous value or null. */
+        @SuppressWarnings("unchecked")
+        public V remove(int key) {
+            checkOpen();
+            Object[] old = new Object[1];
+            Node r = delete(root, key, mix(key), 0, old);
+            if (old[0] == null) return null;
+            root = r;
+            size--;
+            return (V) old[0];
+        }
+
+        public V get(int key) {
+            return PersistentIntMap.get(root, key);
+        }
+
+        public int size() {
+            return size;
+        }
+
+        /** The finished map. The builder can't be used afterwards. */
+        public PersistentIntMap<V> build() {
+            checkOpen();
+            edit = null;
+            return new PersistentIntMap<>(root, size);
+        }
+
+        private void checkOpen() {
+            if (edit == null) throw new IllegalStateException("builder already built");
+        }
+
+        private Node insert(Node node, int key, int h, int shift, Object value, Object[] old) {
+            int bit = bit(h, shift);
+            if ((node.dataMap & bit) != 0) {
+                int i = index(node.dataMap, bit);
+                if (node.keys[i] == key) {
+                    old[0] = node.values[i];
+                    if (old[0] == value) return node;
+                    Node n = node.editable(edit);
+                    n.values[i] = value;
+                    return n;
+                }
+                // two keys on this bit: push both down into a new child
+                Node child = pair(node.keys[i], mix(node.keys[i]), node.values[i], key, h, value, shift + BITS);
+                Node n = node.editable(edit);
+                n.keys = removeAt(node.keys, i);
+                n.values = removeAt(node.values, i);
+                n.dataMap = node.dataMap ^ bit;
+                n.children = insertAt(node.children, index(node.nodeMap, bit), child);
+                n.nodeMap = node.nodeMap | bit;
+                return n;
+            }
+            if ((node.nodeMap & bit) != 0) {
+                int ci = index(node.nodeMap, bit);
+                Node child = node.children[ci];
+                Node updated = insert(child, key, h, shift + BITS, value, old);
+                if (updated == child) return node;
+                Node n = node.editable(edit);
+                n.children[ci] = updated;
+                return n;
+            }
+            int i = index(node.dataMap, bit);
+            Node n = node.editable(edit);
+            n.keys = insertAt(node.keys, i, key);
+            n.values = insertAt(node.values, i, value);
+            n.dataMap = node.dataMap | bit;
+            return n;
+        }
+
+        private Node pair(int k1, int h1, Object v1, int k2, int h2, Object v2, int shift) {
+            int b1 = bit(h1, shift);
+            int b2 = bit(h2, shift);
+            if (b1 == b2) {
+                return new Node(edit, 0, b1, NO_KEYS, NO_VALUES, new Node[]{pair(k1, h1, v1, k2, h2, v2, shift + BITS)});
+            }
+            boolean firstLow = Integer.compareUnsigned(b1, b2) < 0;
+            return new Node(edit, b1 | b2, 0,
+                    firstLow ? new int[]{k1, k2} : new int[]{k2, k1},
+                    firstLow ? new Object[]{v1, v2} : new Object[]{v2, v1},
+                    NO_NODES);
+        }
+
+        // returns the node without key (the same node if key wasn't there); a child left with a single
+        // entry and no children is folded back into its parent, so the trie stays as shallow as a fresh one
+        private Node delete(Node node, int key, int h, int shift, Object[] old) {
+            int bit = bit(h, shift);
+            if ((node.dataMap & bit) != 0) {
+                int i = index(node.dataMap, bit);
+                if (node.keys[i] != key) return node;
+                old[0] = node.values[i];
+                Node n = node.editable(edit);
+                n.keys = removeAt(node.keys, i);
+                n.values = removeAt(node.values, i);
+                n.dataMap = node.dataMap ^ bit;
+                return n;
+            }
+            if ((node.nodeMap & bit) == 0) return node;
+            int ci = index(node.nodeMap, bit);
+            Node child = node.children[ci];
+            Node updated = delete(child, key, h, shift + BITS, old);
+            if (updated == child) return node;
+            Node n = node.editable(edit);
+            if (updated.nodeMap == 0 && Integer.bitCount(updated.dataMap) <= 1) {
+                n.children = removeAt(node.children, ci);
+                n.nodeMap = node.nodeMap ^ bit;
+                if (updated.dataMap != 0) {
+                    int i = index(node.dataMap, bit);
+                    n.keys = insertAt(node.keys, i, updated.keys[0]);
+                    n.values = insertAt(node.values, i, updated.values[0]);
+                    n.dataMap = node.dataMap | bit;
+                }
+            } else {
+                n.children[ci] = updated;
+            }
+            return n;
+        }
+    }
+
+    // -------------------------
+    // Internals
+    // -------------------------
+
+    @SuppressWarnings("unchecked")
+    private static <V> void forEach(Node node, EntryConsumer<? super V> action) {
+        for (int i = 0; i < node.keys.length; i++) {
+            action.accept(node.keys[i], (V) node.values[i]);
+        }
+        for (Node child : node.children) {
+            forEach(child, action);
+        }
+    }
+
+    private static final class ValueIterator<V> implements Iterator<V> {
+        // depth is at most 7, plus the root
+        private final Node[] nodes = new Node[8];
+        private final int[] next = new int[8]; // next child to descend into, per level
+        private int depth;
+        private Node current;
+        private int entry;
+
+        ValueIterator(Node root) {
+            nodes[0] = root;
+            current = root;
+            advance();
+        }
+
+        @Override
+        public boolean hasNext() {
+            return current != null;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public V next() {
+            if (current == null) throw new NoSuchElementException();
+            V v = (V) current.values[entry++];
+            advance();
+            return v;
+        }
+
+        // leave (current, entry) on the next unvisited inline entry, descending into children pre-order
+        private void advance() {
+            while (entry >= current.keys.length) {
+                Node parent = nodes[depth];
+                if (next[depth] < parent.children.length) {
+                    Node child = parent.children[next[depth]++];
+                    nodes[++depth] = child;
+                    next[depth] = 0;
+                    current = child;
+                    entry = 0;
+                    continue;
+                }
+                if (depth == 0) {
+                    current = null;
+                    return;
+                }
+                depth--;
+                current = nodes[depth];
+                entry = current.keys.length; // its entries were visited before its children
+            }
+        }
+    }
+
+    private static int mix(int x) {
+        // bijective, so distinct keys always differ somewhere in the 32 hash bits
+        int h = x * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    private static int bit(int h, int shift) {
+        return 1 << ((h >>> shift) & MASK);
+    }
+
+    private static int index(int bitmap, int bit) {
+        return Integer.bitCount(bitmap & (bit - 1));
+    }
+
+    private static int[] insertAt(int[] a, int i, int v) {
+        int[] out = new int[a.length + 1];
+        System.arraycopy(a, 0, out, 0, i);
+        out[i] = v;
+        System.arraycopy(a, i, out, i + 1, a.length - i);
+        return out;
+    }
+
+    private static Object[] insertAt(Object[] a, int i, Object v) {
+        Object[] out = new Object[a.length + 1];
+        System.arraycopy(a, 0, out, 0, i);
+        out[i] = v;
+        System.arraycopy(a, i, out, i + 1, a.length - i);
+        return out;
+    }
+
+    private static Node[] insertAt(Node[] a, int i, Node v) {
+        Node[] out = Arrays.copyOf(a, a.length + 1);
+        System.arraycopy(a, i, out, i + 1, a.length - i);
+        out[i] = v;
+        return out;
+    }
+
+    private static int[] removeAt(int[] a, int i) {
+        if (a.length == 1) return NO_KEYS;
+        int[] out = new int[a.length - 1];
+        System.arraycopy(a, 0, out, 0, i);
+        System.arraycopy(a, i + 1, out, i, a.length - i - 1);
+        return out;
+    }
+
+    private static Object[] removeAt(Object[] a, int i) {
+        if (a.length == 1) return NO_VALUES;
+        Object[] out = new Object[a.length - 1];
+        System.arraycopy(a, 0, out, 0, i);
+        System.arraycopy(a, i + 1, out, i, a.length - i - 1);
+        return out;
+    }
+
+    private static Node[] removeAt(Node[] a, int i) {
+        if (a.length == 1) return NO_NODES;
+        Node[] out = new Node[a.length - 1];
+        System.arraycopy(a, 0, out, 0, i);
+        System.arraycopy(a, i + 1, out, i, a.length - i - 1);
+        return out;
+    }
+}